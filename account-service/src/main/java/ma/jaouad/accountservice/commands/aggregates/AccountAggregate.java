@@ -19,9 +19,20 @@ import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.eventsourcing.EventSourcingHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
 import org.axonframework.modelling.command.AggregateLifecycle;
+import org.axonframework.serialization.Revision;
 import org.axonframework.spring.stereotype.Aggregate;
 
-@Aggregate
+/**
+ * Agregat Account
+ *
+ * La revision est portee par les snapshots : l'incrementer a chaque changement
+ * de structure (champs ajoutes, renommes ou supprimes) invalide les anciens snapshots.
+ */
+@Aggregate(
+    snapshotTriggerDefinition = "accountSnapshotTriggerDefinition",
+    snapshotFilter = "accountSnapshotFilter"
+)
+@Revision("1")
 @Slf4j
 @Getter
 @Setter
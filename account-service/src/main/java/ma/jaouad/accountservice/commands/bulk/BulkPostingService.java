@@ -0,0 +1,197 @@
+package ma.jaouad.accountservice.commands.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import ma.jaouad.coreapi.commands.DebitAccountCommand;
+import ma.jaouad.coreapi.dtos.PostingRequestDTO;
+import ma.jaouad.coreapi.dtos.PostingResultDTO;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Envoi en masse de credits / debits
+ *
+ * Lecture, envoi des commandes et ecriture des resultats sont pipelines sur le thread de la requete :
+ * - les ecritures sont lues une a une depuis le flux d'entree (tableau JSON ou NDJSON)
+ * - au plus max-in-flight commandes sont en cours ; au-dela, la lecture attend qu'un resultat soit ecrit
+ * - chaque resultat est ecrit en NDJSON des qu'il est connu (ordre de completion, champ index)
+ * La memoire reste donc bornee quelle que soit la taille de l'envoi.
+ *
+ * Les ecritures d'un meme compte sont envoyees dans l'ordre du flux : la suivante part
+ * quand la precedente est terminee (un debit ne double pas le credit qui le precede).
+ */
+@Service
+@Slf4j
+public class BulkPostingService {
+
+    private final CommandGateway commandGateway;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter resultWriter;
+    private final int maxInFlight;
+
+    public BulkPostingService(CommandGateway commandGateway,
+                              ObjectMapper objectMapper,
+                              @Value("${account.bulk.max-in-flight:256}") int maxInFlight) {
+        this.commandGateway = commandGateway;
+        this.objectMapper = objectMapper;
+        this.resultWriter = objectMapper.writerFor(PostingResultDTO.class);
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        BulkRun run = new BulkRun(new BufferedOutputStream(output));
+        try (MappingIterator<PostingRequestDTO> postings =
+                 objectMapper.readerFor(PostingRequestDTO.class).readValues(input)) {
+            while (true) {
+                PostingRequestDTO posting;
+                try {
+                    if (!postings.hasNextValue()) {
+                        break;
+                    }
+                    posting = postings.nextValue();
+                } catch (JsonProcessingException e) {
+                    // Flux illisible : on s'arrete, les commandes deja envoyees sont attendues
+                    run.write(PostingResultDTO.error(run.index, null, "Malformed posting: " + e.getOriginalMessage()));
+                    break;
+                }
+                run.submit(posting);
+            }
+            run.awaitAll();
+        } finally {
+            run.results.flush();
+        }
+        log.info("Bulk postings processed: {} postings ({} failed) in {} ms",
+                run.index, run.failures, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static String validate(PostingRequestDTO posting) {
+        if (posting == null || posting.getType() == null) {
+            return "Missing posting type (CREDIT or DEBIT)";
+        }
+        if (posting.getAccountId() == null || posting.getAccountId().isBlank()) {
+            return "Missing account id";
+        }
+        return null;
+    }
+
+    /**
+     * Premiere ligne du message de la cause racine (Axon enveloppe les exceptions metier)
+     */
+    private static String errorMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return message.split("\nCaused by")[0];
+    }
+
+    /**
+     * Etat d'un envoi, manipule uniquement par le thread de la requete
+     * (les callbacks des commandes ne font que deposer leur resultat dans la file)
+     */
+    private final class BulkRun {
+        private final BlockingQueue<PostingResultDTO> completed = new LinkedBlockingQueue<>();
+        // Derniere commande envoyee par compte, limitee aux comptes ayant une commande en cours
+        private final Map<String, PendingPosting> lastByAccount = new HashMap<>();
+        private final OutputStream results;
+        private long index;
+        private long failures;
+        private int inFlight;
+
+        private BulkRun(OutputStream results) {
+            this.results = results;
+        }
+
+        private void submit(PostingRequestDTO posting) throws IOException {
+            long postingIndex = index++;
+            String invalid = validate(posting);
+            if (invalid != null) {
+                write(PostingResultDTO.error(postingIndex, posting == null ? null : posting.getAccountId(), invalid));
+                return;
+            }
+            while (inFlight >= maxInFlight) {
+                writeCompleted(takeCompleted());
+            }
+            dispatch(postingIndex, posting);
+            PostingResultDTO result;
+            while ((result = completed.poll()) != null) {
+                writeCompleted(result);
+            }
+        }
+
+        private void awaitAll() throws IOException {
+            while (inFlight > 0) {
+                writeCompleted(takeCompleted());
+            }
+        }
+
+        private void dispatch(long postingIndex, PostingRequestDTO posting) {
+            String accountId = posting.getAccountId();
+            Object command = posting.getType() == OperationType.CREDIT
+                ? new CreditAccountCommand(accountId, posting.getAmount(), posting.getCurrency())
+                : new DebitAccountCommand(accountId, posting.getAmount(), posting.getCurrency());
+            PendingPosting previous = lastByAccount.get(accountId);
+            CompletableFuture<Object> sent = previous == null
+                ? commandGateway.send(command)
+                : previous.completion().thenCompose(ignored -> commandGateway.send(command));
+            inFlight++;
+            lastByAccount.put(accountId, new PendingPosting(postingIndex, sent.handle((result, error) -> {
+                completed.add(error == null
+                    ? PostingResultDTO.ok(postingIndex, accountId)
+                    : PostingResultDTO.error(postingIndex, accountId, errorMessage(error)));
+                return null;
+            })));
+        }
+
+        private PostingResultDTO takeCompleted() throws IOException {
+            // Rien a faire avant le prochain resultat : le client recoit ce qui est deja ecrit
+            results.flush();
+            try {
+                return completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for bulk command results");
+            }
+        }
+
+        private void writeCompleted(PostingResultDTO result) throws IOException {
+            inFlight--;
+            PendingPosting last = lastByAccount.get(result.getAccountId());
+            if (last != null && last.index() == result.getIndex()) {
+                // Plus rien en cours pour ce compte
+                lastByAccount.remove(result.getAccountId());
+            }
+            write(result);
+        }
+
+        private void write(PostingResultDTO result) throws IOException {
+            if (PostingResultDTO.ERROR.equals(result.getStatus())) {
+                failures++;
+            }
+            results.write(resultWriter.writeValueAsBytes(result));
+            results.write('\n');
+        }
+    }
+
+    private record PendingPosting(long index, CompletableFuture<Void> completion) {
+    }
+}
@@ -0,0 +1,113 @@
+package ma.jaouad.accountservice.commands.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.axonframework.common.Registration;
+import org.axonframework.common.caching.Cache;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache Axon borne (nombre d'entrees) au-dessus de Caffeine, pour les agregats charges
+ *
+ * Axon ne fournit que des adaptateurs EhCache / JCache ou un cache a references faibles
+ * (non borne, vide au gre du GC).
+ */
+public class CaffeineAggregateCache implements Cache {
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache;
+    private final ConcurrentMap<Object, Object> entries;
+    private final List<EntryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public CaffeineAggregateCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .removalListener((Object key, Object value, RemovalCause cause) -> {
+                if (cause.wasEvicted()) {
+                    listeners.forEach(listener -> listener.onEntryExpired(key));
+                }
+            })
+            .build();
+        this.entries = cache.asMap();
+    }
+
+    /**
+     * Cache Caffeine sous-jacent (metriques)
+     */
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache() {
+        return cache;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> V get(K key) {
+        Object value = cache.getIfPresent(key);
+        if (value != null) {
+            listeners.forEach(listener -> listener.onEntryRead(key, value));
+        }
+        return (V) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object previous = entries.put(key, value);
+        listeners.forEach(listener -> {
+            if (previous == null) {
+                listener.onEntryCreated(key, value);
+            } else {
+                listener.onEntryUpdated(key, value);
+            }
+        });
+    }
+
+    @Override
+    public boolean putIfAbsent(Object key, Object value) {
+        boolean created = entries.putIfAbsent(key, value) == null;
+        if (created) {
+            listeners.forEach(listener -> listener.onEntryCreated(key, value));
+        }
+        return created;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Supplier<T> valueSupplier) {
+        return (T) cache.get(key, k -> valueSupplier.get());
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        boolean removed = entries.remove(key) != null;
+        if (removed) {
+            listeners.forEach(listener -> listener.onEntryRemoved(key));
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> void computeIfPresent(Object key, UnaryOperator<V> update) {
+        entries.computeIfPresent(key, (k, value) -> update.apply((V) value));
+    }
+
+    @Override
+    public Registration registerCacheEntryListener(EntryListener cacheEntryListener) {
+        listeners.add(cacheEntryListener);
+        return () -> listeners.remove(cacheEntryListener);
+    }
+}
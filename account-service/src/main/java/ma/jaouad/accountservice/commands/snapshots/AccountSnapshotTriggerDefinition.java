@@ -0,0 +1,82 @@
+package ma.jaouad.accountservice.commands.snapshots;
+
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventsourcing.AbstractSnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+
+/**
+ * Declencheur de snapshot combinant nombre d'evenements et temps de chargement
+ *
+ * Un snapshot est planifie des que l'un des deux seuils est depasse :
+ * - eventThreshold : nombre d'evenements rejoues/appliques depuis le dernier snapshot
+ * - loadTimeThresholdMillis : duree de chargement de l'agregat en millisecondes
+ *
+ * Un seuil a 0 (ou negatif) est desactive.
+ */
+public class AccountSnapshotTriggerDefinition implements SnapshotTriggerDefinition {
+
+    private final Snapshotter snapshotter;
+    private final int eventThreshold;
+    private final long loadTimeThresholdMillis;
+
+    public AccountSnapshotTriggerDefinition(Snapshotter snapshotter, int eventThreshold,
+                                            long loadTimeThresholdMillis) {
+        this.snapshotter = snapshotter;
+        this.eventThreshold = eventThreshold;
+        this.loadTimeThresholdMillis = loadTimeThresholdMillis;
+    }
+
+    @Override
+    public SnapshotTrigger prepareTrigger(Class<?> aggregateType) {
+        return new CountOrLoadTimeTrigger(snapshotter, aggregateType, eventThreshold, loadTimeThresholdMillis);
+    }
+
+    @Override
+    public SnapshotTrigger reconfigure(Class<?> aggregateType, SnapshotTrigger trigger) {
+        // Le snapshotter est transient : a reinjecter apres une deserialisation (cache)
+        if (trigger instanceof AbstractSnapshotTrigger abstractSnapshotTrigger) {
+            abstractSnapshotTrigger.setSnapshotter(snapshotter);
+            return trigger;
+        }
+        return prepareTrigger(aggregateType);
+    }
+
+    private static class CountOrLoadTimeTrigger extends AbstractSnapshotTrigger {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int eventThreshold;
+        private final long loadTimeThresholdMillis;
+        private int counter;
+        private long startTime = System.currentTimeMillis();
+
+        CountOrLoadTimeTrigger(Snapshotter snapshotter, Class<?> aggregateType,
+                               int eventThreshold, long loadTimeThresholdMillis) {
+            super(snapshotter, aggregateType);
+            this.eventThreshold = eventThreshold;
+            this.loadTimeThresholdMillis = loadTimeThresholdMillis;
+        }
+
+        @Override
+        public void eventHandled(EventMessage<?> msg) {
+            counter++;
+            super.eventHandled(msg);
+        }
+
+        @Override
+        protected boolean exceedsThreshold() {
+            boolean countExceeded = eventThreshold > 0 && counter >= eventThreshold;
+            boolean loadTimeExceeded = loadTimeThresholdMillis > 0
+                && System.currentTimeMillis() - startTime > loadTimeThresholdMillis;
+            return countExceeded || loadTimeExceeded;
+        }
+
+        @Override
+        protected void reset() {
+            counter = 0;
+            startTime = System.currentTimeMillis();
+        }
+    }
+}
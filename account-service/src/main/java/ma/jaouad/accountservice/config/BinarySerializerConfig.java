@@ -0,0 +1,34 @@
+package ma.jaouad.accountservice.config;
+
+import ma.jaouad.coreapi.serialization.CoreApiBinarySerializer;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration Axon Framework - Serialisation binaire des messages core-api
+ *
+ * Activee par coreapi.serializer.binary.enabled=true (a definir par profil).
+ * Les events et messages (commands, queries) core-api sont encodes en binaire compact,
+ * le serializer general (axon.serializer.general) reste utilise pour le reste (MetaData, DTOs, tokens).
+ *
+ * Tous les services connectes a Axon Server doivent avoir le meme reglage.
+ */
+@Configuration
+@ConditionalOnProperty(name = "coreapi.serializer.binary.enabled", havingValue = "true")
+public class BinarySerializerConfig {
+
+    @Bean
+    @Qualifier("eventSerializer")
+    public Serializer eventSerializer(Serializer serializer) {
+        return new CoreApiBinarySerializer(serializer);
+    }
+
+    @Bean
+    @Qualifier("messageSerializer")
+    public Serializer messageSerializer(Serializer serializer) {
+        return new CoreApiBinarySerializer(serializer);
+    }
+}
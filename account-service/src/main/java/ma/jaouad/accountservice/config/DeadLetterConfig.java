@@ -0,0 +1,49 @@
+package ma.jaouad.accountservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.jaouad.coreapi.processing.DeadLetterQueueConfigurer;
+import ma.jaouad.coreapi.processing.DeadLetterQueueProperties;
+import ma.jaouad.coreapi.processing.DeadLetterService;
+import ma.jaouad.accountservice.queries.handlers.AccountEventHandler;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * File des lettres mortes (dead-letter queue) de la projection des comptes
+ *
+ * File, politique de rejeu et administration partagees avec analytics-service (core-api, DeadLetterQueueConfigurer
+ * et DeadLetterService), parametrees ici par le processeur et le prefixe des proprietes.
+ *
+ * En mode batch, l'existence du compte est verifiee dans le handler, a sa premiere entree dans le lot :
+ * un compte absent part en file comme hors batch. Seules les erreurs detectees a l'ecriture du lot
+ * (fin de transaction, base indisponible par exemple) font echouer le lot entier, comme sans file.
+ *
+ * - account.projection.dlq.enabled : active/desactive la file
+ * - account.projection.dlq.max-sequences : nombre maximal de comptes en file
+ * - account.projection.dlq.max-sequence-size : nombre maximal d'events en file par compte
+ * - account.projection.dlq.max-retries : echecs avant arret du rejeu automatique
+ * - account.projection.dlq.retry-interval-ms : periode du rejeu automatique, delai avant le premier rejeu
+ */
+@Configuration
+public class DeadLetterConfig {
+
+    private static final String PROCESSOR = AccountEventHandler.PROCESSING_GROUP;
+    private static final String PROPERTY_PREFIX = "account.projection.dlq";
+
+    @Autowired
+    public void configureAccountProjectionDeadLetters(EventProcessingConfigurer configurer, Environment environment) {
+        DeadLetterQueueConfigurer.configure(configurer, PROCESSOR, DeadLetterQueueProperties.from(environment, PROPERTY_PREFIX));
+    }
+
+    @Bean
+    public DeadLetterService deadLetterService(EventProcessingConfiguration processingConfiguration,
+                                               MeterRegistry meterRegistry,
+                                               Environment environment) {
+        return new DeadLetterService(processingConfiguration, meterRegistry, PROCESSOR,
+                DeadLetterQueueProperties.from(environment, PROPERTY_PREFIX).retryInterval());
+    }
+}
@@ -0,0 +1,88 @@
+package ma.jaouad.accountservice.config;
+
+import ma.jaouad.coreapi.eventstore.MappedFileEventSource;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.serialization.RevisionResolver;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration de l'event store embarque (profil "embedded")
+ *
+ * Remplace Axon Server par un MappedFileEventStorageEngine local :
+ * account-service est l'unique ecrivain du repertoire embedded.eventstore.directory,
+ * analytics-service le lit en lecture seule sur la meme machine.
+ *
+ * Les bus de commandes et de requetes deviennent locaux (axon.axonserver.enabled=false).
+ * Charge utile et metadonnees des events sont compressees a l'ecriture (embedded.eventstore.compression.*),
+ * les segments existants le sont par EventStoreRecompressionService.
+ */
+@Configuration
+@Profile("embedded")
+public class EmbeddedEventStoreConfig {
+
+    @Bean
+    public MappedFileEventStorageEngine eventStorageEngine(
+            @Qualifier("eventSerializer") Serializer eventSerializer,
+            Serializer serializer,
+            RevisionResolver revisionResolver,
+            org.axonframework.config.Configuration configuration,
+            @Value("${account.snapshot.serializer:jackson}") String snapshotSerializer,
+            @Value("${embedded.eventstore.directory}") String directory,
+            @Value("${embedded.eventstore.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${embedded.eventstore.batch-size:1000}") int batchSize,
+            @Value("${embedded.eventstore.force-on-append:false}") boolean forceOnAppend,
+            @Value("${embedded.eventstore.compression.enabled:true}") boolean compression,
+            @Value("${embedded.eventstore.compression.level:3}") int compressionLevel) {
+        return MappedFileEventStorageEngine.builder()
+                .directory(Path.of(directory))
+                .segmentSize(segmentSizeMb * 1024 * 1024)
+                .batchSize(batchSize)
+                .forceOnAppend(forceOnAppend)
+                .compression(compression)
+                .compressionLevel(compressionLevel)
+                .eventSerializer(eventSerializer)
+                .snapshotSerializer("jackson".equals(snapshotSerializer)
+                        ? SnapshotConfig.jacksonSnapshotSerializer(revisionResolver)
+                        : serializer)
+                .snapshotFilter(configuration.snapshotFilter())
+                .upcasterChain(configuration.upcasterChain())
+                .build();
+    }
+
+    /**
+     * Source des processeurs d'events : types sans handler ecartes a la lecture des segments,
+     * charges utiles deserialisees a la demande
+     *
+     * Desactivee par defaut : les handlers de ce service traitent tous les types d'events, et l'event store
+     * (EmbeddedEventStore) reveille les processeurs des l'ajout d'un event, la ou cette source interroge
+     * le journal toutes les poll-interval-ms.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "embedded.eventstore.type-filtering", havingValue = "true")
+    public MappedFileEventSource mappedFileEventSource(
+            MappedFileEventStorageEngine eventStorageEngine,
+            @Value("${embedded.eventstore.poll-interval-ms:100}") long pollIntervalMs) {
+        return new MappedFileEventSource(eventStorageEngine, Duration.ofMillis(pollIntervalMs));
+    }
+
+    @Autowired
+    public void configureEventSource(EventProcessingConfigurer configurer,
+                                     ObjectProvider<MappedFileEventSource> eventSource) {
+        configurer.configureDefaultStreamableMessageSource(configuration -> {
+            MappedFileEventSource source = eventSource.getIfAvailable();
+            return source != null ? source : configuration.eventStore();
+        });
+    }
+}
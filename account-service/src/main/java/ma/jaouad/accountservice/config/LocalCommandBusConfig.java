@@ -0,0 +1,122 @@
+package ma.jaouad.accountservice.config;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.commands.aggregates.AccountAggregate;
+import ma.jaouad.accountservice.commands.cache.CaffeineAggregateCache;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.disruptor.commandhandling.DisruptorCommandBus;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.annotation.HandlerDefinition;
+import org.axonframework.messaging.annotation.ParameterResolverFactory;
+import org.axonframework.messaging.interceptors.CorrelationDataInterceptor;
+import org.axonframework.modelling.command.Repository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Bus de commandes local haute performance (deploiement sur un seul noeud)
+ *
+ * Remplace le SimpleCommandBus (segment local du bus Axon Server, ou bus unique en profil embedded)
+ * par un DisruptorCommandBus :
+ * - les commandes passent par un ring buffer ; les threads d'invocation se partagent les comptes
+ *   par hachage de l'accountId : les commandes d'un meme compte s'executent en sequence sur le meme
+ *   thread, sans verrou, et des comptes differents en parallele sur plusieurs coeurs
+ * - les events sont stockes par des threads de publication distincts
+ * - les agregats charges restent en memoire (cache borne) : une commande ne relit plus le flux
+ *   d'events du compte depuis l'event store
+ *
+ * Reserve a un seul noeud : le cache suppose que ce noeud est le seul a ecrire les events d'un compte.
+ *
+ * - account.command-bus.local.enabled : active/desactive le bus local
+ * - account.command-bus.local.invoker-threads : threads d'invocation des agregats (0 = nombre de coeurs)
+ * - account.command-bus.local.publisher-threads : threads de stockage des events
+ * - account.command-bus.local.buffer-size : taille du ring buffer (puissance de 2)
+ * - account.command-bus.local.wait-strategy : attente des threads (blocking, sleeping, yielding, busy-spin)
+ * - account.command-bus.local.aggregate-cache-size : nombre d'agregats gardes en cache
+ */
+@Configuration
+@ConditionalOnProperty(name = "account.command-bus.local.enabled", havingValue = "true")
+@Slf4j
+public class LocalCommandBusConfig {
+
+    @Bean
+    public CaffeineAggregateCache accountAggregateCache(
+            MeterRegistry meterRegistry,
+            @Value("${account.command-bus.local.aggregate-cache-size:10000}") long maximumSize) {
+        CaffeineAggregateCache cache = new CaffeineAggregateCache(maximumSize);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.nativeCache(), "account-aggregate");
+        return cache;
+    }
+
+    /**
+     * Qualifie "localSegment" : utilise tel quel sans Axon Server, sinon comme segment local d'AxonServerCommandBus
+     */
+    @Bean(destroyMethod = "stop")
+    @Qualifier("localSegment")
+    public DisruptorCommandBus commandBus(
+            org.axonframework.config.Configuration configuration,
+            TransactionManager transactionManager,
+            CaffeineAggregateCache accountAggregateCache,
+            @Value("${account.command-bus.local.invoker-threads:0}") int invokerThreads,
+            @Value("${account.command-bus.local.publisher-threads:1}") int publisherThreads,
+            @Value("${account.command-bus.local.buffer-size:4096}") int bufferSize,
+            @Value("${account.command-bus.local.wait-strategy:blocking}") String waitStrategy) {
+        int invokers = invokerThreads > 0 ? invokerThreads : Runtime.getRuntime().availableProcessors();
+        log.info("Local command bus enabled ({} invoker threads, {} publisher threads, buffer size {}, {} wait strategy)",
+                invokers, publisherThreads, bufferSize, waitStrategy);
+        return DisruptorCommandBus.builder()
+                .invokerThreadCount(invokers)
+                .publisherThreadCount(publisherThreads)
+                .bufferSize(bufferSize)
+                .waitStrategy(waitStrategy(waitStrategy))
+                .cache(accountAggregateCache)
+                .transactionManager(transactionManager)
+                .invokerInterceptors(List.of(new CorrelationDataInterceptor<>(configuration.correlationDataProviders())))
+                .messageMonitor(configuration.messageMonitor(DisruptorCommandBus.class, "commandBus"))
+                .build();
+    }
+
+    /**
+     * Repository de l'AccountAggregate lie au bus local (remplace le repository par defaut,
+     * nom de bean attendu par Axon : accountAggregateRepository)
+     */
+    @Bean
+    public Repository<AccountAggregate> accountAggregateRepository(
+            DisruptorCommandBus commandBus,
+            EventStore eventStore,
+            @Qualifier("accountSnapshotTriggerDefinition") SnapshotTriggerDefinition snapshotTriggerDefinition,
+            ParameterResolverFactory parameterResolverFactory,
+            HandlerDefinition handlerDefinition) {
+        return commandBus.createRepository(
+                eventStore,
+                new GenericAggregateFactory<>(AccountAggregate.class),
+                snapshotTriggerDefinition,
+                parameterResolverFactory,
+                handlerDefinition,
+                null);
+    }
+
+    private static WaitStrategy waitStrategy(String name) {
+        return switch (name) {
+            case "blocking" -> new BlockingWaitStrategy();
+            case "sleeping" -> new SleepingWaitStrategy();
+            case "yielding" -> new YieldingWaitStrategy();
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+}
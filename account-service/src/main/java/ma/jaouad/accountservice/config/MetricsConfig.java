@@ -0,0 +1,54 @@
+package ma.jaouad.accountservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.jaouad.accountservice.monitoring.CommandRejectionMonitor;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.config.Configurer;
+import org.axonframework.config.ConfigurerModule;
+import org.axonframework.messaging.Message;
+import org.axonframework.micrometer.GlobalMetricRegistry;
+import org.axonframework.monitoring.MessageMonitor;
+import org.axonframework.monitoring.MultiMessageMonitor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metriques des chemins critiques (exposees en Prometheus sur /actuator/prometheus)
+ *
+ * Fournies par axon-micrometer (axon.metrics.micrometer.dimensional=true, tag payloadType) :
+ * - commandBus.* : latence de traitement des commandes (successTimer, failureTimer) et compteurs
+ * - eventProcessor.* : latence des event handlers par type d'event, eventProcessor.latency = retard
+ *   en temps de la projection (age du dernier event traite)
+ * - queryBus.* : latence des requetes
+ * Ajoutees ici :
+ * - commands.rejected{command, exception} : rejets par type d'exception
+ * Deja en place : projection.segment.lag{processor, segment} = retard en nombre d'events (ProjectionProcessorService, core-api)
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Un seul moniteur par type de composant : celui d'axon-micrometer pour le bus de commandes
+     * est donc recree ici et combine au compteur de rejets (module applique apres celui d'Axon)
+     */
+    @Bean
+    public ConfigurerModule commandRejectionMonitorConfigurer(MeterRegistry meterRegistry,
+                                                              GlobalMetricRegistry globalMetricRegistry) {
+        CommandRejectionMonitor rejectionMonitor = new CommandRejectionMonitor(meterRegistry);
+        return new ConfigurerModule() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void configureModule(Configurer configurer) {
+                configurer.configureMessageMonitor(CommandBus.class, (configuration, componentType, componentName) ->
+                    new MultiMessageMonitor<>(
+                        (MessageMonitor<Message<?>>) globalMetricRegistry.registerComponentWithDefaultTags(componentType, componentName),
+                        rejectionMonitor));
+            }
+
+            @Override
+            public int order() {
+                return 1;
+            }
+        };
+    }
+}
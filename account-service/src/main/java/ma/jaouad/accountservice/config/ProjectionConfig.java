@@ -0,0 +1,117 @@
+package ma.jaouad.accountservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.queries.handlers.AccountEventHandler;
+import ma.jaouad.coreapi.eventstore.MappedFileEventSource;
+import ma.jaouad.coreapi.processing.ProjectionProcessorService;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
+import org.axonframework.eventhandling.async.SequentialPerAggregatePolicy;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration du processeur d'events de la projection des comptes
+ *
+ * Mode batch : le processeur lit N events par transaction (unit of work) au lieu d'un seul :
+ * - les operations du lot sont inserees en un seul batch JDBC
+ * - chaque compte touche recoit un seul UPDATE avec la variation nette de son solde
+ *
+ * Mode parallele : pooled streaming processor, le flux est reparti en segments
+ * traites en parallele. Les events d'un meme compte (identifiant d'agregat = accountId)
+ * tombent toujours dans le meme segment, l'ordre par compte est donc conserve.
+ * Les segments se divisent/fusionnent a chaud via /admin/processors.
+ * Source du processeur : event store, MappedFileEventSource en profil embedded si embedded.eventstore.type-filtering=true.
+ *
+ * - account.projection.batch.enabled : active/desactive le mode batch
+ * - account.projection.batch.size : nombre d'events par transaction
+ * - account.projection.parallel.enabled : active/desactive le mode parallele
+ * - account.projection.parallel.segments : nombre initial de segments (premier demarrage uniquement)
+ * - account.projection.parallel.threads : nombre de workers
+ * - account.projection.parallel.virtual-threads : workers en threads virtuels
+ * - projection.lag-metrics.refresh-ms : periode de rafraichissement de la gauge projection.segment.lag
+ */
+@Configuration
+@EnableScheduling
+@Slf4j
+public class ProjectionConfig {
+
+    @Autowired
+    public void configureAccountProjection(
+            EventProcessingConfigurer configurer,
+            ObjectProvider<MappedFileEventSource> eventSource,
+            @Value("${account.projection.batch.enabled:false}") boolean batchEnabled,
+            @Value("${account.projection.batch.size:100}") int batchSize,
+            @Value("${account.projection.parallel.enabled:false}") boolean parallelEnabled,
+            @Value("${account.projection.parallel.segments:4}") int segments,
+            @Value("${account.projection.parallel.threads:4}") int threads,
+            @Value("${account.projection.parallel.virtual-threads:true}") boolean virtualThreads) {
+        String processorName = AccountEventHandler.PROCESSING_GROUP;
+        int eventsPerTransaction = batchEnabled ? batchSize : 1;
+        if (batchEnabled) {
+            log.info("Account projection batching enabled (batch size: {})", batchSize);
+        }
+
+        if (!parallelEnabled) {
+            if (batchEnabled) {
+                configurer.registerTrackingEventProcessorConfiguration(
+                    processorName,
+                    configuration -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andBatchSize(eventsPerTransaction));
+            }
+            return;
+        }
+
+        log.info("Account projection parallel processing enabled ({} initial segments, {} {} workers)",
+                segments, threads, virtualThreads ? "virtual" : "platform");
+        configurer.registerSequencingPolicy(processorName, configuration -> SequentialPerAggregatePolicy.instance());
+        configurer.registerPooledStreamingEventProcessor(
+            processorName,
+            configuration -> {
+                MappedFileEventSource source = eventSource.getIfAvailable();
+                return source != null ? source : configuration.eventStore();
+            },
+            (configuration, builder) -> {
+                ScheduledExecutorService coordinator = Executors.newSingleThreadScheduledExecutor(
+                    threadFactory(processorName + "-coordinator-", virtualThreads));
+                ScheduledExecutorService workers = Executors.newScheduledThreadPool(
+                    threads, threadFactory(processorName + "-worker-", virtualThreads));
+                configuration.onShutdown(() -> {
+                    workers.shutdown();
+                    coordinator.shutdown();
+                });
+                return builder.initialSegmentCount(segments)
+                    .batchSize(eventsPerTransaction)
+                    .coordinatorExecutor(coordinator)
+                    .workerExecutor(workers);
+            });
+    }
+
+    @Bean
+    public ProjectionProcessorService projectionProcessorService(
+            EventProcessingConfiguration processingConfiguration,
+            EventStore eventStore,
+            MeterRegistry meterRegistry,
+            @Value("${projection.lag-metrics.refresh-ms:5000}") long lagRefreshMs) {
+        return new ProjectionProcessorService(processingConfiguration, eventStore, meterRegistry,
+                Duration.ofMillis(lagRefreshMs));
+    }
+
+    private static ThreadFactory threadFactory(String prefix, boolean virtualThreads) {
+        return virtualThreads
+            ? Thread.ofVirtual().name(prefix, 0).factory()
+            : Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+    }
+}
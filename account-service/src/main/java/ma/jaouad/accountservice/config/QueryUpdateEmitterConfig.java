@@ -0,0 +1,35 @@
+package ma.jaouad.accountservice.config;
+
+import ma.jaouad.accountservice.queries.subscriptions.AccountQueryUpdateEmitter;
+import org.axonframework.monitoring.MessageMonitor;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.QueryUpdateEmitterSpanFactory;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryUpdateMessage;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Emetteur des mises a jour des subscription queries
+ *
+ * Remplace le SimpleQueryUpdateEmitter auto-configure (bean primaire : Axon l'utilise pour le bus de
+ * requetes local et pour les subscriptions recues d'Axon Server) par AccountQueryUpdateEmitter,
+ * qui indexe les subscriptions GetAccountByIdQuery par compte. Le SimpleQueryUpdateEmitter delegue
+ * est construit comme celui d'Axon (AxonAutoConfiguration) et sert les autres requetes.
+ */
+@Configuration
+public class QueryUpdateEmitterConfig {
+
+    @Bean
+    @Primary
+    public AccountQueryUpdateEmitter accountQueryUpdateEmitter(org.axonframework.config.Configuration configuration) {
+        MessageMonitor<? super SubscriptionQueryUpdateMessage<?>> updateMessageMonitor =
+                configuration.messageMonitor(QueryUpdateEmitter.class, "queryUpdateEmitter");
+        SimpleQueryUpdateEmitter delegate = SimpleQueryUpdateEmitter.builder()
+                .updateMessageMonitor(updateMessageMonitor)
+                .spanFactory(configuration.getComponent(QueryUpdateEmitterSpanFactory.class))
+                .build();
+        return new AccountQueryUpdateEmitter(delegate, updateMessageMonitor);
+    }
+}
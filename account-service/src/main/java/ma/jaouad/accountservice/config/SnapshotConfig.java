@@ -0,0 +1,110 @@
+package ma.jaouad.accountservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.commands.aggregates.AccountAggregate;
+import ma.jaouad.accountservice.commands.snapshots.AccountSnapshotTriggerDefinition;
+import org.axonframework.axonserver.connector.AxonServerConfiguration;
+import org.axonframework.axonserver.connector.AxonServerConnectionManager;
+import org.axonframework.axonserver.connector.event.axon.AxonServerEventStore;
+import org.axonframework.eventhandling.EventBusSpanFactory;
+import org.axonframework.eventsourcing.NoSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.eventsourcing.snapshotting.RevisionSnapshotFilter;
+import org.axonframework.eventsourcing.snapshotting.SnapshotFilter;
+import org.axonframework.serialization.Revision;
+import org.axonframework.serialization.RevisionResolver;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration du snapshotting de l'AccountAggregate
+ *
+ * Sans snapshot, chaque commande rejoue tout le flux d'evenements du compte.
+ * Avec snapshot, seul le dernier snapshot et les evenements suivants sont relus,
+ * le temps de chargement reste donc constant quelle que soit la taille du flux.
+ *
+ * - account.snapshot.enabled : active/desactive le snapshotting
+ * - account.snapshot.event-threshold : snapshot tous les N evenements (0 = desactive)
+ * - account.snapshot.load-time-threshold-ms : snapshot si le chargement depasse N ms (0 = desactive)
+ * - account.snapshot.serializer : serializer des snapshots (jackson ou general)
+ *
+ * Invalidation : les snapshots portent la revision de l'agregat (@Revision).
+ * Incrementer cette revision lors d'un changement de structure de l'agregat
+ * suffit a ignorer les anciens snapshots (rejeu complet puis nouveau snapshot).
+ */
+@Configuration
+@Slf4j
+public class SnapshotConfig {
+
+    @Bean
+    public SnapshotTriggerDefinition accountSnapshotTriggerDefinition(
+            Snapshotter snapshotter,
+            @Value("${account.snapshot.enabled:true}") boolean enabled,
+            @Value("${account.snapshot.event-threshold:500}") int eventThreshold,
+            @Value("${account.snapshot.load-time-threshold-ms:0}") long loadTimeThresholdMillis) {
+        if (!enabled) {
+            log.info("Account snapshotting disabled");
+            return NoSnapshotTriggerDefinition.INSTANCE;
+        }
+        log.info("Account snapshotting enabled (event threshold: {}, load time threshold: {} ms)",
+                eventThreshold, loadTimeThresholdMillis);
+        return new AccountSnapshotTriggerDefinition(snapshotter, eventThreshold, loadTimeThresholdMillis);
+    }
+
+    /**
+     * Ignore les snapshots dont la revision ne correspond pas a la revision courante de l'agregat
+     */
+    @Bean
+    public SnapshotFilter accountSnapshotFilter() {
+        return RevisionSnapshotFilter.builder()
+                .type(AccountAggregate.class)
+                .revision(AccountAggregate.class.getAnnotation(Revision.class).value())
+                .build();
+    }
+
+    /**
+     * Event Store Axon Server avec un serializer dedie aux snapshots
+     *
+     * Reprend la configuration par defaut d'Axon (AxonServerBusAutoConfiguration)
+     * en remplacant uniquement le serializer des snapshots par Jackson :
+     * l'etat de l'agregat tient en quelques champs, le JSON est bien plus compact que le XML XStream.
+     *
+     * Le serializer n'est volontairement pas expose comme bean : un bean Serializer
+     * supplementaire desactiverait le serializer general auto-configure par Axon.
+     */
+    @Bean
+    @ConditionalOnExpression("'${account.snapshot.serializer:jackson}' == 'jackson' and ${axon.axonserver.enabled:true}")
+    public EventStore eventStore(AxonServerConfiguration axonServerConfiguration,
+                                 org.axonframework.config.Configuration configuration,
+                                 AxonServerConnectionManager axonServerConnectionManager,
+                                 RevisionResolver revisionResolver,
+                                 @Qualifier("eventSerializer") Serializer eventSerializer) {
+        return AxonServerEventStore.builder()
+                .messageMonitor(configuration.messageMonitor(AxonServerEventStore.class, "eventStore"))
+                .configuration(axonServerConfiguration)
+                .platformConnectionManager(axonServerConnectionManager)
+                .snapshotSerializer(jacksonSnapshotSerializer(revisionResolver))
+                .eventSerializer(eventSerializer)
+                .snapshotFilter(configuration.snapshotFilter())
+                .upcasterChain(configuration.upcasterChain())
+                .spanFactory(configuration.getComponent(EventBusSpanFactory.class))
+                .build();
+    }
+
+    /**
+     * Serializer JSON des snapshots, partage avec l'event store embarque
+     */
+    static Serializer jacksonSnapshotSerializer(RevisionResolver revisionResolver) {
+        return JacksonSerializer.builder()
+                .revisionResolver(revisionResolver)
+                .lenientDeserialization()
+                .build();
+    }
+}
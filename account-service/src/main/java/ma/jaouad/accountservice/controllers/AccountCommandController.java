@@ -5,7 +5,10 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import ma.jaouad.accountservice.commands.bulk.BulkPostingService;
 import ma.jaouad.coreapi.commands.CreateAccountCommand;
 import ma.jaouad.coreapi.commands.CreditAccountCommand;
 import ma.jaouad.coreapi.commands.DebitAccountCommand;
@@ -15,7 +18,9 @@ import ma.jaouad.coreapi.dtos.CreditAccountRequestDTO;
 import ma.jaouad.coreapi.dtos.DebitAccountRequestDTO;
 import ma.jaouad.coreapi.enums.AccountStatus;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -26,6 +31,7 @@ import java.util.concurrent.CompletableFuture;
 public class AccountCommandController {
     
     private final CommandGateway commandGateway;
+    private final BulkPostingService bulkPostingService;
 
     @PostMapping("/create")
     @Operation(
@@ -80,6 +86,25 @@ public class AccountCommandController {
         ));
     }
 
+    @PostMapping(value = "/bulk",
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Créditer / débiter en masse",
+        description = "Lit en flux un tableau JSON (ou du NDJSON) d'écritures {type: CREDIT|DEBIT, accountId, amount, currency} "
+            + "et retourne en flux NDJSON un résultat par écriture {index, accountId, status: OK|ERROR, error}, "
+            + "dans l'ordre de traitement. Les commandes sont envoyées avec une concurrence bornée "
+            + "(account.bulk.max-in-flight), dans l'ordre du flux pour un même compte. "
+            + "Le client doit lire la réponse pendant l'envoi du corps."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux des résultats par écriture")
+    })
+    public void bulkPostings(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        bulkPostingService.ingest(request.getInputStream(), response.getOutputStream());
+    }
+
     @PutMapping("/{accountId}/status")
     @Operation(
         summary = "Changer le statut d'un compte",
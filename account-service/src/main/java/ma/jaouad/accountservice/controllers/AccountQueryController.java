@@ -9,13 +9,20 @@ import ma.jaouad.accountservice.queries.dto.AccountDTO;
 import ma.jaouad.accountservice.queries.dto.AccountListResponse;
 import ma.jaouad.accountservice.queries.dto.OperationDTO;
 import ma.jaouad.accountservice.queries.dto.OperationListResponse;
+import ma.jaouad.accountservice.queries.subscriptions.AccountSubscriptions;
 import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
 import ma.jaouad.coreapi.queries.GetAccountOperationsQuery;
 import ma.jaouad.coreapi.queries.GetAllAccountsQuery;
+import ma.jaouad.coreapi.queries.StreamAccountOperationsQuery;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -25,21 +32,28 @@ import java.util.concurrent.CompletableFuture;
 @Tag(name = "Account Queries", description = "API pour les requêtes de consultation des comptes (CQRS Read Side)")
 public class AccountQueryController {
     
+    static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
     private final QueryGateway queryGateway;
+    private final AccountSubscriptions accountSubscriptions;
 
     @GetMapping
     @io.swagger.v3.oas.annotations.Operation(
-        summary = "Lister tous les comptes",
-        description = "Récupère la liste de tous les comptes bancaires avec leurs informations"
+        summary = "Lister les comptes",
+        description = "Récupère une page de comptes triés par identifiant. S'il reste des comptes, l'en-tête "
+            + CONTINUATION_TOKEN_HEADER + " contient le jeton à passer en paramètre continuationToken pour la page suivante"
     )
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Liste des comptes récupérée avec succès")
+        @ApiResponse(responseCode = "200", description = "Liste des comptes récupérée avec succès"),
+        @ApiResponse(responseCode = "400", description = "Jeton de continuation invalide")
     })
-    public CompletableFuture<List<AccountDTO>> getAllAccounts() {
+    public CompletableFuture<ResponseEntity<List<AccountDTO>>> getAllAccounts(
+            @Parameter(description = "Taille de page (défaut et maximum fixés par le service)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Jeton de continuation de la page précédente") @RequestParam(required = false) String continuationToken) {
         return queryGateway.query(
-            new GetAllAccountsQuery(),
+            new GetAllAccountsQuery(limit != null ? limit : 0, continuationToken),
             ResponseTypes.instanceOf(AccountListResponse.class)
-        ).thenApply(AccountListResponse::getAccounts);
+        ).thenApply(response -> page(response.getAccounts(), response.getContinuationToken()));
     }
 
     @GetMapping("/{accountId}")
@@ -62,17 +76,67 @@ public class AccountQueryController {
     @GetMapping("/{accountId}/operations")
     @io.swagger.v3.oas.annotations.Operation(
         summary = "Consulter l'historique des opérations",
-        description = "Récupère toutes les opérations (crédits et débits) effectuées sur un compte"
+        description = "Récupère une page d'opérations (crédits et débits) d'un compte, par ordre chronologique, "
+            + "éventuellement filtrées par date. S'il reste des opérations, l'en-tête "
+            + CONTINUATION_TOKEN_HEADER + " contient le jeton à passer en paramètre continuationToken pour la page suivante"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Historique des opérations récupéré"),
+        @ApiResponse(responseCode = "400", description = "Jeton de continuation invalide"),
         @ApiResponse(responseCode = "404", description = "Compte non trouvé")
     })
-    public CompletableFuture<List<OperationDTO>> getAccountOperations(
-            @Parameter(description = "ID du compte") @PathVariable String accountId) {
+    public CompletableFuture<ResponseEntity<List<OperationDTO>>> getAccountOperations(
+            @Parameter(description = "ID du compte") @PathVariable String accountId,
+            @Parameter(description = "Taille de page (défaut et maximum fixés par le service)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Jeton de continuation de la page précédente") @RequestParam(required = false) String continuationToken,
+            @Parameter(description = "Date minimale incluse (ISO-8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date maximale exclue (ISO-8601)") @RequestParam(required = false) Instant to) {
         return queryGateway.query(
-            new GetAccountOperationsQuery(accountId),
+            new GetAccountOperationsQuery(accountId, limit != null ? limit : 0, continuationToken, from, to),
             ResponseTypes.instanceOf(OperationListResponse.class)
-        ).thenApply(OperationListResponse::getOperations);
+        ).thenApply(response -> page(response.getOperations(), response.getContinuationToken()));
+    }
+
+    @GetMapping(value = "/{accountId}/operations/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @io.swagger.v3.oas.annotations.Operation(
+        summary = "Exporter l'historique des opérations",
+        description = "Envoie toutes les opérations d'un compte, une par ligne (NDJSON), par ordre chronologique, "
+            + "au fil de leur lecture en base et au rythme du client"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux des opérations"),
+        @ApiResponse(responseCode = "404", description = "Compte non trouvé")
+    })
+    public Flux<OperationDTO> streamAccountOperations(
+            @Parameter(description = "ID du compte") @PathVariable String accountId,
+            @Parameter(description = "Date minimale incluse (ISO-8601)") @RequestParam(required = false) Instant from,
+            @Parameter(description = "Date maximale exclue (ISO-8601)") @RequestParam(required = false) Instant to) {
+        return Flux.from(queryGateway.streamingQuery(
+            new StreamAccountOperationsQuery(accountId, from, to),
+            OperationDTO.class
+        ));
+    }
+
+    @GetMapping(value = "/{accountId}/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @io.swagger.v3.oas.annotations.Operation(
+        summary = "Suivre un compte en temps réel",
+        description = "Server-Sent Events : l'état actuel du compte puis chaque nouvel état (solde, statut) "
+            + "dès sa mise à jour par la projection. Remplace le polling de GET /queries/accounts/{accountId}"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flux des états du compte"),
+        @ApiResponse(responseCode = "404", description = "Compte non trouvé")
+    })
+    public Flux<ServerSentEvent<AccountDTO>> subscribeToAccount(
+            @Parameter(description = "ID du compte") @PathVariable String accountId) {
+        return accountSubscriptions.accountUpdates(accountId);
+    }
+
+    private static <T> ResponseEntity<List<T>> page(List<T> items, String continuationToken) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (continuationToken != null) {
+            response.header(CONTINUATION_TOKEN_HEADER, continuationToken);
+        }
+        return response.body(items);
     }
 }
@@ -0,0 +1,67 @@
+package ma.jaouad.accountservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import ma.jaouad.accountservice.processing.EventStoreRecompressionService;
+import ma.jaouad.accountservice.processing.RecompressionStatus;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/eventstore")
+@Profile("embedded")
+@AllArgsConstructor
+@Tag(name = "Event Store", description = "API d'administration de l'event store embarqué (compression des segments)")
+public class EventStoreAdminController {
+
+    private final EventStoreRecompressionService recompressionService;
+
+    @GetMapping("/storage")
+    @Operation(
+        summary = "Occupation de l'event store",
+        description = "Retourne le nombre d'événements (compressés ou non), les octets stockés, les octets sans compression " +
+                      "et leur rapport, ainsi que la taille des fichiers de segments"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Occupation récupérée avec succès")
+    })
+    public MappedFileEventStorageEngine.StorageReport getStorage() {
+        return recompressionService.getStorageReport();
+    }
+
+    @PostMapping("/recompress")
+    @Operation(
+        summary = "Recompresser les segments",
+        description = "Réécrit en arrière-plan les segments scellés dont les événements ne sont pas compressés " +
+                      "avec le dictionnaire courant (entraîné au premier passage)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Recompression lancée"),
+        @ApiResponse(responseCode = "409", description = "Une recompression est déjà en cours")
+    })
+    public ResponseEntity<RecompressionStatus> recompress() {
+        boolean started = recompressionService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+            .body(recompressionService.getStatus());
+    }
+
+    @GetMapping("/recompress")
+    @Operation(
+        summary = "Bilan de la recompression",
+        description = "Retourne la phase et le bilan du dernier passage : segments et événements réécrits, octets avant et après"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Bilan récupéré avec succès"),
+        @ApiResponse(responseCode = "404", description = "Aucune recompression lancée")
+    })
+    public ResponseEntity<RecompressionStatus> getRecompressionStatus() {
+        RecompressionStatus status = recompressionService.getStatus();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+}
@@ -0,0 +1,57 @@
+package ma.jaouad.accountservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import ma.jaouad.accountservice.processing.ProjectionRebuildService;
+import ma.jaouad.accountservice.processing.RebuildStatus;
+import ma.jaouad.coreapi.controllers.AbstractProcessorAdminController;
+import ma.jaouad.coreapi.processing.ProjectionProcessorService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/processors")
+@Tag(name = "Event Processors", description = "API d'administration des processeurs d'events (segments, retard)")
+public class ProcessorAdminController extends AbstractProcessorAdminController {
+
+    private final ProjectionRebuildService projectionRebuildService;
+
+    public ProcessorAdminController(ProjectionProcessorService projectionProcessorService,
+                                    ProjectionRebuildService projectionRebuildService) {
+        super(projectionProcessorService);
+        this.projectionRebuildService = projectionRebuildService;
+    }
+
+    @PostMapping("/rebuild")
+    @Operation(
+        summary = "Reconstruire la projection",
+        description = "Reconstruit la projection des comptes en arrière-plan : lecture complète de l'event store, " +
+                      "chargement en masse des tables puis reprise du traitement en temps réel"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Reconstruction lancée"),
+        @ApiResponse(responseCode = "409", description = "Une reconstruction est déjà en cours")
+    })
+    public ResponseEntity<RebuildStatus> rebuild() {
+        boolean started = projectionRebuildService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+            .body(projectionRebuildService.getStatus());
+    }
+
+    @GetMapping("/rebuild")
+    @Operation(
+        summary = "Avancement de la reconstruction",
+        description = "Retourne la phase et l'avancement de la dernière reconstruction de la projection"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Avancement récupéré avec succès"),
+        @ApiResponse(responseCode = "404", description = "Aucune reconstruction lancée")
+    })
+    public ResponseEntity<RebuildStatus> getRebuildStatus() {
+        RebuildStatus status = projectionRebuildService.getStatus();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+}
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import ma.jaouad.coreapi.exceptions.AccountNotFoundException;
 import ma.jaouad.coreapi.exceptions.InsufficientBalanceException;
 import ma.jaouad.coreapi.exceptions.InvalidAccountStatusException;
+import ma.jaouad.coreapi.exceptions.InvalidContinuationTokenException;
 import ma.jaouad.coreapi.exceptions.NegativeBalanceException;
 import org.axonframework.commandhandling.CommandExecutionException;
 import org.axonframework.queryhandling.QueryExecutionException;
@@ -126,6 +127,12 @@ public class GlobalExceptionHandler {
             return handleAccountNotFoundException(accountNotFoundException, request);
         }
         
+        InvalidContinuationTokenException invalidContinuationTokenException =
+            findExceptionInChain(ex, InvalidContinuationTokenException.class);
+        if (invalidContinuationTokenException != null) {
+            return handleIllegalArgumentException(invalidContinuationTokenException, request);
+        }
+        
         // Fallback: verifier le message d'erreur pour AccountNotFoundException
         // (cas ou Axon Server serialise l'exception et perd le type original)
         Throwable rootCause = getRootCause(ex);
@@ -143,6 +150,17 @@ public class GlobalExceptionHandler {
             return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
         }
         
+        if (message != null && message.contains("Invalid continuation token")) {
+            ErrorResponse error = new ErrorResponse(
+                    getCurrentTimestamp(),
+                    HttpStatus.BAD_REQUEST.value(),
+                    "Bad Request",
+                    message.split("\nCaused by")[0],
+                    request.getDescription(false).replace("uri=", "")
+            );
+            return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        }
+        
         // Sinon retourner une erreur 500
         log.warn("No specific handler found for exception chain. Root cause type: {}", rootCause.getClass().getName());
         
@@ -0,0 +1,53 @@
+package ma.jaouad.accountservice.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.messaging.Message;
+import org.axonframework.monitoring.MessageMonitor;
+
+/**
+ * Compte les commandes rejetees par type de commande et type d'exception
+ *
+ * Complete les compteurs Axon (commandBus.failureCounter) qui ne distinguent pas la cause :
+ * commands.rejected{command="DebitAccountCommand", exception="InsufficientBalanceException"}
+ */
+public class CommandRejectionMonitor implements MessageMonitor<Message<?>> {
+
+    private final MeterRegistry meterRegistry;
+
+    public CommandRejectionMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public MonitorCallback onMessageIngested(Message<?> message) {
+        String command = message.getPayloadType().getSimpleName();
+        return new MonitorCallback() {
+            @Override
+            public void reportSuccess() {
+            }
+
+            @Override
+            public void reportFailure(Throwable cause) {
+                Counter.builder("commands.rejected")
+                    .description("Commands rejected by their handler, by exception type")
+                    .tag("command", command)
+                    .tag("exception", rootCause(cause).getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            }
+
+            @Override
+            public void reportIgnored() {
+            }
+        };
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,116 @@
+package ma.jaouad.accountservice.processing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine.RecompressionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recompression en arriere-plan des segments scelles de l'event store embarque
+ *
+ * Les nouveaux events sont compresses a l'ecriture ; ce job reecrit les segments existants :
+ * events ecrits avant l'activation de la compression, puis events compresses avant l'entrainement
+ * du dictionnaire (premier passage). Un passage ne reecrit que les segments qui en ont besoin,
+ * les suivants ne traitent donc que les segments scelles depuis. Un passage a la fois,
+ * periodique (si la compression est activee) ou a la demande via /admin/eventstore/recompress.
+ *
+ * - embedded.eventstore.compression.enabled : compression a l'ecriture et passages periodiques
+ * - embedded.eventstore.compression.recompress-interval-ms : intervalle entre deux passages
+ */
+@Service
+@Profile("embedded")
+@Slf4j
+public class EventStoreRecompressionService {
+
+    private final MappedFileEventStorageEngine storageEngine;
+    private final boolean compression;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("eventstore-recompression").daemon(true).factory());
+
+    private volatile RecompressionStatus status;
+
+    public EventStoreRecompressionService(MappedFileEventStorageEngine storageEngine,
+                                          @Value("${embedded.eventstore.compression.enabled:true}") boolean compression) {
+        this.storageEngine = storageEngine;
+        this.compression = compression;
+    }
+
+    /**
+     * Lance un passage de recompression en arriere-plan
+     *
+     * @return false si un passage est deja en cours
+     */
+    public synchronized boolean start() {
+        if (status != null && status.isRunning()) {
+            return false;
+        }
+        status = RecompressionStatus.builder()
+            .phase(RecompressionStatus.Phase.RUNNING)
+            .startedAt(Instant.now())
+            .build();
+        executor.execute(this::recompress);
+        return true;
+    }
+
+    /**
+     * @return l'avancement du dernier passage, null si aucun n'a ete lance
+     */
+    public RecompressionStatus getStatus() {
+        return status;
+    }
+
+    public MappedFileEventStorageEngine.StorageReport getStorageReport() {
+        return storageEngine.storageReport();
+    }
+
+    @Scheduled(fixedDelayString = "${embedded.eventstore.compression.recompress-interval-ms:3600000}",
+               initialDelayString = "${embedded.eventstore.compression.recompress-interval-ms:3600000}")
+    public void scheduledRecompression() {
+        if (compression) {
+            start();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void recompress() {
+        try {
+            RecompressionResult result = storageEngine.recompress();
+            status = status.toBuilder()
+                .phase(RecompressionStatus.Phase.COMPLETED)
+                .finishedAt(Instant.now())
+                .dictionaryId(result.dictionaryId())
+                .segments(result.segments())
+                .records(result.records())
+                .recordBytesBefore(result.recordBytesBefore())
+                .recordBytesAfter(result.recordBytesAfter())
+                .fileBytesBefore(result.fileBytesBefore())
+                .fileBytesAfter(result.fileBytesAfter())
+                .build();
+            if (result.segments() > 0) {
+                log.info("Event store recompressed: {} segments, {} records, {} -> {} bytes (ratio {}) in {} ms",
+                        result.segments(), result.records(), result.fileBytesBefore(), result.fileBytesAfter(),
+                        String.format("%.2f", status.getCompressionRatio()),
+                        status.getFinishedAt().toEpochMilli() - status.getStartedAt().toEpochMilli());
+            }
+        } catch (Exception e) {
+            log.error("Event store recompression failed", e);
+            status = status.toBuilder()
+                .phase(RecompressionStatus.Phase.FAILED)
+                .finishedAt(Instant.now())
+                .error(String.valueOf(e))
+                .build();
+        }
+    }
+}
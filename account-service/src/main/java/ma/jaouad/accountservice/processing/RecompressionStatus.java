@@ -0,0 +1,43 @@
+package ma.jaouad.accountservice.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Avancement et bilan d'une recompression de l'event store embarque
+ *
+ * recordBytesBefore / recordBytesAfter : taille des enregistrements des segments reecrits
+ * fileBytesBefore / fileBytesAfter : taille des fichiers de ces segments
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecompressionStatus {
+
+    public enum Phase { RUNNING, COMPLETED, FAILED }
+
+    private Phase phase;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long dictionaryId;
+    private int segments;
+    private long records;
+    private long recordBytesBefore;
+    private long recordBytesAfter;
+    private long fileBytesBefore;
+    private long fileBytesAfter;
+    private String error;
+
+    public boolean isRunning() {
+        return phase == Phase.RUNNING;
+    }
+
+    public double getCompressionRatio() {
+        return recordBytesAfter == 0 ? 1 : (double) recordBytesBefore / recordBytesAfter;
+    }
+}
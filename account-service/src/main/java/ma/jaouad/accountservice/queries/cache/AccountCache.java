@@ -0,0 +1,119 @@
+package ma.jaouad.accountservice.queries.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache en memoire des AccountDTO servis par GetAccountByIdQuery
+ *
+ * Borne en taille (LRU approche) et en duree de vie. Les event handlers de la projection
+ * mettent a jour ou invalident les entrees apres le commit de leur transaction :
+ * une lecture ne peut donc pas etre en retard sur la projection. Le chargement est atomique
+ * par compte, une invalidation attend la fin d'un chargement en cours sur le meme compte.
+ *
+ * - account.cache.enabled : active/desactive le cache (sinon lecture directe en base)
+ * - account.cache.maximum-size : nombre maximal de comptes en cache
+ * - account.cache.ttl-seconds : duree de vie d'une entree apres ecriture
+ *
+ * Metriques : cache.gets{result=hit|miss}, cache.evictions, cache.size (cache=account-dto)
+ */
+@Component
+@Slf4j
+public class AccountCache {
+
+    private static final String WRITES_RESOURCE = AccountCache.class.getName() + ".writes";
+
+    private final Cache<String, AccountDTO> cache;
+
+    public AccountCache(@Value("${account.cache.enabled:false}") boolean enabled,
+                        @Value("${account.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${account.cache.ttl-seconds:300}") long ttlSeconds,
+                        MeterRegistry meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        log.info("Account cache enabled (maximum size: {}, ttl: {} s)", maximumSize, ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "account-dto");
+    }
+
+    /**
+     * Retourne le compte en cache, ou le charge (les exceptions du chargement ne sont pas mises en cache)
+     */
+    public AccountDTO get(String accountId, Function<String, AccountDTO> loader) {
+        return cache == null ? loader.apply(accountId) : cache.get(accountId, loader);
+    }
+
+    /**
+     * Met a jour l'entree apres le commit de la transaction courante
+     */
+    public void put(AccountDTO account) {
+        if (cache != null) {
+            afterCommit(account.getId(), account);
+        }
+    }
+
+    /**
+     * Invalide l'entree apres le commit de la transaction courante
+     */
+    public void evict(String accountId) {
+        if (cache != null) {
+            afterCommit(accountId, null);
+        }
+    }
+
+    /**
+     * Vide le cache (projection reconstruite)
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Seule la derniere ecriture de chaque compte est appliquee au commit : Axon execute les handlers
+     * afterCommit dans l'ordre inverse de leur enregistrement, plusieurs events d'un meme compte
+     * dans une transaction (rejeu d'une sequence de lettres mortes) laisseraient sinon l'etat le plus ancien
+     */
+    private void afterCommit(String accountId, AccountDTO account) {
+        if (!CurrentUnitOfWork.isStarted()) {
+            apply(accountId, account);
+            return;
+        }
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        Map<String, Optional<AccountDTO>> writes = unitOfWork.getOrComputeResource(WRITES_RESOURCE, key -> {
+            Map<String, Optional<AccountDTO>> pending = new LinkedHashMap<>();
+            unitOfWork.afterCommit(uow -> pending.forEach((id, value) -> apply(id, value.orElse(null))));
+            return pending;
+        });
+        writes.put(accountId, Optional.ofNullable(account));
+    }
+
+    private void apply(String accountId, AccountDTO account) {
+        if (account == null) {
+            cache.invalidate(accountId);
+        } else {
+            cache.put(accountId, account);
+        }
+    }
+}
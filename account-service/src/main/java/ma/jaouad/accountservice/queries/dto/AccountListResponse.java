@@ -21,4 +21,9 @@ import java.util.List;
 @AllArgsConstructor
 public class AccountListResponse implements Serializable {
     private List<AccountDTO> accounts;
+
+    /**
+     * Jeton a transmettre pour obtenir la page suivante (null si derniere page)
+     */
+    private String continuationToken;
 }
@@ -21,4 +21,9 @@ import java.util.List;
 @AllArgsConstructor
 public class OperationListResponse implements Serializable {
     private List<OperationDTO> operations;
+
+    /**
+     * Jeton a transmettre pour obtenir la page suivante (null si derniere page)
+     */
+    private String continuationToken;
 }
@@ -21,6 +21,13 @@ public class Account {
     @Enumerated(EnumType.STRING)
     private AccountStatus status;
     private String currency;
+
+    /**
+     * Numero de sequence (dans le flux du compte) du dernier event applique :
+     * les events de sequence inferieure ou egale sont ignores (redelivery, rejeu).
+     * Null pour un compte projete avant l'ajout de ce suivi.
+     */
+    private Long lastEventSequence;
     
     /**
      * Collection des opérations liées au compte
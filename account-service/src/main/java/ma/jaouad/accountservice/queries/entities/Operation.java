@@ -7,6 +7,7 @@ import ma.jaouad.coreapi.enums.OperationType;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_operation_account_date_id", columnList = "account_id, date, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -2,14 +2,19 @@ package ma.jaouad.accountservice.queries.handlers;
 
 import lombok.extern.slf4j.Slf4j;
 import ma.jaouad.accountservice.exceptions.ErrorResponse;
+import ma.jaouad.accountservice.queries.cache.AccountCache;
 import ma.jaouad.accountservice.queries.dto.AccountDTO;
 import ma.jaouad.accountservice.queries.dto.AccountListResponse;
 import ma.jaouad.accountservice.queries.dto.OperationDTO;
 import ma.jaouad.accountservice.queries.dto.OperationListResponse;
 import ma.jaouad.accountservice.queries.entities.Account;
 import ma.jaouad.accountservice.queries.entities.Operation;
+import ma.jaouad.accountservice.queries.pagination.ContinuationTokens;
+import ma.jaouad.accountservice.queries.pagination.ContinuationTokens.OperationCursor;
+import ma.jaouad.accountservice.queries.repositories.AccountProjectionJdbcRepository;
 import ma.jaouad.accountservice.queries.repositories.AccountRepository;
 import ma.jaouad.accountservice.queries.repositories.OperationRepository;
+import ma.jaouad.accountservice.queries.subscriptions.AccountQueryUpdateEmitter;
 import ma.jaouad.coreapi.enums.OperationType;
 import ma.jaouad.coreapi.events.AccountCreatedEvent;
 import ma.jaouad.coreapi.events.AccountCreditedEvent;
@@ -19,46 +24,109 @@ import ma.jaouad.coreapi.exceptions.AccountNotFoundException;
 import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
 import ma.jaouad.coreapi.queries.GetAccountOperationsQuery;
 import ma.jaouad.coreapi.queries.GetAllAccountsQuery;
+import ma.jaouad.coreapi.queries.StreamAccountOperationsQuery;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.DomainEventMessage;
 import org.axonframework.eventhandling.EventHandler;
 import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
 import org.axonframework.queryhandling.QueryExecutionException;
 import org.axonframework.queryhandling.QueryHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
+@ProcessingGroup(AccountEventHandler.PROCESSING_GROUP)
 public class AccountEventHandler {
-    
+
+    /**
+     * Nom du processeur d'events (nom du package, attribue par defaut par Axon) :
+     * le conserver evite de perdre les tokens deja enregistres et de rejouer la projection
+     */
+    public static final String PROCESSING_GROUP = "ma.jaouad.accountservice.queries.handlers";
+
+    private static final String BATCH_RESOURCE = AccountProjectionBatch.class.getName();
+
+    // Bornes par defaut du filtre de dates des operations
+    private static final Instant MIN_OPERATION_DATE = Instant.EPOCH;
+    private static final Instant MAX_OPERATION_DATE = Instant.parse("9999-12-31T23:59:59Z");
+
     private final AccountRepository accountRepository;
     private final OperationRepository operationRepository;
+    private final AccountProjectionJdbcRepository projectionJdbcRepository;
+    private final AccountCache accountCache;
+    private final AccountQueryUpdateEmitter queryUpdateEmitter;
+    private final boolean batchEnabled;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int streamChunkSize;
 
     public AccountEventHandler(AccountRepository accountRepository, 
-                              OperationRepository operationRepository) {
+                              OperationRepository operationRepository,
+                              AccountProjectionJdbcRepository projectionJdbcRepository,
+                              AccountCache accountCache,
+                              AccountQueryUpdateEmitter queryUpdateEmitter,
+                              @Value("${account.projection.batch.enabled:false}") boolean batchEnabled,
+                              @Value("${account.query.default-page-size:100}") int defaultPageSize,
+                              @Value("${account.query.max-page-size:1000}") int maxPageSize,
+                              @Value("${account.query.stream-chunk-size:500}") int streamChunkSize) {
         this.accountRepository = accountRepository;
         this.operationRepository = operationRepository;
+        this.projectionJdbcRepository = projectionJdbcRepository;
+        this.accountCache = accountCache;
+        this.queryUpdateEmitter = queryUpdateEmitter;
+        this.batchEnabled = batchEnabled;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.streamChunkSize = streamChunkSize;
     }
 
     @EventHandler
     public void on(AccountCreatedEvent event, EventMessage<?> eventMessage) {
         log.info("AccountCreatedEvent received");
+        if (accountRepository.findById(event.getAccountId()).isPresent()) {
+            log.debug("AccountCreatedEvent already applied to account {}", event.getAccountId());
+            return;
+        }
         Account account = Account.builder()
             .id(event.getAccountId())
             .balance(event.getInitialBalance())
             .currency(event.getCurrency())
             .status(event.getAccountStatus())
             .createdAt(eventMessage.getTimestamp())
+            .lastEventSequence(sequenceNumber(eventMessage))
             .build();
         accountRepository.save(account);
+        publish(convertToAccountDTO(account));
     }
 
     @EventHandler
     public void on(AccountCreditedEvent event, EventMessage<?> eventMessage) {
         log.info("AccountCreditedEvent received");
+        if (batchEnabled) {
+            batchFor(event.getAccountId()).add(event.getAccountId(), sequenceNumber(eventMessage),
+                OperationType.CREDIT, event.getAmount(), eventMessage.getTimestamp());
+            // Solde calcule en SQL au commit du lot : l'entree sera rechargee a la prochaine lecture
+            accountCache.evict(event.getAccountId());
+            return;
+        }
         Account account = accountRepository.findById(event.getAccountId())
             .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(account, eventMessage)) {
+            return;
+        }
         
         Operation operation = Operation.builder()
             .date(eventMessage.getTimestamp())
@@ -69,14 +137,26 @@ public class AccountEventHandler {
         operationRepository.save(operation);
         
         account.setBalance(account.getBalance() + event.getAmount());
+        account.setLastEventSequence(sequenceNumber(eventMessage));
         accountRepository.save(account);
+        publish(convertToAccountDTO(account));
     }
 
     @EventHandler
     public void on(AccountDebitedEvent event, EventMessage<?> eventMessage) {
         log.info("AccountDebitedEvent received");
+        if (batchEnabled) {
+            batchFor(event.getAccountId()).add(event.getAccountId(), sequenceNumber(eventMessage),
+                OperationType.DEBIT, event.getAmount(), eventMessage.getTimestamp());
+            // Solde calcule en SQL au commit du lot : l'entree sera rechargee a la prochaine lecture
+            accountCache.evict(event.getAccountId());
+            return;
+        }
         Account account = accountRepository.findById(event.getAccountId())
             .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(account, eventMessage)) {
+            return;
+        }
         
         Operation operation = Operation.builder()
             .date(eventMessage.getTimestamp())
@@ -87,27 +167,145 @@ public class AccountEventHandler {
         operationRepository.save(operation);
         
         account.setBalance(account.getBalance() - event.getAmount());
+        account.setLastEventSequence(sequenceNumber(eventMessage));
         accountRepository.save(account);
+        publish(convertToAccountDTO(account));
     }
 
     @EventHandler
     public void on(AccountStatusUpdatedEvent event, EventMessage<?> eventMessage) {
         log.info("AccountStatusUpdatedEvent received");
+        if (batchEnabled) {
+            // Statut ecrit avec le solde au commit du lot, dans l'ordre des events du compte
+            batchFor(event.getAccountId()).addStatus(event.getAccountId(), sequenceNumber(eventMessage), event.getToStatus());
+            accountCache.evict(event.getAccountId());
+            return;
+        }
         Account account = accountRepository.findById(event.getAccountId())
             .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(account, eventMessage)) {
+            return;
+        }
         
         account.setStatus(event.getToStatus());
+        account.setLastEventSequence(sequenceNumber(eventMessage));
         accountRepository.save(account);
+        publish(convertToAccountDTO(account));
+    }
+
+    /**
+     * Un event d'agregat deja applique (sequence inferieure ou egale a la derniere appliquee) est ignore :
+     * la projection supporte ainsi la redelivery et le rejeu (au moins une fois) sans double comptage
+     */
+    static boolean alreadyApplied(Long lastEventSequence, Long sequenceNumber) {
+        return lastEventSequence != null && sequenceNumber != null && sequenceNumber <= lastEventSequence;
+    }
+
+    private static boolean skip(Account account, EventMessage<?> eventMessage) {
+        Long sequenceNumber = sequenceNumber(eventMessage);
+        if (!alreadyApplied(account.getLastEventSequence(), sequenceNumber)) {
+            return false;
+        }
+        log.debug("Event {} (sequence {}) already applied to account {} (last sequence {})",
+                eventMessage.getPayloadType().getSimpleName(), sequenceNumber, account.getId(),
+                account.getLastEventSequence());
+        return true;
+    }
+
+    private static Long sequenceNumber(EventMessage<?> eventMessage) {
+        return eventMessage instanceof DomainEventMessage<?> domainEvent ? domainEvent.getSequenceNumber() : null;
+    }
+
+    /**
+     * Nouvel etat d'un compte : mise a jour du cache et des abonnes (subscription queries).
+     * Les deux sont differes apres le commit de la transaction.
+     */
+    private void publish(AccountDTO account) {
+        accountCache.put(account);
+        emitUpdate(account);
+    }
+
+    private void emitUpdate(AccountDTO account) {
+        queryUpdateEmitter.emitAccount(account.getId(), account);
+    }
+
+    /**
+     * Lot de la transaction courante, apres verification de l'existence du compte a sa premiere entree
+     * dans le lot : un compte absent echoue ici, dans le handler, et seule sa sequence part en lettre morte.
+     * Detecte a l'ecriture du lot, il ferait echouer le lot entier (tous comptes confondus) indefiniment.
+     */
+    private AccountProjectionBatch batchFor(String accountId) {
+        AccountProjectionBatch batch = currentBatch();
+        // existsById declenche l'ecriture des creations JPA en attente : un compte cree dans le meme lot existe
+        if (!batch.getUpdatedAccounts().contains(accountId) && !accountRepository.existsById(accountId)) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return batch;
+    }
+
+    /**
+     * Lot d'ecritures de la transaction courante, ecrit une seule fois avant le commit
+     */
+    private AccountProjectionBatch currentBatch() {
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        return unitOfWork.getOrComputeResource(BATCH_RESOURCE, key -> {
+            AccountProjectionBatch batch = new AccountProjectionBatch();
+            unitOfWork.onPrepareCommit(uow -> flush(batch));
+            return batch;
+        });
+    }
+
+    private void flush(AccountProjectionBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Les creations de comptes du meme lot passent par JPA : les ecrire avant les requetes JDBC
+        accountRepository.flush();
+        Map<String, Long> lastEventSequences = projectionJdbcRepository.findLastEventSequences(batch.getUpdatedAccounts());
+        // Existence deja verifiee par batchFor : ne reste que le cas d'un compte supprime entre-temps
+        for (String accountId : batch.getUpdatedAccounts()) {
+            if (!lastEventSequences.containsKey(accountId)) {
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+        AccountProjectionBatch.Writes writes = batch.writes(lastEventSequences);
+        List<String> missingAccounts = projectionJdbcRepository.applyAccountUpdates(writes.accounts());
+        if (!missingAccounts.isEmpty()) {
+            throw new AccountNotFoundException(missingAccounts.get(0));
+        }
+        projectionJdbcRepository.insertOperations(writes.operations());
+        Set<String> subscribedAccounts = batch.getUpdatedAccounts().stream()
+            .filter(queryUpdateEmitter::hasSubscriptions)
+            .collect(Collectors.toSet());
+        if (!subscribedAccounts.isEmpty()) {
+            projectionJdbcRepository.findAccounts(subscribedAccounts).forEach(this::emitUpdate);
+        }
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        log.debug("Projection batch written: {} events, {} operations, {} accounts in {} ms ({} events/s)",
+                batch.getEventCount(), writes.operations().size(), writes.accounts().size(), elapsedNanos / 1_000_000,
+                batch.getEventCount() * 1_000_000_000L / elapsedNanos);
     }
 
     @QueryHandler
     public AccountListResponse handle(GetAllAccountsQuery query) {
         log.info("GetAllAccountsQuery received");
-        List<AccountDTO> accounts = accountRepository.findAll().stream()
+        int limit = pageSize(query.getLimit());
+        String afterId = ContinuationTokens.accountCursor(query.getContinuationToken());
+        // Une ligne de plus que la page pour savoir s'il reste des comptes
+        List<Account> rows = afterId == null
+            ? accountRepository.findAllByOrderByIdAsc(Limit.of(limit + 1))
+            : accountRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1));
+        List<AccountDTO> accounts = rows.stream()
+            .limit(limit)
             .map(this::convertToAccountDTO)
             .collect(Collectors.toList());
+        String continuationToken = rows.size() > limit
+            ? ContinuationTokens.ofAccount(accounts.get(accounts.size() - 1).getId())
+            : null;
         return AccountListResponse.builder()
             .accounts(accounts)
+            .continuationToken(continuationToken)
             .build();
     }
 
@@ -115,9 +313,9 @@ public class AccountEventHandler {
     public AccountDTO handle(GetAccountByIdQuery query) {
         log.info("GetAccountByIdQuery received for account: {}", query.getAccountId());
         try {
-            Account account = accountRepository.findById(query.getAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(query.getAccountId()));
-            return convertToAccountDTO(account);
+            return accountCache.get(query.getAccountId(), accountId -> accountRepository.findById(accountId)
+                .map(this::convertToAccountDTO)
+                .orElseThrow(() -> new AccountNotFoundException(accountId)));
         } catch (AccountNotFoundException ex) {
             // Créer un objet details sérialisable pour Axon Server
             ErrorResponse errorDetails = new ErrorResponse(
@@ -139,11 +337,21 @@ public class AccountEventHandler {
             accountRepository.findById(query.getAccountId())
                 .orElseThrow(() -> new AccountNotFoundException(query.getAccountId()));
             
-            List<OperationDTO> operations = operationRepository.findByAccountId(query.getAccountId()).stream()
+            int limit = pageSize(query.getLimit());
+            OperationCursor cursor = ContinuationTokens.operationCursor(query.getContinuationToken());
+            List<Operation> rows = findOperations(query.getAccountId(), query.getFrom(), query.getTo(), cursor, limit + 1);
+            List<OperationDTO> operations = rows.stream()
+                .limit(limit)
                 .map(this::convertToOperationDTO)
                 .collect(Collectors.toList());
+            String continuationToken = null;
+            if (rows.size() > limit) {
+                OperationDTO last = operations.get(operations.size() - 1);
+                continuationToken = ContinuationTokens.ofOperation(last.getDate(), last.getId());
+            }
             return OperationListResponse.builder()
                 .operations(operations)
+                .continuationToken(continuationToken)
                 .build();
         } catch (AccountNotFoundException ex) {
             // Créer un objet details sérialisable pour Axon Server
@@ -158,6 +366,48 @@ public class AccountEventHandler {
         }
     }
 
+    /**
+     * Export de l'historique complet en flux, sans jamais le charger en entier :
+     * les operations sont lues par tranches (keyset), une tranche n'est lue que lorsque
+     * le consommateur a traite la precedente. Memoire bornee a deux tranches.
+     */
+    @QueryHandler
+    public Flux<OperationDTO> handle(StreamAccountOperationsQuery query) {
+        log.info("StreamAccountOperationsQuery received for account: {}", query.getAccountId());
+        String accountId = query.getAccountId();
+        return Mono.fromCallable(() -> {
+                if (!accountRepository.existsById(accountId)) {
+                    throw new AccountNotFoundException(accountId);
+                }
+                return fetchOperationChunk(query, null);
+            })
+            .expand(chunk -> chunk.size() < streamChunkSize
+                ? Mono.empty()
+                : Mono.fromCallable(() -> {
+                    OperationDTO last = chunk.get(chunk.size() - 1);
+                    return fetchOperationChunk(query, new OperationCursor(last.getDate(), last.getId()));
+                }))
+            .concatMapIterable(Function.identity(), 1);
+    }
+
+    private List<OperationDTO> fetchOperationChunk(StreamAccountOperationsQuery query, OperationCursor cursor) {
+        return findOperations(query.getAccountId(), query.getFrom(), query.getTo(), cursor, streamChunkSize).stream()
+            .map(this::convertToOperationDTO)
+            .collect(Collectors.toList());
+    }
+
+    private List<Operation> findOperations(String accountId, Instant from, Instant to, OperationCursor cursor, int limit) {
+        Instant lowerBound = from != null ? from : MIN_OPERATION_DATE;
+        Instant upperBound = to != null ? to : MAX_OPERATION_DATE;
+        return cursor == null
+            ? operationRepository.findPage(accountId, lowerBound, upperBound, Limit.of(limit))
+            : operationRepository.findPageAfter(accountId, lowerBound, upperBound, cursor.date(), cursor.id(), Limit.of(limit));
+    }
+
+    private int pageSize(int requestedLimit) {
+        return requestedLimit <= 0 ? defaultPageSize : Math.min(requestedLimit, maxPageSize);
+    }
+
     /**
      * Convertit une entité Account en AccountDTO pour la sérialisation via Axon Server
      */
@@ -0,0 +1,101 @@
+package ma.jaouad.accountservice.queries.handlers;
+
+import lombok.Getter;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ecritures de projection accumulees pendant un lot d'events (mode batch)
+ *
+ * Les events sont conserves par compte avec leur numero de sequence : au moment d'ecrire le lot,
+ * ceux deja appliques en base (sequence inferieure ou egale a la derniere sequence du compte)
+ * sont ecartes, puis chaque compte recoit un seul UPDATE (variation nette du solde, dernier statut,
+ * derniere sequence) et les operations restantes sont inserees en batch JDBC.
+ */
+public class AccountProjectionBatch {
+
+    private final Map<String, List<PendingEvent>> events = new LinkedHashMap<>();
+    @Getter
+    private int eventCount;
+
+    public void add(String accountId, Long sequenceNumber, OperationType type, double amount, Instant date) {
+        add(accountId, new PendingEvent(sequenceNumber, new PendingOperation(accountId, type, amount, date), null));
+    }
+
+    public void addStatus(String accountId, Long sequenceNumber, AccountStatus status) {
+        add(accountId, new PendingEvent(sequenceNumber, null, status));
+    }
+
+    public Set<String> getUpdatedAccounts() {
+        return events.keySet();
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Ecritures restant a appliquer
+     *
+     * @param lastEventSequences derniere sequence appliquee de chaque compte (null si inconnue : tout est applique)
+     */
+    public Writes writes(Map<String, Long> lastEventSequences) {
+        List<PendingOperation> operations = new ArrayList<>();
+        List<AccountUpdate> accounts = new ArrayList<>();
+        events.forEach((accountId, accountEvents) -> {
+            Long lastEventSequence = lastEventSequences.get(accountId);
+            double balanceDelta = 0;
+            AccountStatus status = null;
+            boolean changed = false;
+            for (PendingEvent event : accountEvents) {
+                if (AccountEventHandler.alreadyApplied(lastEventSequence, event.sequenceNumber())) {
+                    continue;
+                }
+                if (event.operation() != null) {
+                    operations.add(event.operation());
+                    balanceDelta += event.operation().type() == OperationType.CREDIT
+                        ? event.operation().amount()
+                        : -event.operation().amount();
+                }
+                if (event.status() != null) {
+                    status = event.status();
+                }
+                if (event.sequenceNumber() != null) {
+                    lastEventSequence = event.sequenceNumber();
+                }
+                changed = true;
+            }
+            if (changed) {
+                accounts.add(new AccountUpdate(accountId, balanceDelta, status, lastEventSequence));
+            }
+        });
+        return new Writes(operations, accounts);
+    }
+
+    private void add(String accountId, PendingEvent event) {
+        events.computeIfAbsent(accountId, key -> new ArrayList<>()).add(event);
+        eventCount++;
+    }
+
+    private record PendingEvent(Long sequenceNumber, PendingOperation operation, AccountStatus status) {
+    }
+
+    public record PendingOperation(String accountId, OperationType type, double amount, Instant date) {
+    }
+
+    /**
+     * Mise a jour d'un compte : status null si inchange
+     */
+    public record AccountUpdate(String accountId, double balanceDelta, AccountStatus status, Long lastEventSequence) {
+    }
+
+    public record Writes(List<PendingOperation> operations, List<AccountUpdate> accounts) {
+    }
+}
@@ -0,0 +1,105 @@
+package ma.jaouad.accountservice.queries.pagination;
+
+import ma.jaouad.coreapi.exceptions.InvalidContinuationTokenException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Jetons de continuation opaques de la pagination par curseur (keyset)
+ *
+ * Un jeton encode la cle de tri du dernier element de la page (Base64 URL) :
+ * - comptes : [ACCOUNTS][id]
+ * - operations : [OPERATIONS][date epochSecond][date nanos][id]
+ * Le premier octet empeche de reutiliser le jeton d'une liste sur une autre.
+ */
+public final class ContinuationTokens {
+
+    private static final byte ACCOUNTS = 1;
+    private static final byte OPERATIONS = 2;
+
+    private ContinuationTokens() {
+    }
+
+    public record OperationCursor(Instant date, long id) {
+    }
+
+    public static String ofAccount(String lastAccountId) {
+        return encode(out -> {
+            out.writeByte(ACCOUNTS);
+            out.writeUTF(lastAccountId);
+        });
+    }
+
+    /**
+     * @return l'identifiant du dernier compte de la page precedente, null pour la premiere page
+     */
+    public static String accountCursor(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try (DataInputStream in = decode(token, ACCOUNTS)) {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new InvalidContinuationTokenException(token);
+        }
+    }
+
+    public static String ofOperation(Instant lastDate, long lastId) {
+        return encode(out -> {
+            out.writeByte(OPERATIONS);
+            out.writeLong(lastDate.getEpochSecond());
+            out.writeInt(lastDate.getNano());
+            out.writeLong(lastId);
+        });
+    }
+
+    /**
+     * @return la cle de tri de la derniere operation de la page precedente, null pour la premiere page
+     */
+    public static OperationCursor operationCursor(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try (DataInputStream in = decode(token, OPERATIONS)) {
+            return new OperationCursor(Instant.ofEpochSecond(in.readLong(), in.readInt()), in.readLong());
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidContinuationTokenException(token);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static String encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static DataInputStream decode(String token, byte kind) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException(token);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (bytes.length == 0 || in.readByte() != kind) {
+            throw new InvalidContinuationTokenException(token);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,103 @@
+package ma.jaouad.accountservice.queries.rebuild;
+
+import ma.jaouad.accountservice.queries.entities.Account;
+import ma.jaouad.accountservice.queries.handlers.AccountProjectionBatch.PendingOperation;
+import ma.jaouad.accountservice.queries.repositories.AccountProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import ma.jaouad.coreapi.exceptions.AccountNotFoundException;
+import ma.jaouad.coreapi.rebuild.OperationSpool;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Reconstruction de la projection des comptes en une passe sur le flux d'events
+ *
+ * Les memes regles que AccountEventHandler, appliquees en memoire :
+ * - l'etat final de chaque compte (solde, statut, derniere sequence) est replie dans une map, un seul INSERT par compte
+ * - les operations sont ecrites dans un fichier temporaire (OperationSpool)
+ * write() charge ensuite comptes puis operations en masse (la cle etrangere operation -> account impose cet ordre).
+ */
+public class AccountProjectionRebuild implements AutoCloseable {
+
+    private final Map<String, Account> accounts = new LinkedHashMap<>();
+    private final OperationSpool<PendingOperation> operations;
+
+    public AccountProjectionRebuild(Path spoolDirectory) throws IOException {
+        this.operations = new OperationSpool<>(spoolDirectory, "account-projection-rebuild-", PendingOperation::new);
+    }
+
+    public void apply(EventMessage<?> eventMessage) {
+        switch (eventMessage.getPayload()) {
+            case AccountCreatedEvent event -> accounts.put(event.getAccountId(), Account.builder()
+                .id(event.getAccountId())
+                .createdAt(eventMessage.getTimestamp())
+                .balance(event.getInitialBalance())
+                .status(event.getAccountStatus())
+                .currency(event.getCurrency())
+                .lastEventSequence(sequenceNumber(eventMessage))
+                .build());
+            case AccountCreditedEvent event -> {
+                Account account = account(event.getAccountId(), eventMessage);
+                account.setBalance(account.getBalance() + event.getAmount());
+                operations.append(event.getAccountId(), OperationType.CREDIT, event.getAmount(), eventMessage.getTimestamp());
+            }
+            case AccountDebitedEvent event -> {
+                Account account = account(event.getAccountId(), eventMessage);
+                account.setBalance(account.getBalance() - event.getAmount());
+                operations.append(event.getAccountId(), OperationType.DEBIT, event.getAmount(), eventMessage.getTimestamp());
+            }
+            case AccountStatusUpdatedEvent event -> account(event.getAccountId(), eventMessage).setStatus(event.getToStatus());
+            default -> {
+                // Events sans effet sur la projection
+            }
+        }
+    }
+
+    public int accountCount() {
+        return accounts.size();
+    }
+
+    public long operationCount() {
+        return operations.size();
+    }
+
+    /**
+     * Vide la projection puis la recharge (a executer dans la transaction de la reconstruction)
+     *
+     * @param progress recoit le nombre de lignes ecrites au fil du chargement
+     */
+    public void write(AccountProjectionJdbcRepository repository, int batchSize, LongConsumer progress) {
+        repository.truncateProjection();
+        long accountRows = repository.bulkInsertAccounts(accounts.values().iterator(), batchSize, progress);
+        repository.bulkInsertOperations(operations.read(), batchSize,
+            rows -> progress.accept(accountRows + rows));
+    }
+
+    @Override
+    public void close() throws IOException {
+        operations.close();
+    }
+
+    private Account account(String accountId, EventMessage<?> eventMessage) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        account.setLastEventSequence(sequenceNumber(eventMessage));
+        return account;
+    }
+
+    private static Long sequenceNumber(EventMessage<?> eventMessage) {
+        return eventMessage instanceof DomainEventMessage<?> domainEvent ? domainEvent.getSequenceNumber() : null;
+    }
+}
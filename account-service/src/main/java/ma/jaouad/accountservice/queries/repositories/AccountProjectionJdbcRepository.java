@@ -0,0 +1,192 @@
+package ma.jaouad.accountservice.queries.repositories;
+
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import ma.jaouad.accountservice.queries.entities.Account;
+import ma.jaouad.accountservice.queries.handlers.AccountProjectionBatch.AccountUpdate;
+import ma.jaouad.accountservice.queries.handlers.AccountProjectionBatch.PendingOperation;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.jdbc.BulkLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import static ma.jaouad.coreapi.jdbc.BulkLoader.csv;
+
+/**
+ * Ecritures ensemblistes de la projection des comptes (mode batch)
+ *
+ * Passe directement par JDBC : la cle IDENTITY d'Operation empeche Hibernate
+ * de regrouper les INSERT, alors qu'un batch JDBC sans recuperation des cles generees le permet.
+ *
+ * Chargement en masse (reconstruction de la projection) : COPY FROM STDIN sur PostgreSQL,
+ * batchs JDBC de taille fixe sur les autres bases (H2).
+ */
+@Repository
+public class AccountProjectionJdbcRepository {
+
+    private static final String INSERT_OPERATION =
+        "INSERT INTO operation (date, amount, type, account_id) VALUES (?, ?, ?, ?)";
+    private static final String APPLY_ACCOUNT_UPDATE =
+        "UPDATE account SET balance = balance + ?, status = COALESCE(?, status), last_event_sequence = ? WHERE id = ?";
+    private static final String SELECT_LAST_EVENT_SEQUENCES =
+        "SELECT id, last_event_sequence FROM account WHERE id IN (:ids)";
+    private static final String SELECT_ACCOUNTS =
+        "SELECT id, created_at, balance, status, currency FROM account WHERE id IN (:ids)";
+    private static final String INSERT_ACCOUNT =
+        "INSERT INTO account (id, created_at, balance, status, currency, last_event_sequence) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String COPY_ACCOUNTS =
+        "COPY account (id, created_at, balance, status, currency, last_event_sequence) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_OPERATIONS =
+        "COPY operation (date, amount, type, account_id) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkLoader bulkLoader;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public AccountProjectionJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bulkLoader = new BulkLoader(jdbcTemplate);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public void insertOperations(List<PendingOperation> operations) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_OPERATION, operations, operations.size(), (ps, operation) -> {
+            ps.setObject(1, OffsetDateTime.ofInstant(operation.date(), ZoneOffset.UTC));
+            ps.setDouble(2, operation.amount());
+            ps.setString(3, operation.type().name());
+            ps.setString(4, operation.accountId());
+        });
+    }
+
+    /**
+     * Applique a chaque compte sa variation nette de solde, son dernier statut et sa derniere sequence
+     *
+     * @return les identifiants des comptes introuvables (aucune ligne mise a jour)
+     */
+    public List<String> applyAccountUpdates(List<AccountUpdate> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(APPLY_ACCOUNT_UPDATE, updates, updates.size(), (ps, update) -> {
+            ps.setDouble(1, update.balanceDelta());
+            ps.setString(2, update.status() == null ? null : update.status().name());
+            ps.setObject(3, update.lastEventSequence(), Types.BIGINT);
+            ps.setString(4, update.accountId());
+        });
+        List<String> missingAccounts = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    missingAccounts.add(updates.get(index).accountId());
+                }
+                index++;
+            }
+        }
+        return missingAccounts;
+    }
+
+    /**
+     * Derniere sequence appliquee de chaque compte (valeur null pour un compte projete avant son suivi,
+     * absent de la map si le compte n'existe pas)
+     */
+    public Map<String, Long> findLastEventSequences(Collection<String> accountIds) {
+        Map<String, Long> lastEventSequences = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return lastEventSequences;
+        }
+        namedParameterJdbcTemplate.query(SELECT_LAST_EVENT_SEQUENCES, Map.of("ids", accountIds), rs -> {
+            lastEventSequences.put(rs.getString("id"), rs.getObject("last_event_sequence", Long.class));
+        });
+        return lastEventSequences;
+    }
+
+    /**
+     * Relit l'etat des comptes en base, sans passer par le contexte de persistance JPA
+     * (dont les entites ignorent les soldes modifies en SQL)
+     */
+    public List<AccountDTO> findAccounts(Collection<String> accountIds) {
+        if (accountIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(SELECT_ACCOUNTS, Map.of("ids", accountIds), (rs, rowNum) ->
+            AccountDTO.builder()
+                .id(rs.getString("id"))
+                .createdAt(rs.getObject("created_at", OffsetDateTime.class).toInstant())
+                .balance(rs.getDouble("balance"))
+                .status(AccountStatus.valueOf(rs.getString("status")))
+                .currency(rs.getString("currency"))
+                .build());
+    }
+
+    /**
+     * Vide les tables de la projection (operations d'abord, a cause de la cle etrangere)
+     *
+     * TRUNCATE sur PostgreSQL (transactionnel, annule avec la reconstruction en cas d'echec),
+     * DELETE ailleurs : H2 refuse le TRUNCATE d'une table referencee par une cle etrangere.
+     */
+    public void truncateProjection() {
+        if (bulkLoader.isPostgres()) {
+            jdbcTemplate.execute("TRUNCATE TABLE operation, account");
+        } else {
+            jdbcTemplate.update("DELETE FROM operation");
+            jdbcTemplate.update("DELETE FROM account");
+        }
+    }
+
+    /**
+     * @return le nombre de comptes inseres
+     */
+    public long bulkInsertAccounts(Iterator<Account> accounts, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_ACCOUNTS, accounts, batchSize, progress, account -> String.join(",",
+                csv(account.getId()),
+                csv(OffsetDateTime.ofInstant(account.getCreatedAt(), ZoneOffset.UTC).toString()),
+                Double.toString(account.getBalance()),
+                csv(account.getStatus().name()),
+                csv(account.getCurrency()),
+                account.getLastEventSequence() == null ? "" : account.getLastEventSequence().toString()));
+        }
+        return bulkLoader.batchInsert(INSERT_ACCOUNT, accounts, batchSize, progress, (ps, account) -> {
+            ps.setString(1, account.getId());
+            ps.setObject(2, OffsetDateTime.ofInstant(account.getCreatedAt(), ZoneOffset.UTC));
+            ps.setDouble(3, account.getBalance());
+            ps.setString(4, account.getStatus().name());
+            ps.setString(5, account.getCurrency());
+            ps.setObject(6, account.getLastEventSequence(), Types.BIGINT);
+        });
+    }
+
+    /**
+     * @return le nombre d'operations inserees
+     */
+    public long bulkInsertOperations(Iterator<PendingOperation> operations, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_OPERATIONS, operations, batchSize, progress, operation -> String.join(",",
+                csv(OffsetDateTime.ofInstant(operation.date(), ZoneOffset.UTC).toString()),
+                Double.toString(operation.amount()),
+                csv(operation.type().name()),
+                csv(operation.accountId())));
+        }
+        return bulkLoader.batchInsert(INSERT_OPERATION, operations, batchSize, progress, (ps, operation) -> {
+            ps.setObject(1, OffsetDateTime.ofInstant(operation.date(), ZoneOffset.UTC));
+            ps.setDouble(2, operation.amount());
+            ps.setString(3, operation.type().name());
+            ps.setString(4, operation.accountId());
+        });
+    }
+}
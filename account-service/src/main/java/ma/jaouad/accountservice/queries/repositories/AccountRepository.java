@@ -1,7 +1,13 @@
 package ma.jaouad.accountservice.queries.repositories;
 
 import ma.jaouad.accountservice.queries.entities.Account;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
 
 public interface AccountRepository extends JpaRepository<Account, String> {
+    // Pagination par curseur sur la cle primaire
+    List<Account> findAllByOrderByIdAsc(Limit limit);
+
+    List<Account> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
@@ -1,9 +1,31 @@
 package ma.jaouad.accountservice.queries.repositories;
 
 import ma.jaouad.accountservice.queries.entities.Operation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.util.List;
 
 public interface OperationRepository extends JpaRepository<Operation, Long> {
-    List<Operation> findByAccountId(String accountId);
+    // Pagination par curseur sur (date, id), servie par l'index (account_id, date, id)
+    @Query("SELECT o FROM Operation o WHERE o.account.id = :accountId "
+        + "AND o.date >= :from AND o.date < :to "
+        + "ORDER BY o.date, o.id")
+    List<Operation> findPage(@Param("accountId") String accountId,
+                             @Param("from") Instant from,
+                             @Param("to") Instant to,
+                             Limit limit);
+
+    @Query("SELECT o FROM Operation o WHERE o.account.id = :accountId "
+        + "AND o.date >= :from AND o.date < :to "
+        + "AND o.date >= :afterDate AND (o.date > :afterDate OR o.id > :afterId) "
+        + "ORDER BY o.date, o.id")
+    List<Operation> findPageAfter(@Param("accountId") String accountId,
+                                  @Param("from") Instant from,
+                                  @Param("to") Instant to,
+                                  @Param("afterDate") Instant afterDate,
+                                  @Param("afterId") long afterId,
+                                  Limit limit);
 }
@@ -0,0 +1,233 @@
+package ma.jaouad.accountservice.queries.subscriptions;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import org.axonframework.common.Registration;
+import org.axonframework.messaging.MessageDispatchInterceptor;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.axonframework.monitoring.MessageMonitor;
+import org.axonframework.queryhandling.GenericSubscriptionQueryUpdateMessage;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryBackpressure;
+import org.axonframework.queryhandling.SubscriptionQueryMessage;
+import org.axonframework.queryhandling.SubscriptionQueryUpdateMessage;
+import org.axonframework.queryhandling.UpdateHandlerRegistration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * QueryUpdateEmitter d'account-service : subscriptions GetAccountByIdQuery indexees par compte
+ *
+ * SimpleQueryUpdateEmitter#emit evalue le filtre sur toutes les subscriptions actives, soit un cout
+ * proportionnel au nombre d'abonnes pour chaque event projete. Les subscriptions GetAccountByIdQuery
+ * (locales ou transmises par Axon Server) sont rangees par compte a leur enregistrement :
+ * emitAccount ne touche que les abonnes du compte et ne coute qu'une recherche quand il n'en a aucun.
+ *
+ * Comme SimpleQueryUpdateEmitter : mise a jour differee apres le commit si une unit of work est en cours,
+ * intercepteurs de dispatch et moniteur appliques, tampon de updateBufferSize mises a jour par abonne.
+ * Les autres subscription queries, et les appels generiques (emit, complete), passent par le delegue.
+ */
+@Slf4j
+public class AccountQueryUpdateEmitter implements QueryUpdateEmitter {
+
+    private final QueryUpdateEmitter delegate;
+    private final MessageMonitor<? super SubscriptionQueryUpdateMessage<?>> updateMessageMonitor;
+    private final Map<String, Set<AccountSubscription>> subscriptionsByAccount = new ConcurrentHashMap<>();
+    private final Map<SubscriptionQueryMessage<?, ?, ?>, AccountSubscription> subscriptions = new ConcurrentHashMap<>();
+    private final List<MessageDispatchInterceptor<? super SubscriptionQueryUpdateMessage<?>>> dispatchInterceptors =
+            new CopyOnWriteArrayList<>();
+
+    public AccountQueryUpdateEmitter(QueryUpdateEmitter delegate,
+                                     MessageMonitor<? super SubscriptionQueryUpdateMessage<?>> updateMessageMonitor) {
+        this.delegate = delegate;
+        this.updateMessageMonitor = updateMessageMonitor;
+    }
+
+    /**
+     * @return vrai si au moins une subscription GetAccountByIdQuery porte sur ce compte
+     */
+    public boolean hasSubscriptions(String accountId) {
+        return subscriptionsByAccount.containsKey(accountId);
+    }
+
+    /**
+     * Nouvel etat d'un compte pour ses seuls abonnes
+     */
+    public void emitAccount(String accountId, Object update) {
+        if (!hasSubscriptions(accountId)) {
+            return;
+        }
+        SubscriptionQueryUpdateMessage<?> message = intercept(GenericSubscriptionQueryUpdateMessage.asUpdateMessage(update));
+        runOnAfterCommitOrNow(() -> {
+            Set<AccountSubscription> accountSubscriptions = subscriptionsByAccount.get(accountId);
+            if (accountSubscriptions != null) {
+                List.copyOf(accountSubscriptions).forEach(subscription -> subscription.next(message));
+            }
+        });
+    }
+
+    @Override
+    public boolean queryUpdateHandlerRegistered(SubscriptionQueryMessage<?, ?, ?> query) {
+        return subscriptions.containsKey(query) || delegate.queryUpdateHandlerRegistered(query);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public <U> UpdateHandlerRegistration<U> registerUpdateHandler(SubscriptionQueryMessage<?, ?, ?> query,
+                                                                  SubscriptionQueryBackpressure backpressure,
+                                                                  int updateBufferSize) {
+        return registerUpdateHandler(query, updateBufferSize);
+    }
+
+    @Override
+    public <U> UpdateHandlerRegistration<U> registerUpdateHandler(SubscriptionQueryMessage<?, ?, ?> query,
+                                                                  int updateBufferSize) {
+        if (!(query.getPayload() instanceof GetAccountByIdQuery accountQuery)) {
+            return delegate.registerUpdateHandler(query, updateBufferSize);
+        }
+        AccountSubscription subscription = new AccountSubscription(query, accountQuery.getAccountId(), updateBufferSize);
+        if (subscriptions.putIfAbsent(query, subscription) != null) {
+            throw new IllegalArgumentException("There is already a subscription with the given message identifier");
+        }
+        subscriptionsByAccount.computeIfAbsent(subscription.accountId, key -> ConcurrentHashMap.newKeySet())
+                .add(subscription);
+        return subscription.registration();
+    }
+
+    @Override
+    public <U> void emit(Predicate<SubscriptionQueryMessage<?, ?, U>> filter, SubscriptionQueryUpdateMessage<U> update) {
+        delegate.emit(filter, update);
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        SubscriptionQueryUpdateMessage<?> message = intercept(update);
+        runOnAfterCommitOrNow(() -> matching(filter).stream()
+                .filter(subscription -> subscription.query.getUpdateResponseType().matches(message.getPayloadType()))
+                .forEach(subscription -> subscription.next(message)));
+    }
+
+    @Override
+    public void complete(Predicate<SubscriptionQueryMessage<?, ?, ?>> filter) {
+        delegate.complete(filter);
+        runOnAfterCommitOrNow(() -> matching(filter).forEach(AccountSubscription::complete));
+    }
+
+    @Override
+    public void completeExceptionally(Predicate<SubscriptionQueryMessage<?, ?, ?>> filter, Throwable cause) {
+        delegate.completeExceptionally(filter, cause);
+        runOnAfterCommitOrNow(() -> matching(filter).forEach(subscription -> subscription.error(cause)));
+    }
+
+    @Override
+    public Set<SubscriptionQueryMessage<?, ?, ?>> activeSubscriptions() {
+        Set<SubscriptionQueryMessage<?, ?, ?>> active = new HashSet<>(delegate.activeSubscriptions());
+        active.addAll(subscriptions.keySet());
+        return active;
+    }
+
+    @Override
+    public Registration registerDispatchInterceptor(
+            MessageDispatchInterceptor<? super SubscriptionQueryUpdateMessage<?>> interceptor) {
+        Registration delegateRegistration = delegate.registerDispatchInterceptor(interceptor);
+        dispatchInterceptors.add(interceptor);
+        return () -> {
+            delegateRegistration.cancel();
+            return dispatchInterceptors.remove(interceptor);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <S extends SubscriptionQueryMessage<?, ?, ?>> List<AccountSubscription> matching(Predicate<S> filter) {
+        return subscriptions.values().stream()
+                .filter(subscription -> ((Predicate) filter).test(subscription.query))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SubscriptionQueryUpdateMessage<?> intercept(SubscriptionQueryUpdateMessage<?> message) {
+        SubscriptionQueryUpdateMessage<?> intercepted = message;
+        for (MessageDispatchInterceptor<? super SubscriptionQueryUpdateMessage<?>> interceptor : dispatchInterceptors) {
+            intercepted = (SubscriptionQueryUpdateMessage<?>) interceptor.handle(List.of(intercepted)).apply(0, intercepted);
+        }
+        return intercepted;
+    }
+
+    /**
+     * Meme regle que SimpleQueryUpdateEmitter : apres le commit si l'unit of work est en phase STARTED
+     */
+    private static void runOnAfterCommitOrNow(Runnable task) {
+        if (CurrentUnitOfWork.isStarted() && CurrentUnitOfWork.get().phase() == UnitOfWork.Phase.STARTED) {
+            CurrentUnitOfWork.get().afterCommit(unitOfWork -> task.run());
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Subscription GetAccountByIdQuery : tampon rejoue des dernieres mises a jour, retiree de l'index
+     * a l'annulation ou a la fin du flux
+     */
+    private final class AccountSubscription {
+
+        private final SubscriptionQueryMessage<?, ?, ?> query;
+        private final String accountId;
+        private final Sinks.Many<SubscriptionQueryUpdateMessage<?>> sink;
+
+        private AccountSubscription(SubscriptionQueryMessage<?, ?, ?> query, String accountId, int updateBufferSize) {
+            this.query = query;
+            this.accountId = accountId;
+            this.sink = Sinks.many().replay().limit(updateBufferSize);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private <U> UpdateHandlerRegistration<U> registration() {
+            return new UpdateHandlerRegistration<>(
+                    () -> {
+                        remove();
+                        return true;
+                    },
+                    (Flux) sink.asFlux().doOnCancel(this::remove).doOnTerminate(this::remove),
+                    this::complete);
+        }
+
+        private synchronized void next(SubscriptionQueryUpdateMessage<?> update) {
+            MessageMonitor.MonitorCallback monitorCallback = updateMessageMonitor.onMessageIngested(update);
+            Sinks.EmitResult result = sink.tryEmitNext(update);
+            if (result.isSuccess()) {
+                monitorCallback.reportSuccess();
+            } else {
+                log.debug("Update for account {} not delivered to subscription {}: {}",
+                        accountId, query.getIdentifier(), result);
+                monitorCallback.reportFailure(new IllegalStateException("Update not delivered: " + result));
+            }
+        }
+
+        private synchronized void complete() {
+            remove();
+            sink.tryEmitComplete();
+        }
+
+        private synchronized void error(Throwable cause) {
+            remove();
+            sink.tryEmitError(cause);
+        }
+
+        private void remove() {
+            if (subscriptions.remove(query, this)) {
+                subscriptionsByAccount.computeIfPresent(accountId, (key, accountSubscriptions) -> {
+                    accountSubscriptions.remove(this);
+                    return accountSubscriptions.isEmpty() ? null : accountSubscriptions;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ma.jaouad.accountservice.queries.subscriptions;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * Flux Server-Sent Events de l'etat d'un compte, alimente par une subscription query
+ *
+ * Evenement "account" : etat initial puis chaque nouvel etat emis par la projection, sans id
+ * (le flux ne reprend pas depuis Last-Event-ID : un client reconnecte recoit de nouveau l'etat courant).
+ * Dimensionne pour un grand nombre d'abonnes inactifs :
+ * - aucun thread par connexion (requete asynchrone), les mises a jour sont poussees
+ * - un seul timer partage pour les heartbeats (commentaires SSE), qui detectent aussi
+ *   les clients deconnectes et liberent leur subscription query
+ * - petit tampon par abonne, seules les dernieres mises a jour sont conservees
+ *
+ * - account.subscription.heartbeat-seconds : intervalle des heartbeats
+ * - account.subscription.update-buffer-size : mises a jour en attente par abonne
+ */
+@Component
+@Slf4j
+public class AccountSubscriptions {
+
+    private static final String ACCOUNT_EVENT = "account";
+
+    private final QueryGateway queryGateway;
+    private final int updateBufferSize;
+    private final Flux<ServerSentEvent<AccountDTO>> heartbeats;
+
+    public AccountSubscriptions(QueryGateway queryGateway,
+                                @Value("${account.subscription.heartbeat-seconds:15}") long heartbeatSeconds,
+                                @Value("${account.subscription.update-buffer-size:8}") int updateBufferSize) {
+        this.queryGateway = queryGateway;
+        this.updateBufferSize = updateBufferSize;
+        this.heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds))
+            .map(tick -> ServerSentEvent.<AccountDTO>builder().comment("heartbeat").build())
+            .share();
+    }
+
+    public Flux<ServerSentEvent<AccountDTO>> accountUpdates(String accountId) {
+        return Flux.using(
+            () -> queryGateway.subscriptionQuery(
+                GetAccountByIdQuery.class.getName(),
+                new GetAccountByIdQuery(accountId),
+                ResponseTypes.instanceOf(AccountDTO.class),
+                ResponseTypes.instanceOf(AccountDTO.class),
+                updateBufferSize),
+            result -> result.initialResult()
+                .concatWith(result.updates().onBackpressureLatest())
+                .map(account -> ServerSentEvent.builder(account).event(ACCOUNT_EVENT).build())
+                .mergeWith(heartbeats),
+            SubscriptionQueryResult::cancel);
+    }
+}
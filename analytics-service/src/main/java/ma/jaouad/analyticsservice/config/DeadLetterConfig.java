@@ -0,0 +1,47 @@
+package ma.jaouad.analyticsservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.jaouad.coreapi.processing.DeadLetterQueueConfigurer;
+import ma.jaouad.coreapi.processing.DeadLetterQueueProperties;
+import ma.jaouad.coreapi.processing.DeadLetterService;
+import ma.jaouad.analyticsservice.queries.handlers.AnalyticsEventHandler;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * File des lettres mortes (dead-letter queue) de la projection analytics
+ *
+ * File, politique de rejeu et administration partagees avec account-service (core-api, DeadLetterQueueConfigurer
+ * et DeadLetterService), parametrees ici par le processeur et le prefixe des proprietes.
+ *
+ * Les statistiques globales (processeur analytics-statistics) ne sont pas concernees.
+ *
+ * - analytics.projection.dlq.enabled : active/desactive la file
+ * - analytics.projection.dlq.max-sequences : nombre maximal de comptes en file
+ * - analytics.projection.dlq.max-sequence-size : nombre maximal d'events en file par compte
+ * - analytics.projection.dlq.max-retries : echecs avant arret du rejeu automatique
+ * - analytics.projection.dlq.retry-interval-ms : periode du rejeu automatique, delai avant le premier rejeu
+ */
+@Configuration
+public class DeadLetterConfig {
+
+    private static final String PROCESSOR = AnalyticsEventHandler.PROCESSING_GROUP;
+    private static final String PROPERTY_PREFIX = "analytics.projection.dlq";
+
+    @Autowired
+    public void configureAnalyticsProjectionDeadLetters(EventProcessingConfigurer configurer, Environment environment) {
+        DeadLetterQueueConfigurer.configure(configurer, PROCESSOR, DeadLetterQueueProperties.from(environment, PROPERTY_PREFIX));
+    }
+
+    @Bean
+    public DeadLetterService deadLetterService(EventProcessingConfiguration processingConfiguration,
+                                               MeterRegistry meterRegistry,
+                                               Environment environment) {
+        return new DeadLetterService(processingConfiguration, meterRegistry, PROCESSOR,
+                DeadLetterQueueProperties.from(environment, PROPERTY_PREFIX).retryInterval());
+    }
+}
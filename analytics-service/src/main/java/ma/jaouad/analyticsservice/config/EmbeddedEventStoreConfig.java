@@ -0,0 +1,67 @@
+package ma.jaouad.analyticsservice.config;
+
+import ma.jaouad.coreapi.eventstore.MappedFileEventSource;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration de l'event store embarque (profil "embedded")
+ *
+ * Lit en lecture seule le repertoire embedded.eventstore.directory ecrit par account-service.
+ * Les nouveaux events sont decouverts a chaque lecture des tracking event processors.
+ */
+@Configuration
+@Profile("embedded")
+public class EmbeddedEventStoreConfig {
+
+    @Bean
+    public MappedFileEventStorageEngine eventStorageEngine(
+            @Qualifier("eventSerializer") Serializer eventSerializer,
+            Serializer serializer,
+            org.axonframework.config.Configuration configuration,
+            @Value("${embedded.eventstore.directory}") String directory,
+            @Value("${embedded.eventstore.batch-size:1000}") int batchSize,
+            @Value("${embedded.eventstore.read-only:true}") boolean readOnly) {
+        return MappedFileEventStorageEngine.builder()
+                .directory(Path.of(directory))
+                .batchSize(batchSize)
+                .readOnly(readOnly)
+                .eventSerializer(eventSerializer)
+                .snapshotSerializer(serializer)
+                .upcasterChain(configuration.upcasterChain())
+                .build();
+    }
+
+    /**
+     * Source des processeurs d'events : types sans handler ecartes a la lecture des segments,
+     * charges utiles deserialisees a la demande
+     */
+    @Bean
+    @ConditionalOnProperty(name = "embedded.eventstore.type-filtering", havingValue = "true", matchIfMissing = true)
+    public MappedFileEventSource mappedFileEventSource(
+            MappedFileEventStorageEngine eventStorageEngine,
+            @Value("${embedded.eventstore.poll-interval-ms:100}") long pollIntervalMs) {
+        return new MappedFileEventSource(eventStorageEngine, Duration.ofMillis(pollIntervalMs));
+    }
+
+    @Autowired
+    public void configureEventSource(EventProcessingConfigurer configurer,
+                                     ObjectProvider<MappedFileEventSource> eventSource) {
+        configurer.configureDefaultStreamableMessageSource(configuration -> {
+            MappedFileEventSource source = eventSource.getIfAvailable();
+            return source != null ? source : configuration.eventStore();
+        });
+    }
+}
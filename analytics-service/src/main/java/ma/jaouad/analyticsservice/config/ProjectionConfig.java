@@ -0,0 +1,96 @@
+package ma.jaouad.analyticsservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.handlers.AnalyticsEventHandler;
+import ma.jaouad.coreapi.eventstore.MappedFileEventSource;
+import ma.jaouad.coreapi.processing.ProjectionProcessorService;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.async.SequentialPerAggregatePolicy;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration du processeur d'events de la projection analytics
+ *
+ * Mode parallele : pooled streaming processor, le flux est reparti en segments
+ * traites en parallele. Les events d'un meme compte (identifiant d'agregat = accountId)
+ * tombent toujours dans le meme segment, l'ordre par compte est donc conserve.
+ * Les segments se divisent/fusionnent a chaud via /admin/processors.
+ * Source du processeur : MappedFileEventSource en profil embedded (si embedded.eventstore.type-filtering),
+ * event store sinon.
+ *
+ * - analytics.projection.parallel.enabled : active/desactive le mode parallele
+ * - analytics.projection.parallel.segments : nombre initial de segments (premier demarrage uniquement)
+ * - analytics.projection.parallel.threads : nombre de workers
+ * - analytics.projection.parallel.virtual-threads : workers en threads virtuels
+ * - projection.lag-metrics.refresh-ms : periode de rafraichissement de la gauge projection.segment.lag
+ */
+@Configuration
+@EnableScheduling
+@Slf4j
+public class ProjectionConfig {
+
+    @Autowired
+    public void configureAnalyticsProjection(
+            EventProcessingConfigurer configurer,
+            ObjectProvider<MappedFileEventSource> eventSource,
+            @Value("${analytics.projection.parallel.enabled:false}") boolean parallelEnabled,
+            @Value("${analytics.projection.parallel.segments:4}") int segments,
+            @Value("${analytics.projection.parallel.threads:4}") int threads,
+            @Value("${analytics.projection.parallel.virtual-threads:true}") boolean virtualThreads) {
+        if (!parallelEnabled) {
+            return;
+        }
+        String processorName = AnalyticsEventHandler.PROCESSING_GROUP;
+        log.info("Analytics projection parallel processing enabled ({} initial segments, {} {} workers)",
+                segments, threads, virtualThreads ? "virtual" : "platform");
+        configurer.registerSequencingPolicy(processorName, configuration -> SequentialPerAggregatePolicy.instance());
+        configurer.registerPooledStreamingEventProcessor(
+            processorName,
+            configuration -> {
+                MappedFileEventSource source = eventSource.getIfAvailable();
+                return source != null ? source : configuration.eventStore();
+            },
+            (configuration, builder) -> {
+                ScheduledExecutorService coordinator = Executors.newSingleThreadScheduledExecutor(
+                    threadFactory(processorName + "-coordinator-", virtualThreads));
+                ScheduledExecutorService workers = Executors.newScheduledThreadPool(
+                    threads, threadFactory(processorName + "-worker-", virtualThreads));
+                configuration.onShutdown(() -> {
+                    workers.shutdown();
+                    coordinator.shutdown();
+                });
+                return builder.initialSegmentCount(segments)
+                    .coordinatorExecutor(coordinator)
+                    .workerExecutor(workers);
+            });
+    }
+
+    @Bean
+    public ProjectionProcessorService projectionProcessorService(
+            EventProcessingConfiguration processingConfiguration,
+            EventStore eventStore,
+            MeterRegistry meterRegistry,
+            @Value("${projection.lag-metrics.refresh-ms:5000}") long lagRefreshMs) {
+        return new ProjectionProcessorService(processingConfiguration, eventStore, meterRegistry,
+                Duration.ofMillis(lagRefreshMs));
+    }
+
+    private static ThreadFactory threadFactory(String prefix, boolean virtualThreads) {
+        return virtualThreads
+            ? Thread.ofVirtual().name(prefix, 0).factory()
+            : Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+    }
+}
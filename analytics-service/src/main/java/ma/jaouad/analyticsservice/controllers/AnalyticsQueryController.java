@@ -1,15 +1,37 @@
 package ma.jaouad.analyticsservice.controllers;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import ma.jaouad.analyticsservice.exceptions.FeatureDisabledException;
+import ma.jaouad.analyticsservice.queries.breakdowns.AccountBreakdownQueryService;
+import ma.jaouad.analyticsservice.queries.breakdowns.BreakdownDimension;
+import ma.jaouad.analyticsservice.queries.columnar.OperationStatistics;
+import ma.jaouad.analyticsservice.queries.columnar.OperationStatisticsQueryService;
 import ma.jaouad.analyticsservice.queries.entities.AccountView;
+import ma.jaouad.analyticsservice.queries.entities.AnalyticsStatistics;
+import ma.jaouad.analyticsservice.queries.handlers.AnalyticsStatisticsHandler;
+import ma.jaouad.analyticsservice.queries.ranking.AccountRankingIndex;
+import ma.jaouad.analyticsservice.queries.ranking.RankedAccount;
+import ma.jaouad.analyticsservice.queries.ranking.RankingMetric;
 import ma.jaouad.analyticsservice.queries.repositories.AccountViewRepository;
-import ma.jaouad.analyticsservice.queries.repositories.OperationViewRepository;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsStatisticsRepository;
+import ma.jaouad.analyticsservice.queries.rollups.AmountPercentiles;
+import ma.jaouad.analyticsservice.queries.rollups.OperationAmountPercentileService;
+import ma.jaouad.analyticsservice.queries.rollups.OperationRollupQueryService;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import ma.jaouad.analyticsservice.queries.rollups.RollupPoint;
+import ma.jaouad.coreapi.enums.AccountStatus;
 import ma.jaouad.coreapi.enums.OperationType;
+import ma.jaouad.coreapi.processing.ProjectionProcessorService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,7 +43,13 @@ import java.util.Map;
 public class AnalyticsQueryController {
     
     private final AccountViewRepository accountViewRepository;
-    private final OperationViewRepository operationViewRepository;
+    private final AnalyticsStatisticsRepository statisticsRepository;
+    private final ProjectionProcessorService projectionProcessorService;
+    private final OperationRollupQueryService rollupQueryService;
+    private final OperationStatisticsQueryService operationStatisticsQueryService;
+    private final OperationAmountPercentileService amountPercentileService;
+    private final AccountRankingIndex accountRankingIndex;
+    private final AccountBreakdownQueryService accountBreakdownQueryService;
 
     @GetMapping("/accounts")
     @Operation(
@@ -35,6 +63,30 @@ public class AnalyticsQueryController {
         return accountViewRepository.findAll();
     }
 
+    @GetMapping("/accounts/top")
+    @Operation(
+        summary = "Classement des comptes",
+        description = "Retourne les premiers comptes selon le solde, le nombre total d'opérations ou le nombre "
+            + "d'opérations du jour (UTC). Le classement est maintenu en mémoire à chaque événement ; "
+            + "les filtres devise et statut sont appliqués pendant le parcours."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Classement récupéré avec succès"),
+        @ApiResponse(responseCode = "400", description = "Limite invalide (au plus analytics.ranking.max-limit)"),
+        @ApiResponse(responseCode = "409", description = "Classement désactivé (analytics.ranking.enabled=false)")
+    })
+    public List<RankedAccount> getTopAccounts(
+            @Parameter(description = "Critère de classement (BALANCE, OPERATIONS, OPERATIONS_TODAY)")
+            @RequestParam(defaultValue = "BALANCE") RankingMetric metric,
+            @Parameter(description = "Nombre de comptes")
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Filtre sur la devise")
+            @RequestParam(required = false) String currency,
+            @Parameter(description = "Filtre sur le statut du compte")
+            @RequestParam(required = false) AccountStatus status) {
+        return accountRankingIndex.top(metric, limit, currency, status);
+    }
+
     @GetMapping("/accounts/total")
     @Operation(
         summary = "Obtenir les totaux des comptes",
@@ -44,26 +96,143 @@ public class AnalyticsQueryController {
         @ApiResponse(responseCode = "200", description = "Totaux calculés avec succès")
     })
     public Map<String, Object> getTotalAccounts() {
+        AnalyticsStatistics statistics = currentStatistics();
         Map<String, Object> result = new HashMap<>();
-        result.put("totalAccounts", accountViewRepository.getTotalAccounts());
-        result.put("totalBalance", accountViewRepository.getTotalBalance());
+        result.put("totalAccounts", statistics.getTotalAccounts());
+        result.put("totalBalance", statistics.getTotalBalance());
+        return result;
+    }
+
+    @GetMapping("/accounts/breakdown")
+    @Operation(
+        summary = "Totaux par devise et par statut",
+        description = "Retourne, pour chaque devise et chaque statut de compte, le nombre de comptes, le solde total "
+            + "et les totaux de crédits / débits. Les agrégats sont maintenus au fil des événements : la lecture "
+            + "ne parcourt ni les comptes ni les opérations."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Totaux récupérés avec succès")
+    })
+    public Map<String, Object> getAccountBreakdown() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("byCurrency", accountBreakdownQueryService.find(BreakdownDimension.CURRENCY));
+        result.put("byStatus", accountBreakdownQueryService.find(BreakdownDimension.STATUS));
         return result;
     }
 
     @GetMapping("/operations/statistics")
     @Operation(
         summary = "Obtenir les statistiques des opérations",
-        description = "Retourne des statistiques détaillées : nombre de crédits/débits et montants totaux"
+        description = "Retourne des statistiques détaillées : nombre de crédits/débits et montants totaux. "
+            + "Sans filtre, les compteurs globaux sont lus directement ; avec une plage de dates, une devise "
+            + "ou un compte, les opérations sont agrégées (store en colonnes si analytics.columnar.enabled, sinon SQL)."
     )
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Statistiques calculées avec succès")
+        @ApiResponse(responseCode = "200", description = "Statistiques calculées avec succès"),
+        @ApiResponse(responseCode = "400", description = "Plage invalide")
     })
-    public Map<String, Object> getOperationStatistics() {
+    public Map<String, Object> getOperationStatistics(
+            @Parameter(description = "Début de la plage (ISO-8601, inclus)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Fin de la plage (ISO-8601, exclue)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Filtre sur la devise")
+            @RequestParam(required = false) String currency,
+            @Parameter(description = "Filtre sur le compte")
+            @RequestParam(required = false) String accountId) {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalCredits", operationViewRepository.countByType(OperationType.CREDIT));
-        stats.put("totalDebits", operationViewRepository.countByType(OperationType.DEBIT));
-        stats.put("amountCredits", operationViewRepository.sumAmountByType(OperationType.CREDIT));
-        stats.put("amountDebits", operationViewRepository.sumAmountByType(OperationType.DEBIT));
+        if (from == null && to == null && currency == null && accountId == null) {
+            AnalyticsStatistics statistics = currentStatistics();
+            stats.put("totalCredits", statistics.getCreditCount());
+            stats.put("totalDebits", statistics.getDebitCount());
+            stats.put("amountCredits", statistics.getCreditAmount());
+            stats.put("amountDebits", statistics.getDebitAmount());
+            return stats;
+        }
+        OperationStatistics statistics = operationStatisticsQueryService.find(from, to, currency, accountId);
+        stats.put("totalCredits", statistics.getCreditCount());
+        stats.put("totalDebits", statistics.getDebitCount());
+        stats.put("amountCredits", statistics.getCreditAmount());
+        stats.put("amountDebits", statistics.getDebitAmount());
         return stats;
     }
+
+    @GetMapping("/operations/rollups")
+    @Operation(
+        summary = "Série temporelle des opérations",
+        description = "Retourne, par bucket de temps (minute, heure ou jour), le nombre, la somme, le min et le max "
+            + "des opérations par type et devise. Les buckets sont lus à la granularité la plus grossière possible "
+            + "puis fusionnés à la résolution demandée (par défaut, la plus fine donnant au plus analytics.rollups.max-points points)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Série récupérée avec succès"),
+        @ApiResponse(responseCode = "400", description = "Plage invalide ou trop de points pour la résolution demandée")
+    })
+    public List<RollupPoint> getOperationRollups(
+            @Parameter(description = "Début de la plage (ISO-8601, inclus, arrondi à la minute)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Fin de la plage (ISO-8601, exclue, maintenant par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Résolution des points (MINUTE, HOUR, DAY)")
+            @RequestParam(required = false) RollupGranularity granularity,
+            @Parameter(description = "Filtre sur le type d'opération")
+            @RequestParam(required = false) OperationType type,
+            @Parameter(description = "Filtre sur la devise")
+            @RequestParam(required = false) String currency) {
+        return rollupQueryService.findRange(from, to != null ? to : Instant.now(), granularity, type, currency);
+    }
+
+    @GetMapping("/operations/percentiles")
+    @Operation(
+        summary = "Percentiles des montants des opérations",
+        description = "Retourne, par type et devise, la distribution des montants sur la plage : nombre, min, max, "
+            + "moyenne et percentiles demandés. Les histogrammes minute / heure / jour des buckets de la plage sont "
+            + "fusionnés ; la précision est fixée par analytics.sketches.significant-digits."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Percentiles calculés avec succès"),
+        @ApiResponse(responseCode = "400", description = "Plage ou percentile invalide"),
+        @ApiResponse(responseCode = "409", description = "Histogrammes désactivés (analytics.sketches.enabled=false)")
+    })
+    public List<AmountPercentiles> getOperationPercentiles(
+            @Parameter(description = "Début de la plage (ISO-8601, inclus, arrondi à la minute)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Fin de la plage (ISO-8601, exclue, maintenant par défaut)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Percentiles à calculer (entre 0 et 100)")
+            @RequestParam(defaultValue = "50,95,99") List<Double> percentiles,
+            @Parameter(description = "Filtre sur le type d'opération")
+            @RequestParam(required = false) OperationType type,
+            @Parameter(description = "Filtre sur la devise")
+            @RequestParam(required = false) String currency) {
+        return amountPercentileService.findRange(from, to != null ? to : Instant.now(), percentiles, type, currency);
+    }
+
+    @PostMapping("/statistics/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(
+        summary = "Reconstruire les statistiques",
+        description = "Remet les compteurs à zéro et les recalcule en rejouant tout le flux d'événements (traitement asynchrone)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Reconstruction lancée")
+    })
+    public void rebuildStatistics() {
+        projectionProcessorService.replay(AnalyticsStatisticsHandler.PROCESSING_GROUP);
+    }
+
+    private AnalyticsStatistics currentStatistics() {
+        return statisticsRepository.findById(AnalyticsStatistics.GLOBAL)
+            .orElseGet(AnalyticsStatistics::empty);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(Map.of("message", ex.getMessage()));
+    }
+
+    @ExceptionHandler(FeatureDisabledException.class)
+    public ResponseEntity<Map<String, String>> handleFeatureDisabled(FeatureDisabledException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", ex.getMessage()));
+    }
 }
@@ -0,0 +1,70 @@
+package ma.jaouad.analyticsservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import ma.jaouad.coreapi.processing.DeadLetterService;
+import ma.jaouad.coreapi.processing.DeadLetterView;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/dead-letters")
+@AllArgsConstructor
+@Tag(name = "Dead Letters", description = "API d'administration des events en échec de la projection analytics")
+public class DeadLetterAdminController {
+
+    private final DeadLetterService deadLetterService;
+
+    @GetMapping
+    @Operation(
+        summary = "Lister les lettres mortes",
+        description = "Retourne les events en échec et ceux mis en attente derrière eux, regroupés par compte (séquence)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lettres mortes récupérées avec succès")
+    })
+    public List<DeadLetterView> list() {
+        return deadLetterService.list();
+    }
+
+    @PostMapping("/retry")
+    @Operation(
+        summary = "Rejouer toutes les séquences",
+        description = "Rejoue une fois chaque séquence, quel que soit son nombre d'échecs"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nombre de séquences entièrement traitées")
+    })
+    public int retryAll() {
+        return deadLetterService.retryAll();
+    }
+
+    @PostMapping("/{sequenceId}/retry")
+    @Operation(
+        summary = "Rejouer une séquence",
+        description = "Rejoue dans l'ordre les events en attente d'un compte"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "true si toute la séquence a été traitée")
+    })
+    public boolean retry(@Parameter(description = "ID du compte") @PathVariable String sequenceId) {
+        return deadLetterService.retry(sequenceId);
+    }
+
+    @DeleteMapping("/{sequenceId}")
+    @Operation(
+        summary = "Supprimer une séquence",
+        description = "Supprime définitivement les events en attente d'un compte : ils ne seront pas appliqués à la projection"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Nombre de lettres supprimées")
+    })
+    public int evict(@Parameter(description = "ID du compte") @PathVariable String sequenceId) {
+        return deadLetterService.evict(sequenceId);
+    }
+}
@@ -0,0 +1,10 @@
+package ma.jaouad.analyticsservice.exceptions;
+
+/**
+ * Fonctionnalite optionnelle desactivee par configuration (reponse 409)
+ */
+public class FeatureDisabledException extends RuntimeException {
+    public FeatureDisabledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,196 @@
+package ma.jaouad.analyticsservice.processing;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.columnar.OperationColumnStore;
+import ma.jaouad.analyticsservice.queries.handlers.AnalyticsEventHandler;
+import ma.jaouad.analyticsservice.queries.ranking.AccountRankingIndex;
+import ma.jaouad.analyticsservice.queries.rebuild.AnalyticsProjectionRebuild;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.analyticsservice.queries.rollups.OperationAmountSketchRecorder;
+import org.axonframework.common.stream.BlockingStream;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.StreamingEventProcessor;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reconstruction rapide de la projection analytics (comptes, operations et agregats)
+ *
+ * Au lieu de rejouer le flux event par event a travers AnalyticsEventHandler, la reconstruction :
+ * 1. arrete le processeur et capture la tete de l'event store
+ * 2. lit le flux jusqu'a cette tete en repliant comptes, agregats et histogrammes en memoire
+ * 3. dans une seule transaction : vide les tables, les recharge en masse (COPY sur PostgreSQL)
+ *    et place les tokens du processeur sur la tete capturee
+ * 4. recharge le store en colonnes des operations depuis les tables rechargees
+ * 5. redemarre le processeur, qui reprend en temps reel a partir de la tete
+ *
+ * Le token store partage la base de la projection : donnees et tokens basculent ensemble.
+ * Le reset des tokens vide aussi la file des lettres mortes, dont les events ont ete relus.
+ * En cas d'echec tout est annule, le processeur reprend la ou il s'etait arrete.
+ * Les statistiques globales (processeur analytics-statistics) ne sont pas concernees.
+ *
+ * - analytics.projection.rebuild.batch-size : lignes par batch JDBC / bloc COPY
+ * - analytics.projection.rebuild.progress-interval : avancement publie tous les N events lus
+ * - analytics.projection.rebuild.spool-directory : repertoire du fichier temporaire des operations
+ */
+@Service
+@Slf4j
+public class ProjectionRebuildService {
+
+    private static final String PROCESSOR = AnalyticsEventHandler.PROCESSING_GROUP;
+
+    private final EventProcessingConfiguration processingConfiguration;
+    private final EventStore eventStore;
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+    private final OperationColumnStore columnStore;
+    private final AccountRankingIndex accountRanking;
+    private final OperationAmountSketchRecorder sketchRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long progressInterval;
+    private final Path spoolDirectory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("projection-rebuild").daemon(true).factory());
+
+    private volatile RebuildStatus status;
+
+    public ProjectionRebuildService(EventProcessingConfiguration processingConfiguration,
+                                    EventStore eventStore,
+                                    AnalyticsProjectionJdbcRepository projectionJdbcRepository,
+                                    OperationColumnStore columnStore,
+                                    AccountRankingIndex accountRanking,
+                                    OperationAmountSketchRecorder sketchRecorder,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${analytics.projection.rebuild.batch-size:5000}") int batchSize,
+                                    @Value("${analytics.projection.rebuild.progress-interval:100000}") long progressInterval,
+                                    @Value("${analytics.projection.rebuild.spool-directory:${java.io.tmpdir}}") Path spoolDirectory) {
+        this.processingConfiguration = processingConfiguration;
+        this.eventStore = eventStore;
+        this.projectionJdbcRepository = projectionJdbcRepository;
+        this.columnStore = columnStore;
+        this.accountRanking = accountRanking;
+        this.sketchRecorder = sketchRecorder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * Lance la reconstruction en arriere-plan
+     *
+     * @return false si une reconstruction est deja en cours
+     */
+    public synchronized boolean start() {
+        if (status != null && status.isRunning()) {
+            return false;
+        }
+        streamingProcessor();
+        status = RebuildStatus.builder()
+            .processor(PROCESSOR)
+            .phase(RebuildStatus.Phase.READING)
+            .startedAt(Instant.now())
+            .build();
+        executor.execute(this::rebuild);
+        return true;
+    }
+
+    /**
+     * @return l'avancement de la derniere reconstruction, null si aucune n'a ete lancee
+     */
+    public RebuildStatus getStatus() {
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void rebuild() {
+        StreamingEventProcessor processor = streamingProcessor();
+        log.info("Rebuilding projection {}: shutting down the processor", PROCESSOR);
+        processor.shutDown();
+        try (AnalyticsProjectionRebuild rebuild = new AnalyticsProjectionRebuild(
+                spoolDirectory, sketchRecorder.isEnabled(), sketchRecorder.getSignificantDigits())) {
+            TrackingToken head = eventStore.createHeadToken();
+            if (head != null) {
+                read(rebuild, head);
+            }
+            log.info("Rebuilding projection {}: writing {} accounts, {} operations and {} rollups",
+                    PROCESSOR, rebuild.accountCount(), rebuild.operationCount(), rebuild.rollupCount());
+            update(status.toBuilder()
+                .phase(RebuildStatus.Phase.WRITING)
+                .accounts(rebuild.accountCount())
+                .operations(rebuild.operationCount())
+                .rollups(rebuild.rollupCount())
+                .build());
+            transactionTemplate.executeWithoutResult(transaction -> {
+                rebuild.write(projectionJdbcRepository, batchSize,
+                    rows -> update(status.toBuilder().rowsWritten(rows).build()));
+                // Meme transaction que les donnees : le processeur reprendra exactement apres la tete lue
+                if (head == null) {
+                    processor.resetTokens();
+                } else {
+                    processor.resetTokens(head);
+                }
+            });
+            columnStore.reload();
+            accountRanking.reload();
+            update(status.toBuilder().phase(RebuildStatus.Phase.COMPLETED).finishedAt(Instant.now()).build());
+            log.info("Projection {} rebuilt from {} events in {} ms", PROCESSOR, status.getEventsRead(),
+                    status.getFinishedAt().toEpochMilli() - status.getStartedAt().toEpochMilli());
+        } catch (Exception e) {
+            log.error("Rebuild of projection {} failed, resuming from the previous position", PROCESSOR, e);
+            update(status.toBuilder()
+                .phase(RebuildStatus.Phase.FAILED)
+                .finishedAt(Instant.now())
+                .error(String.valueOf(e))
+                .build());
+        } finally {
+            processor.start();
+        }
+    }
+
+    private void read(AnalyticsProjectionRebuild rebuild, TrackingToken head) throws InterruptedException {
+        Long target = head.position().isPresent() ? head.position().getAsLong() : null;
+        update(status.toBuilder().targetPosition(target).build());
+        long eventsRead = 0;
+        try (BlockingStream<TrackedEventMessage<?>> stream = eventStore.openStream(null)) {
+            TrackingToken position = null;
+            while (position == null || !position.covers(head)) {
+                TrackedEventMessage<?> event = stream.nextAvailable();
+                rebuild.apply(event);
+                position = event.trackingToken();
+                eventsRead++;
+                if (eventsRead % progressInterval == 0) {
+                    Long current = position.position().isPresent() ? position.position().getAsLong() : null;
+                    update(status.toBuilder().eventsRead(eventsRead).position(current).build());
+                    log.info("Rebuilding projection {}: {} events read (position {} / {})",
+                            PROCESSOR, eventsRead, current, target);
+                }
+            }
+            update(status.toBuilder().eventsRead(eventsRead).position(target).build());
+        }
+    }
+
+    private void update(RebuildStatus status) {
+        this.status = status;
+    }
+
+    private StreamingEventProcessor streamingProcessor() {
+        return processingConfiguration.eventProcessor(PROCESSOR, StreamingEventProcessor.class)
+            .orElseThrow(() -> new IllegalStateException("No streaming event processor named " + PROCESSOR));
+    }
+}
@@ -0,0 +1,40 @@
+package ma.jaouad.analyticsservice.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Avancement de la reconstruction d'une projection
+ *
+ * position / targetPosition : position lue dans l'event store et tete capturee au demarrage
+ * rowsWritten : lignes chargees en base pendant la phase WRITING
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RebuildStatus {
+
+    public enum Phase { READING, WRITING, COMPLETED, FAILED }
+
+    private String processor;
+    private Phase phase;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Long position;
+    private Long targetPosition;
+    private long eventsRead;
+    private long accounts;
+    private long operations;
+    private long rollups;
+    private long rowsWritten;
+    private String error;
+
+    public boolean isRunning() {
+        return phase == Phase.READING || phase == Phase.WRITING;
+    }
+}
@@ -0,0 +1,40 @@
+package ma.jaouad.analyticsservice.queries.breakdowns;
+
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdown;
+import ma.jaouad.analyticsservice.queries.repositories.AccountBreakdownRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lecture des agregats par devise et par statut : une ligne par devise ou statut,
+ * independamment du nombre de comptes et d'operations
+ */
+@Service
+public class AccountBreakdownQueryService {
+
+    private final AccountBreakdownRepository breakdownRepository;
+
+    public AccountBreakdownQueryService(AccountBreakdownRepository breakdownRepository) {
+        this.breakdownRepository = breakdownRepository;
+    }
+
+    /**
+     * @return les totaux par devise ou par statut, tries par cle
+     */
+    public Map<String, BreakdownTotals> find(BreakdownDimension dimension) {
+        Map<String, BreakdownTotals> totals = new TreeMap<>();
+        for (AccountBreakdown breakdown : breakdownRepository.findByDimension(dimension)) {
+            totals.put(breakdown.getId().getGroupKey(), BreakdownTotals.builder()
+                .accountCount(breakdown.getAccountCount())
+                .totalBalance(breakdown.getTotalBalance())
+                .creditCount(breakdown.getCreditCount())
+                .creditAmount(breakdown.getCreditAmount())
+                .debitCount(breakdown.getDebitCount())
+                .debitAmount(breakdown.getDebitAmount())
+                .build());
+        }
+        return totals;
+    }
+}
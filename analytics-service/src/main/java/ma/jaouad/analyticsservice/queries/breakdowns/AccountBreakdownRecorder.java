@@ -0,0 +1,66 @@
+package ma.jaouad.analyticsservice.queries.breakdowns;
+
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdown;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+/**
+ * Alimente les agregats par devise et par statut au fil des events
+ *
+ * Comme OperationRollupRecorder : les variations d'une transaction (unit of work) sont cumulees en memoire,
+ * puis fusionnees au commit en un seul batch d'upserts natifs (AnalyticsProjectionJdbcRepository#upsertBreakdowns),
+ * dans la transaction de la projection. Les agregats avancent donc avec le token du processeur : un arret
+ * brutal ne perd aucune variation. Les verrous des deux lignes touchees (devise, statut) ne sont pris
+ * qu'au commit, dans un ordre stable pour eviter les interblocages entre segments.
+ */
+@Component
+public class AccountBreakdownRecorder {
+
+    private static final String DELTAS_RESOURCE = AccountBreakdownRecorder.class.getName() + ".deltas";
+
+    private static final Comparator<AccountBreakdown> WRITE_ORDER = Comparator
+        .comparing((AccountBreakdown breakdown) -> breakdown.getId().getDimension())
+        .thenComparing(breakdown -> breakdown.getId().getGroupKey());
+
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+
+    public AccountBreakdownRecorder(AnalyticsProjectionJdbcRepository projectionJdbcRepository) {
+        this.projectionJdbcRepository = projectionJdbcRepository;
+    }
+
+    public void accountCreated(String currency, AccountStatus status, double balance) {
+        currentDeltas().accountCreated(currency, status, balance);
+    }
+
+    public void credited(String currency, AccountStatus status, double amount) {
+        currentDeltas().credited(currency, status, amount);
+    }
+
+    public void debited(String currency, AccountStatus status, double amount) {
+        currentDeltas().debited(currency, status, amount);
+    }
+
+    public void statusChanged(AccountStatus from, AccountStatus to, double balance) {
+        currentDeltas().statusChanged(from, to, balance);
+    }
+
+    private BreakdownDeltas currentDeltas() {
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        return unitOfWork.getOrComputeResource(DELTAS_RESOURCE, key -> {
+            BreakdownDeltas deltas = new BreakdownDeltas();
+            unitOfWork.onPrepareCommit(uow -> flush(deltas));
+            return deltas;
+        });
+    }
+
+    private void flush(BreakdownDeltas deltas) {
+        if (!deltas.rows().isEmpty()) {
+            projectionJdbcRepository.upsertBreakdowns(deltas.rows().values().stream().sorted(WRITE_ORDER).toList());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ma.jaouad.analyticsservice.queries.breakdowns;
+
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdown;
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdownId;
+import ma.jaouad.coreapi.enums.AccountStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variations des agregats par devise et par statut provoquees par un event de compte
+ *
+ * Partage par AccountBreakdownRecorder (variations d'une transaction) et par la reconstruction
+ * de la projection (agregats complets en memoire).
+ */
+public class BreakdownDeltas {
+
+    private final Map<AccountBreakdownId, AccountBreakdown> rows = new HashMap<>();
+
+    public void accountCreated(String currency, AccountStatus status, double balance) {
+        for (AccountBreakdown row : rows(currency, status)) {
+            row.setAccountCount(row.getAccountCount() + 1);
+            row.setTotalBalance(row.getTotalBalance() + balance);
+        }
+    }
+
+    public void credited(String currency, AccountStatus status, double amount) {
+        for (AccountBreakdown row : rows(currency, status)) {
+            row.setCreditCount(row.getCreditCount() + 1);
+            row.setCreditAmount(row.getCreditAmount() + amount);
+            row.setTotalBalance(row.getTotalBalance() + amount);
+        }
+    }
+
+    public void debited(String currency, AccountStatus status, double amount) {
+        for (AccountBreakdown row : rows(currency, status)) {
+            row.setDebitCount(row.getDebitCount() + 1);
+            row.setDebitAmount(row.getDebitAmount() + amount);
+            row.setTotalBalance(row.getTotalBalance() - amount);
+        }
+    }
+
+    /**
+     * Le compte et son solde passent d'un statut a l'autre ; les totaux par devise ne changent pas
+     */
+    public void statusChanged(AccountStatus from, AccountStatus to, double balance) {
+        if (from == to) {
+            return;
+        }
+        AccountBreakdown previous = row(BreakdownDimension.STATUS, from.name());
+        previous.setAccountCount(previous.getAccountCount() - 1);
+        previous.setTotalBalance(previous.getTotalBalance() - balance);
+        AccountBreakdown next = row(BreakdownDimension.STATUS, to.name());
+        next.setAccountCount(next.getAccountCount() + 1);
+        next.setTotalBalance(next.getTotalBalance() + balance);
+    }
+
+    public Map<AccountBreakdownId, AccountBreakdown> rows() {
+        return rows;
+    }
+
+    private List<AccountBreakdown> rows(String currency, AccountStatus status) {
+        return List.of(row(BreakdownDimension.CURRENCY, currency), row(BreakdownDimension.STATUS, status.name()));
+    }
+
+    private AccountBreakdown row(BreakdownDimension dimension, String groupKey) {
+        return rows.computeIfAbsent(new AccountBreakdownId(dimension, groupKey),
+            id -> AccountBreakdown.builder().id(id).build());
+    }
+}
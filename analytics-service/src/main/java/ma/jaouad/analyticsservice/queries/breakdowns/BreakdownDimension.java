@@ -0,0 +1,11 @@
+package ma.jaouad.analyticsservice.queries.breakdowns;
+
+/**
+ * Axe de ventilation des agregats de comptes
+ */
+public enum BreakdownDimension {
+    /** Par devise du compte */
+    CURRENCY,
+    /** Par statut du compte (AccountStatus) */
+    STATUS
+}
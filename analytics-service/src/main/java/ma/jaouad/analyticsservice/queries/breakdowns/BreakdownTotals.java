@@ -0,0 +1,19 @@
+package ma.jaouad.analyticsservice.queries.breakdowns;
+
+import lombok.*;
+
+/**
+ * Totaux des comptes d'une devise ou d'un statut
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BreakdownTotals {
+    private long accountCount;
+    private double totalBalance;
+    private long creditCount;
+    private double creditAmount;
+    private long debitCount;
+    private double debitAmount;
+}
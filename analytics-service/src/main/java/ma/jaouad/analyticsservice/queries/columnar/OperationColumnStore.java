@@ -0,0 +1,228 @@
+package ma.jaouad.analyticsservice.queries.columnar;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Store en memoire des operations analytics, en colonnes (OperationColumns)
+ *
+ * Alimente par AnalyticsEventHandler apres le commit de chaque transaction : il ne contient que
+ * des operations validees en base. Il sert les statistiques filtrees (plage de dates, devise, compte)
+ * par un parcours des colonnes, sans charger d'entites.
+ *
+ * Chargement a la creation du bean, avant le demarrage des processeurs d'events :
+ * - l'instantane disque est relu s'il correspond encore a la base (meme nombre d'operations jusqu'a
+ *   son dernier identifiant), puis complete par les operations plus recentes
+ * - sinon (pas d'instantane, base recreee, reconstruction) tout est relu depuis operation_view
+ * L'instantane est reecrit periodiquement s'il y a de nouvelles lignes, et a l'arret.
+ *
+ * - analytics.columnar.enabled : active/desactive le store (sinon requetes JPA)
+ * - analytics.columnar.chunk-size : lignes par bloc de colonnes
+ * - analytics.columnar.fetch-size : lignes lues par aller-retour lors du chargement depuis la base
+ * - analytics.columnar.snapshot.path : fichier de l'instantane (vide : pas d'instantane)
+ * - analytics.columnar.snapshot.interval-ms : intervalle d'ecriture de l'instantane
+ *
+ * Metrique : analytics.columnar.rows
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class OperationColumnStore {
+
+    private static final String ROWS_RESOURCE = OperationColumnStore.class.getName() + ".rows";
+
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final Path snapshotPath;
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile OperationColumns columns;
+    private int snapshotRows = -1;
+
+    public OperationColumnStore(@Value("${analytics.columnar.enabled:false}") boolean enabled,
+                                @Value("${analytics.columnar.chunk-size:65536}") int chunkSize,
+                                @Value("${analytics.columnar.fetch-size:10000}") int fetchSize,
+                                @Value("${analytics.columnar.snapshot.path:}") String snapshotPath,
+                                AnalyticsProjectionJdbcRepository projectionJdbcRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+        this.snapshotPath = snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.projectionJdbcRepository = projectionJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        if (enabled) {
+            Gauge.builder("analytics.columnar.rows", this, store -> store.columns == null ? 0 : store.columns.size())
+                .description("Operations held by the in-memory columnar store")
+                .baseUnit("operations")
+                .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        OperationColumns loaded = readSnapshot();
+        if (loaded == null) {
+            loaded = new OperationColumns(chunkSize);
+        } else {
+            snapshotRows = loaded.size();
+        }
+        int snapshotSize = loaded.size();
+        loadFromDatabase(loaded);
+        columns = loaded;
+        log.info("Columnar operation store loaded: {} operations ({} from snapshot) in {} ms",
+                loaded.size(), snapshotSize, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ajoute l'operation au store apres le commit de la transaction courante (immediatement hors unit of work)
+     */
+    public void record(long operationId, String accountId, String currency, Instant date, double amount,
+                       OperationType type) {
+        if (!enabled) {
+            return;
+        }
+        if (!CurrentUnitOfWork.isStarted()) {
+            columns.append(operationId, accountId, currency, date.toEpochMilli(), amount, type);
+            return;
+        }
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        List<PendingRow> rows = unitOfWork.getOrComputeResource(ROWS_RESOURCE, key -> {
+            List<PendingRow> pending = new ArrayList<>();
+            unitOfWork.afterCommit(uow -> pending.forEach(row -> columns.append(
+                row.operationId(), row.accountId(), row.currency(), row.date().toEpochMilli(), row.amount(), row.type())));
+            return pending;
+        });
+        rows.add(new PendingRow(operationId, accountId, currency, date, amount, type));
+    }
+
+    /**
+     * @param from      debut de la plage (inclus), null si non bornee
+     * @param to        fin de la plage (exclue), null si non bornee
+     * @param currency  filtre optionnel sur la devise
+     * @param accountId filtre optionnel sur le compte
+     */
+    public OperationStatistics aggregate(Instant from, Instant to, String currency, String accountId) {
+        return columns.aggregate(
+            from == null ? Long.MIN_VALUE : from.toEpochMilli(),
+            to == null ? Long.MAX_VALUE : to.toEpochMilli(),
+            currency, accountId);
+    }
+
+    /**
+     * Recharge tout le store depuis la base (apres une reconstruction de la projection)
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        OperationColumns loaded = new OperationColumns(chunkSize);
+        loadFromDatabase(loaded);
+        columns = loaded;
+        log.info("Columnar operation store reloaded: {} operations", loaded.size());
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.columnar.snapshot.interval-ms:300000}")
+    public void writeSnapshot() {
+        if (!enabled || snapshotPath == null || columns == null) {
+            return;
+        }
+        synchronized (this) {
+            OperationColumns current = columns;
+            int rows = current.size();
+            if (rows == snapshotRows) {
+                return;
+            }
+            Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                    current.writeTo(out);
+                }
+                Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                snapshotRows = rows;
+                log.debug("Columnar operation store snapshot written: {} operations", rows);
+            } catch (IOException e) {
+                log.warn("Could not write the columnar operation store snapshot to {}", snapshotPath, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSnapshot();
+    }
+
+    /**
+     * @return l'instantane s'il existe et correspond encore a la base, null sinon
+     */
+    private OperationColumns readSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+            OperationColumns snapshot = OperationColumns.readFrom(in, chunkSize);
+            long rowsInDatabase = projectionJdbcRepository.countOperationsUpTo(snapshot.maxOperationId());
+            if (rowsInDatabase != snapshot.size()) {
+                log.info("Columnar operation store snapshot is stale ({} operations, {} in database), loading from database",
+                        snapshot.size(), rowsInDatabase);
+                return null;
+            }
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("Could not read the columnar operation store snapshot {}, loading from database", snapshotPath, e);
+            return null;
+        }
+    }
+
+    private void loadFromDatabase(OperationColumns target) {
+        long afterId = target.maxOperationId();
+        transactionTemplate.executeWithoutResult(transaction ->
+            projectionJdbcRepository.streamOperations(afterId, fetchSize,
+                (id, accountId, currency, date, amount, type) ->
+                    target.append(id, accountId, currency, date.toEpochMilli(), amount, type)));
+    }
+
+    private record PendingRow(long operationId, String accountId, String currency, Instant date, double amount,
+                              OperationType type) {
+    }
+}
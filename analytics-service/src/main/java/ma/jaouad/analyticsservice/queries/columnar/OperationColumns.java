@@ -0,0 +1,347 @@
+package ma.jaouad.analyticsservice.queries.columnar;
+
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Operations de la projection analytics stockees en colonnes de types primitifs
+ *
+ * Une ligne = une operation : date (epoch ms), montant, type (ordinal) et index du compte.
+ * La devise est portee par le compte (dictionnaire index -> devise), pas par la ligne.
+ * Les colonnes sont decoupees en blocs de taille fixe : l'ajout ne recopie jamais les donnees,
+ * et chaque bloc garde la date min / max de ses lignes pour ecarter sans les lire les blocs
+ * hors de la plage demandee.
+ *
+ * Un seul ecrivain a la fois (append synchronise), lectures sans verrou : les lignes sont ecrites
+ * avant la publication du nombre de lignes (volatile), une lecture ne voit donc que des lignes completes.
+ */
+class OperationColumns {
+
+    private static final int SNAPSHOT_MAGIC = 0x4F50434C;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int TYPE_COUNT = OperationType.values().length;
+
+    private final int chunkSize;
+    private final Map<String, Integer> accountIndex = new ConcurrentHashMap<>();
+    private final Map<String, Short> currencyIndex = new HashMap<>();
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile String[] accountIds = new String[1024];
+    private volatile short[] accountCurrencies = new short[1024];
+    private volatile String[] currencies = new String[0];
+    private int accountCount;
+    private long maxOperationId;
+    private volatile int size;
+
+    OperationColumns(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return le plus grand identifiant d'OperationView ajoute (0 si vide)
+     */
+    synchronized long maxOperationId() {
+        return maxOperationId;
+    }
+
+    /**
+     * Memoire occupee par les colonnes (octets, hors dictionnaires)
+     */
+    long columnBytes() {
+        return (long) chunks.length * chunkSize * (Long.BYTES + Double.BYTES + Byte.BYTES + Integer.BYTES);
+    }
+
+    synchronized void append(long operationId, String accountId, String currency, long timestamp,
+                             double amount, OperationType type) {
+        int row = size;
+        int chunkIndex = row / chunkSize;
+        if (chunkIndex == chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunkIndex + 1);
+            grown[chunkIndex] = new Chunk(chunkSize);
+            chunks = grown;
+        }
+        Chunk chunk = chunks[chunkIndex];
+        int offset = row - chunkIndex * chunkSize;
+        chunk.timestamps[offset] = timestamp;
+        chunk.amounts[offset] = amount;
+        chunk.types[offset] = (byte) type.ordinal();
+        chunk.accounts[offset] = account(accountId, currency);
+        chunk.minTimestamp = Math.min(chunk.minTimestamp, timestamp);
+        chunk.maxTimestamp = Math.max(chunk.maxTimestamp, timestamp);
+        maxOperationId = Math.max(maxOperationId, operationId);
+        size = row + 1;
+    }
+
+    /**
+     * Nombre et somme des operations par type
+     *
+     * @param from      borne basse incluse (epoch ms)
+     * @param to        borne haute exclue (epoch ms)
+     * @param currency  devise, ou null pour toutes
+     * @param accountId compte, ou null pour tous
+     */
+    OperationStatistics aggregate(long from, long to, String currency, String accountId) {
+        int rows = size;
+        Chunk[] chunks = this.chunks;
+        short[] accountCurrencies = this.accountCurrencies;
+        long[] counts = new long[TYPE_COUNT];
+        double[] sums = new double[TYPE_COUNT];
+        int currencyFilter = -1;
+        int accountFilter = -1;
+        if (currency != null) {
+            currencyFilter = indexOf(currencies, currency);
+            if (currencyFilter < 0) {
+                return statistics(counts, sums);
+            }
+        }
+        if (accountId != null) {
+            Integer index = accountIndex.get(accountId);
+            if (index == null) {
+                return statistics(counts, sums);
+            }
+            accountFilter = index;
+        }
+        for (int chunkIndex = 0; chunkIndex * chunkSize < rows; chunkIndex++) {
+            Chunk chunk = chunks[chunkIndex];
+            int length = Math.min(chunkSize, rows - chunkIndex * chunkSize);
+            if (chunk.maxTimestamp < from || chunk.minTimestamp >= to) {
+                continue;
+            }
+            boolean inRange = chunk.minTimestamp >= from && chunk.maxTimestamp < to;
+            if (inRange && currencyFilter < 0 && accountFilter < 0) {
+                sumAll(chunk, length, counts, sums);
+            } else {
+                sumMatching(chunk, length, from, to, currencyFilter, accountFilter, accountCurrencies, counts, sums);
+            }
+        }
+        return statistics(counts, sums);
+    }
+
+    /**
+     * Ecrit les lignes publiees : entete, dictionnaires puis colonnes bloc par bloc
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        int rows;
+        long operationId;
+        int accounts;
+        synchronized (this) {
+            rows = size;
+            operationId = maxOperationId;
+            accounts = accountCount;
+        }
+        Chunk[] chunks = this.chunks;
+        String[] accountIds = this.accountIds;
+        short[] accountCurrencies = this.accountCurrencies;
+        String[] currencies = this.currencies;
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(rows);
+        out.writeLong(operationId);
+        out.writeInt(currencies.length);
+        for (String code : currencies) {
+            out.writeUTF(code);
+        }
+        out.writeInt(accounts);
+        for (int i = 0; i < accounts; i++) {
+            out.writeUTF(accountIds[i]);
+            out.writeShort(accountCurrencies[i]);
+        }
+        for (int chunkIndex = 0; chunkIndex * chunkSize < rows; chunkIndex++) {
+            Chunk chunk = chunks[chunkIndex];
+            int length = Math.min(chunkSize, rows - chunkIndex * chunkSize);
+            ByteBuffer buffer = ByteBuffer.allocate(length * Long.BYTES);
+            buffer.asLongBuffer().put(chunk.timestamps, 0, length);
+            out.write(buffer.array());
+            buffer.clear();
+            buffer.asDoubleBuffer().put(chunk.amounts, 0, length);
+            out.write(buffer.array());
+            out.write(chunk.types, 0, length);
+            buffer.clear();
+            buffer.asIntBuffer().put(chunk.accounts, 0, length);
+            out.write(buffer.array(), 0, length * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Relit un fichier ecrit par writeTo (la taille des blocs peut differer de celle du fichier)
+     */
+    static OperationColumns readFrom(DataInputStream in, int chunkSize) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Not an operation columns snapshot (or unsupported version)");
+        }
+        int rows = in.readInt();
+        long operationId = in.readLong();
+        String[] currencies = new String[in.readInt()];
+        for (int i = 0; i < currencies.length; i++) {
+            currencies[i] = in.readUTF();
+        }
+        String[] accountIds = new String[in.readInt()];
+        short[] accountCurrencies = new short[accountIds.length];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = in.readUTF();
+            accountCurrencies[i] = in.readShort();
+        }
+
+        OperationColumns columns = new OperationColumns(chunkSize);
+        // Memes index que dans le fichier : devises puis comptes enregistres dans l'ordre
+        for (String currency : currencies) {
+            columns.currency(currency);
+        }
+        for (int i = 0; i < accountIds.length; i++) {
+            columns.account(accountIds[i], currencies[accountCurrencies[i]]);
+        }
+        int length = Math.min(rows, chunkSize);
+        long[] timestamps = new long[length];
+        double[] amounts = new double[length];
+        byte[] types = new byte[length];
+        int[] accounts = new int[length];
+        byte[] bytes = new byte[length * Long.BYTES];
+        // Les blocs du fichier ont la taille de ceux de l'instance qui l'a ecrit : relecture par paquets
+        for (int read = 0; read < rows; read += length) {
+            length = Math.min(timestamps.length, rows - read);
+            in.readFully(bytes, 0, length * Long.BYTES);
+            ByteBuffer.wrap(bytes, 0, length * Long.BYTES).asLongBuffer().get(timestamps, 0, length);
+            in.readFully(bytes, 0, length * Double.BYTES);
+            ByteBuffer.wrap(bytes, 0, length * Double.BYTES).asDoubleBuffer().get(amounts, 0, length);
+            in.readFully(types, 0, length);
+            in.readFully(bytes, 0, length * Integer.BYTES);
+            ByteBuffer.wrap(bytes, 0, length * Integer.BYTES).asIntBuffer().get(accounts, 0, length);
+            columns.appendRows(timestamps, amounts, types, accounts, length);
+        }
+        synchronized (columns) {
+            columns.maxOperationId = operationId;
+        }
+        return columns;
+    }
+
+    /**
+     * Ajout en masse de lignes dont les comptes sont deja enregistres
+     */
+    private synchronized void appendRows(long[] timestamps, double[] amounts, byte[] types, int[] accounts, int length) {
+        for (int copied = 0; copied < length; ) {
+            int row = size;
+            int chunkIndex = row / chunkSize;
+            if (chunkIndex == chunks.length) {
+                Chunk[] grown = Arrays.copyOf(chunks, chunkIndex + 1);
+                grown[chunkIndex] = new Chunk(chunkSize);
+                chunks = grown;
+            }
+            Chunk chunk = chunks[chunkIndex];
+            int offset = row - chunkIndex * chunkSize;
+            int count = Math.min(chunkSize - offset, length - copied);
+            System.arraycopy(timestamps, copied, chunk.timestamps, offset, count);
+            System.arraycopy(amounts, copied, chunk.amounts, offset, count);
+            System.arraycopy(types, copied, chunk.types, offset, count);
+            System.arraycopy(accounts, copied, chunk.accounts, offset, count);
+            for (int i = offset; i < offset + count; i++) {
+                chunk.minTimestamp = Math.min(chunk.minTimestamp, chunk.timestamps[i]);
+                chunk.maxTimestamp = Math.max(chunk.maxTimestamp, chunk.timestamps[i]);
+            }
+            copied += count;
+            size = row + count;
+        }
+    }
+
+    private int account(String accountId, String currency) {
+        Integer index = accountIndex.get(accountId);
+        if (index != null) {
+            return index;
+        }
+        int account = accountCount;
+        if (account == accountIds.length) {
+            accountIds = Arrays.copyOf(accountIds, account * 2);
+            accountCurrencies = Arrays.copyOf(accountCurrencies, account * 2);
+        }
+        accountIds[account] = accountId;
+        accountCurrencies[account] = currency(currency);
+        accountCount = account + 1;
+        accountIndex.put(accountId, account);
+        return account;
+    }
+
+    private short currency(String currency) {
+        Short index = currencyIndex.get(currency);
+        if (index != null) {
+            return index;
+        }
+        short code = (short) currencies.length;
+        currencies = Arrays.copyOf(currencies, code + 1);
+        currencies[code] = currency;
+        currencyIndex.put(currency, code);
+        return code;
+    }
+
+    private static void sumAll(Chunk chunk, int length, long[] counts, double[] sums) {
+        byte[] types = chunk.types;
+        double[] amounts = chunk.amounts;
+        for (int i = 0; i < length; i++) {
+            counts[types[i]]++;
+            sums[types[i]] += amounts[i];
+        }
+    }
+
+    private static void sumMatching(Chunk chunk, int length, long from, long to, int currency, int account,
+                                    short[] accountCurrencies, long[] counts, double[] sums) {
+        long[] timestamps = chunk.timestamps;
+        double[] amounts = chunk.amounts;
+        byte[] types = chunk.types;
+        int[] accounts = chunk.accounts;
+        for (int i = 0; i < length; i++) {
+            long timestamp = timestamps[i];
+            int rowAccount = accounts[i];
+            boolean match = timestamp >= from & timestamp < to
+                & (account < 0 | rowAccount == account)
+                & (currency < 0 || accountCurrencies[rowAccount] == currency);
+            if (match) {
+                counts[types[i]]++;
+                sums[types[i]] += amounts[i];
+            }
+        }
+    }
+
+    private static OperationStatistics statistics(long[] counts, double[] sums) {
+        return OperationStatistics.builder()
+            .creditCount(counts[OperationType.CREDIT.ordinal()])
+            .creditAmount(sums[OperationType.CREDIT.ordinal()])
+            .debitCount(counts[OperationType.DEBIT.ordinal()])
+            .debitAmount(sums[OperationType.DEBIT.ordinal()])
+            .build();
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Chunk {
+        private final long[] timestamps;
+        private final double[] amounts;
+        private final byte[] types;
+        private final int[] accounts;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        private Chunk(int size) {
+            this.timestamps = new long[size];
+            this.amounts = new double[size];
+            this.types = new byte[size];
+            this.accounts = new int[size];
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ma.jaouad.analyticsservice.queries.columnar;
+
+import lombok.*;
+
+/**
+ * Nombre et montant total des credits et des debits d'une selection d'operations
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperationStatistics {
+    private long creditCount;
+    private double creditAmount;
+    private long debitCount;
+    private double debitAmount;
+}
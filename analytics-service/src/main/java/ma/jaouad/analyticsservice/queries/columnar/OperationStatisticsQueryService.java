@@ -0,0 +1,55 @@
+package ma.jaouad.analyticsservice.queries.columnar;
+
+import ma.jaouad.analyticsservice.queries.repositories.OperationViewRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Statistiques d'operations filtrees (plage de dates, devise, compte)
+ *
+ * Servies par le store en colonnes s'il est active, sinon par une agregation SQL sur operation_view.
+ */
+@Service
+public class OperationStatisticsQueryService {
+
+    private final OperationColumnStore columnStore;
+    private final OperationViewRepository operationViewRepository;
+
+    public OperationStatisticsQueryService(OperationColumnStore columnStore,
+                                           OperationViewRepository operationViewRepository) {
+        this.columnStore = columnStore;
+        this.operationViewRepository = operationViewRepository;
+    }
+
+    /**
+     * @param from      debut de la plage (inclus), null si non bornee
+     * @param to        fin de la plage (exclue), null si non bornee
+     * @param currency  filtre optionnel sur la devise
+     * @param accountId filtre optionnel sur le compte
+     */
+    @Transactional(readOnly = true)
+    public OperationStatistics find(Instant from, Instant to, String currency, String accountId) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid range: 'from' must be before 'to'");
+        }
+        if (columnStore.isEnabled()) {
+            return columnStore.aggregate(from, to, currency, accountId);
+        }
+        OperationStatistics statistics = new OperationStatistics();
+        for (OperationViewRepository.TypeTotals totals : operationViewRepository.sumByType(from, to, currency, accountId)) {
+            switch (totals.getType()) {
+                case CREDIT -> {
+                    statistics.setCreditCount(totals.getOperationCount());
+                    statistics.setCreditAmount(totals.getTotalAmount());
+                }
+                case DEBIT -> {
+                    statistics.setDebitCount(totals.getOperationCount());
+                    statistics.setDebitAmount(totals.getTotalAmount());
+                }
+            }
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,26 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Compteurs des comptes d'une devise ou d'un statut, maintenus au fil des events
+ *
+ * Les operations sont comptees sous le statut du compte au moment de l'operation.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBreakdown {
+    @EmbeddedId
+    private AccountBreakdownId id;
+    private long accountCount;
+    private double totalBalance;
+    private long creditCount;
+    private double creditAmount;
+    private long debitCount;
+    private double debitAmount;
+}
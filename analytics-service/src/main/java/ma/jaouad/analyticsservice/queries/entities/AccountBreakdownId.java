@@ -0,0 +1,20 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.jaouad.analyticsservice.queries.breakdowns.BreakdownDimension;
+
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class AccountBreakdownId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    private BreakdownDimension dimension;
+    /** Devise ou nom du statut */
+    private String groupKey;
+}
@@ -20,4 +20,11 @@ public class AccountView {
     private AccountStatus status;
     private String currency;
     private int operationCount;
+
+    /**
+     * Numero de sequence (dans le flux du compte) du dernier event applique :
+     * les events de sequence inferieure ou egale sont ignores (redelivery, rejeu).
+     * Null pour un compte projete avant l'ajout de ce suivi.
+     */
+    private Long lastEventSequence;
 }
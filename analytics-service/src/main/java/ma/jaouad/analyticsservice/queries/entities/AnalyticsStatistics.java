@@ -0,0 +1,32 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Compteurs globaux maintenus au fil des events (une seule ligne, id = GLOBAL)
+ *
+ * Remplace les COUNT / SUM sur AccountView et OperationView : la lecture est en O(1).
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsStatistics {
+    public static final String GLOBAL = "GLOBAL";
+
+    @Id
+    private String id;
+    private long totalAccounts;
+    private double totalBalance;
+    private long creditCount;
+    private double creditAmount;
+    private long debitCount;
+    private double debitAmount;
+
+    public static AnalyticsStatistics empty() {
+        return AnalyticsStatistics.builder().id(GLOBAL).build();
+    }
+}
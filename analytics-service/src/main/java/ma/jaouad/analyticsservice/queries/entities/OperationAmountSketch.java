@@ -0,0 +1,23 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Distribution des montants des operations d'un bucket de temps (minute, heure ou jour) par type et devise
+ *
+ * Histogramme HDR compresse (AmountHistograms) : fusionnable, les percentiles d'une plage
+ * se calculent en fusionnant les histogrammes de ses buckets.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperationAmountSketch {
+    @EmbeddedId
+    private OperationRollupId id;
+    @Column(length = 1_000_000)
+    private byte[] histogram;
+}
@@ -0,0 +1,28 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Histogramme des montants ajoutes a un bucket par une transaction de la projection
+ *
+ * Ligne ajoutee sans verrou ni conflit entre segments (OperationAmountSketchRecorder), fusionnee a la
+ * lecture avec l'histogramme du bucket (OperationAmountSketch) puis compactee dans celui-ci
+ * (OperationAmountSketchCompactor).
+ */
+@Entity
+@Table(indexes = @Index(columnList = "granularity, bucket_start"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperationAmountSketchDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Embedded
+    private OperationRollupId bucket;
+    @Column(length = 1_000_000)
+    private byte[] histogram;
+}
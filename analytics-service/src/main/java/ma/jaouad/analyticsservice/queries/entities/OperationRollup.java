@@ -0,0 +1,22 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Agregat des operations d'un bucket de temps (minute, heure ou jour) par type et devise
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperationRollup {
+    @EmbeddedId
+    private OperationRollupId id;
+    private long operationCount;
+    private double totalAmount;
+    private double minAmount;
+    private double maxAmount;
+}
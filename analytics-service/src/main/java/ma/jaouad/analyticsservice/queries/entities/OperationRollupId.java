@@ -0,0 +1,24 @@
+package ma.jaouad.analyticsservice.queries.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class OperationRollupId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    private RollupGranularity granularity;
+    private Instant bucketStart;
+    @Enumerated(EnumType.STRING)
+    private OperationType type;
+    private String currency;
+}
@@ -1,35 +1,69 @@
 package ma.jaouad.analyticsservice.queries.handlers;
 
 import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.breakdowns.AccountBreakdownRecorder;
+import ma.jaouad.analyticsservice.queries.columnar.OperationColumnStore;
 import ma.jaouad.analyticsservice.queries.entities.AccountView;
 import ma.jaouad.analyticsservice.queries.entities.OperationView;
+import ma.jaouad.analyticsservice.queries.ranking.AccountRankingIndex;
 import ma.jaouad.analyticsservice.queries.repositories.AccountViewRepository;
 import ma.jaouad.analyticsservice.queries.repositories.OperationViewRepository;
+import ma.jaouad.analyticsservice.queries.rollups.OperationAmountSketchRecorder;
+import ma.jaouad.analyticsservice.queries.rollups.OperationRollupRecorder;
 import ma.jaouad.coreapi.enums.OperationType;
 import ma.jaouad.coreapi.events.AccountCreatedEvent;
 import ma.jaouad.coreapi.events.AccountCreditedEvent;
 import ma.jaouad.coreapi.events.AccountDebitedEvent;
 import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import ma.jaouad.coreapi.exceptions.AccountNotFoundException;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.DomainEventMessage;
 import org.axonframework.eventhandling.EventHandler;
 import org.axonframework.eventhandling.EventMessage;
 import org.springframework.stereotype.Service;
 
 @Service
 @Slf4j
+@ProcessingGroup(AnalyticsEventHandler.PROCESSING_GROUP)
 public class AnalyticsEventHandler {
-    
+
+    /**
+     * Nom du processeur d'events (nom du package, attribue par defaut par Axon) :
+     * le conserver evite de perdre les tokens deja enregistres et de rejouer la projection
+     */
+    public static final String PROCESSING_GROUP = "ma.jaouad.analyticsservice.queries.handlers";
+
     private final AccountViewRepository accountViewRepository;
     private final OperationViewRepository operationViewRepository;
+    private final OperationRollupRecorder rollupRecorder;
+    private final OperationAmountSketchRecorder sketchRecorder;
+    private final OperationColumnStore columnStore;
+    private final AccountRankingIndex accountRanking;
+    private final AccountBreakdownRecorder breakdownRecorder;
 
     public AnalyticsEventHandler(AccountViewRepository accountViewRepository,
-                                 OperationViewRepository operationViewRepository) {
+                                 OperationViewRepository operationViewRepository,
+                                 OperationRollupRecorder rollupRecorder,
+                                 OperationAmountSketchRecorder sketchRecorder,
+                                 OperationColumnStore columnStore,
+                                 AccountRankingIndex accountRanking,
+                                 AccountBreakdownRecorder breakdownRecorder) {
         this.accountViewRepository = accountViewRepository;
         this.operationViewRepository = operationViewRepository;
+        this.rollupRecorder = rollupRecorder;
+        this.sketchRecorder = sketchRecorder;
+        this.columnStore = columnStore;
+        this.accountRanking = accountRanking;
+        this.breakdownRecorder = breakdownRecorder;
     }
 
     @EventHandler
     public void on(AccountCreatedEvent event, EventMessage<?> eventMessage) {
         log.info("Analytics: AccountCreatedEvent received");
+        if (accountViewRepository.existsById(event.getAccountId())) {
+            log.debug("Analytics: AccountCreatedEvent already applied to account {}", event.getAccountId());
+            return;
+        }
         AccountView accountView = AccountView.builder()
             .id(event.getAccountId())
             .balance(event.getInitialBalance())
@@ -37,15 +71,21 @@ public class AnalyticsEventHandler {
             .status(event.getAccountStatus())
             .createdAt(eventMessage.getTimestamp())
             .operationCount(0)
+            .lastEventSequence(sequenceNumber(eventMessage))
             .build();
         accountViewRepository.save(accountView);
+        breakdownRecorder.accountCreated(accountView.getCurrency(), accountView.getStatus(), accountView.getBalance());
+        accountRanking.record(accountView, null);
     }
 
     @EventHandler
     public void on(AccountCreditedEvent event, EventMessage<?> eventMessage) {
         log.info("Analytics: AccountCreditedEvent received");
         AccountView accountView = accountViewRepository.findById(event.getAccountId())
-            .orElseThrow(() -> new RuntimeException("Account not found"));
+            .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(accountView, eventMessage)) {
+            return;
+        }
         
         OperationView operation = OperationView.builder()
             .accountId(event.getAccountId())
@@ -54,17 +94,27 @@ public class AnalyticsEventHandler {
             .type(OperationType.CREDIT)
             .build();
         operationViewRepository.save(operation);
+        rollupRecorder.record(OperationType.CREDIT, accountView.getCurrency(), eventMessage.getTimestamp(), event.getAmount());
+        sketchRecorder.record(OperationType.CREDIT, accountView.getCurrency(), eventMessage.getTimestamp(), event.getAmount());
+        columnStore.record(operation.getId(), event.getAccountId(), accountView.getCurrency(),
+            eventMessage.getTimestamp(), event.getAmount(), OperationType.CREDIT);
+        breakdownRecorder.credited(accountView.getCurrency(), accountView.getStatus(), event.getAmount());
         
         accountView.setBalance(accountView.getBalance() + event.getAmount());
         accountView.setOperationCount(accountView.getOperationCount() + 1);
+        accountView.setLastEventSequence(sequenceNumber(eventMessage));
         accountViewRepository.save(accountView);
+        accountRanking.record(accountView, eventMessage.getTimestamp());
     }
 
     @EventHandler
     public void on(AccountDebitedEvent event, EventMessage<?> eventMessage) {
         log.info("Analytics: AccountDebitedEvent received");
         AccountView accountView = accountViewRepository.findById(event.getAccountId())
-            .orElseThrow(() -> new RuntimeException("Account not found"));
+            .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(accountView, eventMessage)) {
+            return;
+        }
         
         OperationView operation = OperationView.builder()
             .accountId(event.getAccountId())
@@ -73,19 +123,51 @@ public class AnalyticsEventHandler {
             .type(OperationType.DEBIT)
             .build();
         operationViewRepository.save(operation);
+        rollupRecorder.record(OperationType.DEBIT, accountView.getCurrency(), eventMessage.getTimestamp(), event.getAmount());
+        sketchRecorder.record(OperationType.DEBIT, accountView.getCurrency(), eventMessage.getTimestamp(), event.getAmount());
+        columnStore.record(operation.getId(), event.getAccountId(), accountView.getCurrency(),
+            eventMessage.getTimestamp(), event.getAmount(), OperationType.DEBIT);
+        breakdownRecorder.debited(accountView.getCurrency(), accountView.getStatus(), event.getAmount());
         
         accountView.setBalance(accountView.getBalance() - event.getAmount());
         accountView.setOperationCount(accountView.getOperationCount() + 1);
+        accountView.setLastEventSequence(sequenceNumber(eventMessage));
         accountViewRepository.save(accountView);
+        accountRanking.record(accountView, eventMessage.getTimestamp());
     }
 
     @EventHandler
     public void on(AccountStatusUpdatedEvent event, EventMessage<?> eventMessage) {
         log.info("Analytics: AccountStatusUpdatedEvent received");
         AccountView accountView = accountViewRepository.findById(event.getAccountId())
-            .orElseThrow(() -> new RuntimeException("Account not found"));
+            .orElseThrow(() -> new AccountNotFoundException(event.getAccountId()));
+        if (skip(accountView, eventMessage)) {
+            return;
+        }
         
+        breakdownRecorder.statusChanged(accountView.getStatus(), event.getToStatus(), accountView.getBalance());
         accountView.setStatus(event.getToStatus());
+        accountView.setLastEventSequence(sequenceNumber(eventMessage));
         accountViewRepository.save(accountView);
+        accountRanking.record(accountView, null);
+    }
+
+    /**
+     * Un event d'agregat deja applique (sequence inferieure ou egale a la derniere appliquee) est ignore :
+     * pas de double comptage des operations et des agregats en cas de redelivery ou de rejeu
+     */
+    private static boolean skip(AccountView accountView, EventMessage<?> eventMessage) {
+        Long sequenceNumber = sequenceNumber(eventMessage);
+        Long lastEventSequence = accountView.getLastEventSequence();
+        if (lastEventSequence == null || sequenceNumber == null || sequenceNumber > lastEventSequence) {
+            return false;
+        }
+        log.debug("Analytics: event {} (sequence {}) already applied to account {} (last sequence {})",
+                eventMessage.getPayloadType().getSimpleName(), sequenceNumber, accountView.getId(), lastEventSequence);
+        return true;
+    }
+
+    private static Long sequenceNumber(EventMessage<?> eventMessage) {
+        return eventMessage instanceof DomainEventMessage<?> domainEvent ? domainEvent.getSequenceNumber() : null;
     }
 }
@@ -0,0 +1,66 @@
+package ma.jaouad.analyticsservice.queries.handlers;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.entities.AnalyticsStatistics;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsStatisticsRepository;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ResetHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Maintient la table AnalyticsStatistics au fil des events
+ *
+ * Processeur dedie (analytics-statistics) : il peut etre rejoue seul depuis le debut
+ * du flux d'events (POST /analytics/statistics/rebuild) sans toucher aux autres vues.
+ * Le @ResetHandler remet les compteurs a zero avant le rejeu.
+ */
+@Service
+@Slf4j
+@ProcessingGroup(AnalyticsStatisticsHandler.PROCESSING_GROUP)
+public class AnalyticsStatisticsHandler {
+
+    public static final String PROCESSING_GROUP = "analytics-statistics";
+
+    private final AnalyticsStatisticsRepository statisticsRepository;
+
+    public AnalyticsStatisticsHandler(AnalyticsStatisticsRepository statisticsRepository) {
+        this.statisticsRepository = statisticsRepository;
+    }
+
+    @EventHandler
+    public void on(AccountCreatedEvent event) {
+        increment(() -> statisticsRepository.recordAccountCreated(event.getInitialBalance()));
+    }
+
+    @EventHandler
+    public void on(AccountCreditedEvent event) {
+        increment(() -> statisticsRepository.recordCredit(event.getAmount()));
+    }
+
+    @EventHandler
+    public void on(AccountDebitedEvent event) {
+        increment(() -> statisticsRepository.recordDebit(event.getAmount()));
+    }
+
+    @ResetHandler
+    public void onReset() {
+        log.info("Analytics statistics reset before replay");
+        statisticsRepository.save(AnalyticsStatistics.empty());
+    }
+
+    /**
+     * La ligne de compteurs est creee au premier event (un seul thread ecrit : pas de concurrence)
+     */
+    private void increment(IntSupplier update) {
+        if (update.getAsInt() == 0) {
+            statisticsRepository.saveAndFlush(AnalyticsStatistics.empty());
+            update.getAsInt();
+        }
+    }
+}
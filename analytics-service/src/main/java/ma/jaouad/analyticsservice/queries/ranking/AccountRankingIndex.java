@@ -0,0 +1,275 @@
+package ma.jaouad.analyticsservice.queries.ranking;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.exceptions.FeatureDisabledException;
+import ma.jaouad.analyticsservice.queries.entities.AccountView;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Classement en memoire des comptes par solde, nombre d'operations et activite du jour
+ *
+ * Chaque classement est un ensemble trie (skip list) : une mise a jour retire l'ancienne entree
+ * du compte et insere la nouvelle en O(log n), le top k se lit en parcourant le debut de l'ensemble
+ * en O(k). Avec des filtres (devise, statut), le parcours continue jusqu'a k comptes retenus.
+ *
+ * Alimente par AnalyticsEventHandler apres le commit de chaque transaction. Charge depuis
+ * account_view et operation_view a la creation du bean (avant le demarrage des processeurs d'events),
+ * recharge apres une reconstruction de la projection. L'activite du jour repart de zero au premier
+ * event d'un nouveau jour (UTC).
+ *
+ * - analytics.ranking.enabled : active/desactive le classement
+ * - analytics.ranking.max-limit : nombre maximal de comptes par reponse
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class AccountRankingIndex {
+
+    private static final String UPDATES_RESOURCE = AccountRankingIndex.class.getName() + ".updates";
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final Comparator<Entry> BY_BALANCE = Comparator
+        .comparingDouble(Entry::balance).reversed()
+        .thenComparing(Entry::accountId);
+    private static final Comparator<Entry> BY_OPERATIONS = Comparator
+        .comparingInt(Entry::operationCount).reversed()
+        .thenComparing(Entry::accountId);
+    private static final Comparator<Activity> BY_ACTIVITY = Comparator
+        .comparingInt(Activity::count).reversed()
+        .thenComparing(Activity::accountId);
+
+    private final boolean enabled;
+    private final int maxLimit;
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock = Clock.systemUTC();
+
+    private volatile Rankings rankings = new Rankings(LocalDate.now(ZoneOffset.UTC));
+
+    public AccountRankingIndex(@Value("${analytics.ranking.enabled:true}") boolean enabled,
+                               @Value("${analytics.ranking.max-limit:1000}") int maxLimit,
+                               AnalyticsProjectionJdbcRepository projectionJdbcRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.maxLimit = maxLimit;
+        this.projectionJdbcRepository = projectionJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        rankings = loadFromDatabase();
+        log.info("Account ranking loaded: {} accounts in {} ms",
+                rankings.accounts.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Recharge le classement depuis la base (apres une reconstruction de la projection)
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        rankings = loadFromDatabase();
+        log.info("Account ranking reloaded: {} accounts", rankings.accounts.size());
+    }
+
+    /**
+     * Enregistre le nouvel etat du compte, applique apres le commit de la transaction courante
+     * (immediatement hors unit of work)
+     *
+     * @param operationDate date de l'operation a compter dans l'activite du jour, null si aucune
+     */
+    public void record(AccountView account, Instant operationDate) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(account.getId(), account.getCurrency(), account.getStatus(),
+            account.getBalance(), account.getOperationCount());
+        if (!CurrentUnitOfWork.isStarted()) {
+            rankings.apply(entry, operationDate);
+            return;
+        }
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        List<Update> updates = unitOfWork.getOrComputeResource(UPDATES_RESOURCE, key -> {
+            List<Update> pending = new ArrayList<>();
+            unitOfWork.afterCommit(uow -> {
+                Rankings current = rankings;
+                pending.forEach(update -> current.apply(update.entry(), update.operationDate()));
+            });
+            return pending;
+        });
+        updates.add(new Update(entry, operationDate));
+    }
+
+    /**
+     * @param limit    nombre de comptes (au plus analytics.ranking.max-limit)
+     * @param currency filtre optionnel sur la devise
+     * @param status   filtre optionnel sur le statut
+     */
+    public List<RankedAccount> top(RankingMetric metric, int limit, String currency, AccountStatus status) {
+        if (!enabled) {
+            throw new FeatureDisabledException("Account ranking is disabled (analytics.ranking.enabled=false)");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limit " + limit + ": expected a value between 1 and " + maxLimit);
+        }
+        Rankings current = rankings;
+        List<RankedAccount> result = new ArrayList<>(limit);
+        if (metric == RankingMetric.OPERATIONS_TODAY) {
+            if (!current.isToday(LocalDate.now(clock))) {
+                return result;
+            }
+            for (Activity activity : current.byActivity) {
+                Entry entry = current.accounts.get(activity.accountId());
+                if (entry != null && entry.matches(currency, status)) {
+                    result.add(rank(result.size() + 1, entry, activity.count()));
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+        NavigableSet<Entry> ranking = metric == RankingMetric.BALANCE ? current.byBalance : current.byOperations;
+        boolean today = current.isToday(LocalDate.now(clock));
+        for (Entry entry : ranking) {
+            if (entry.matches(currency, status)) {
+                result.add(rank(result.size() + 1, entry, today ? current.activityOf(entry.accountId()) : 0));
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Rankings loadFromDatabase() {
+        LocalDate today = LocalDate.now(clock);
+        Rankings loaded = new Rankings(today);
+        transactionTemplate.executeWithoutResult(transaction -> {
+            projectionJdbcRepository.streamAccounts(FETCH_SIZE, account -> loaded.apply(new Entry(account.getId(),
+                account.getCurrency(), account.getStatus(), account.getBalance(), account.getOperationCount()), null));
+            projectionJdbcRepository.countOperationsByAccountSince(today.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                loaded::setActivity);
+        });
+        return loaded;
+    }
+
+    private static RankedAccount rank(int rank, Entry entry, int operationsToday) {
+        return RankedAccount.builder()
+            .rank(rank)
+            .accountId(entry.accountId())
+            .currency(entry.currency())
+            .status(entry.status())
+            .balance(entry.balance())
+            .operationCount(entry.operationCount())
+            .operationsToday(operationsToday)
+            .build();
+    }
+
+    /**
+     * Etat des classements, remplace d'un bloc au rechargement
+     */
+    private static final class Rankings {
+        private final Map<String, Entry> accounts = new ConcurrentHashMap<>();
+        private final NavigableSet<Entry> byBalance = new ConcurrentSkipListSet<>(BY_BALANCE);
+        private final NavigableSet<Entry> byOperations = new ConcurrentSkipListSet<>(BY_OPERATIONS);
+        private final Map<String, Activity> activities = new HashMap<>();
+        private final NavigableSet<Activity> byActivity = new ConcurrentSkipListSet<>(BY_ACTIVITY);
+        private volatile LocalDate activityDay;
+
+        private Rankings(LocalDate activityDay) {
+            this.activityDay = activityDay;
+        }
+
+        /**
+         * Les mises a jour d'un meme compte sont serialisees par le verrou de son entree dans la map
+         */
+        private void apply(Entry entry, Instant operationDate) {
+            accounts.compute(entry.accountId(), (accountId, previous) -> {
+                if (previous != null) {
+                    byBalance.remove(previous);
+                    byOperations.remove(previous);
+                }
+                byBalance.add(entry);
+                byOperations.add(entry);
+                return entry;
+            });
+            if (operationDate != null) {
+                countActivity(entry.accountId(), LocalDate.ofInstant(operationDate, ZoneOffset.UTC));
+            }
+        }
+
+        private synchronized void countActivity(String accountId, LocalDate day) {
+            if (day.isBefore(activityDay)) {
+                return;
+            }
+            if (day.isAfter(activityDay)) {
+                activities.clear();
+                byActivity.clear();
+                activityDay = day;
+            }
+            Activity previous = activities.get(accountId);
+            setActivity(accountId, previous == null ? 1 : previous.count() + 1);
+        }
+
+        private synchronized void setActivity(String accountId, int count) {
+            Activity activity = new Activity(accountId, count);
+            Activity previous = activities.put(accountId, activity);
+            if (previous != null) {
+                byActivity.remove(previous);
+            }
+            byActivity.add(activity);
+        }
+
+        private synchronized int activityOf(String accountId) {
+            Activity activity = activities.get(accountId);
+            return activity == null ? 0 : activity.count();
+        }
+
+        private boolean isToday(LocalDate today) {
+            return activityDay.equals(today);
+        }
+    }
+
+    private record Entry(String accountId, String currency, AccountStatus status, double balance, int operationCount) {
+
+        private boolean matches(String currency, AccountStatus status) {
+            return (currency == null || currency.equals(this.currency)) && (status == null || status == this.status);
+        }
+    }
+
+    private record Activity(String accountId, int count) {
+    }
+
+    private record Update(Entry entry, Instant operationDate) {
+    }
+}
@@ -0,0 +1,21 @@
+package ma.jaouad.analyticsservice.queries.ranking;
+
+import lombok.*;
+import ma.jaouad.coreapi.enums.AccountStatus;
+
+/**
+ * Compte classe : rang (a partir de 1) dans le classement demande, filtres appliques
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RankedAccount {
+    private int rank;
+    private String accountId;
+    private String currency;
+    private AccountStatus status;
+    private double balance;
+    private int operationCount;
+    private int operationsToday;
+}
@@ -0,0 +1,13 @@
+package ma.jaouad.analyticsservice.queries.ranking;
+
+/**
+ * Critere de classement des comptes
+ */
+public enum RankingMetric {
+    /** Solde courant */
+    BALANCE,
+    /** Nombre total d'operations */
+    OPERATIONS,
+    /** Nombre d'operations du jour (UTC) */
+    OPERATIONS_TODAY
+}
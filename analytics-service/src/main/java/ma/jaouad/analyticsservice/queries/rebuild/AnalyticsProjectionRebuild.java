@@ -0,0 +1,170 @@
+package ma.jaouad.analyticsservice.queries.rebuild;
+
+import ma.jaouad.analyticsservice.queries.breakdowns.BreakdownDeltas;
+import ma.jaouad.analyticsservice.queries.entities.AccountView;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketch;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollup;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.entities.OperationView;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.analyticsservice.queries.rollups.AmountHistograms;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import ma.jaouad.coreapi.enums.OperationType;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import ma.jaouad.coreapi.exceptions.AccountNotFoundException;
+import ma.jaouad.coreapi.rebuild.OperationSpool;
+import org.HdrHistogram.Histogram;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Reconstruction de la projection analytics en une passe sur le flux d'events
+ *
+ * Les memes regles qu'AnalyticsEventHandler, appliquees en memoire :
+ * - l'etat final de chaque compte (solde, statut, nombre d'operations, derniere sequence) est replie dans une map
+ * - les agregats minute / heure / jour sont cumules en memoire, un seul INSERT par bucket
+ * - de meme pour les histogrammes de montants (si actives) et les agregats par devise / statut
+ * - les operations sont ecrites dans un fichier temporaire (OperationSpool)
+ * write() charge ensuite les tables en masse.
+ */
+public class AnalyticsProjectionRebuild implements AutoCloseable {
+
+    private final Map<String, AccountView> accounts = new LinkedHashMap<>();
+    private final Map<OperationRollupId, OperationRollup> rollups = new HashMap<>();
+    private final Map<OperationRollupId, Histogram> sketches = new HashMap<>();
+    private final BreakdownDeltas breakdowns = new BreakdownDeltas();
+    private final OperationSpool<OperationView> operations;
+    private final boolean sketchesEnabled;
+    private final int sketchSignificantDigits;
+
+    public AnalyticsProjectionRebuild(Path spoolDirectory, boolean sketchesEnabled, int sketchSignificantDigits)
+            throws IOException {
+        this.operations = new OperationSpool<>(spoolDirectory, "analytics-projection-rebuild-",
+            (accountId, type, amount, date) -> OperationView.builder()
+                .accountId(accountId)
+                .type(type)
+                .amount(amount)
+                .date(date)
+                .build());
+        this.sketchesEnabled = sketchesEnabled;
+        this.sketchSignificantDigits = sketchSignificantDigits;
+    }
+
+    public void apply(EventMessage<?> eventMessage) {
+        switch (eventMessage.getPayload()) {
+            case AccountCreatedEvent event -> {
+                accounts.put(event.getAccountId(), AccountView.builder()
+                    .id(event.getAccountId())
+                    .balance(event.getInitialBalance())
+                    .currency(event.getCurrency())
+                    .status(event.getAccountStatus())
+                    .createdAt(eventMessage.getTimestamp())
+                    .operationCount(0)
+                    .lastEventSequence(sequenceNumber(eventMessage))
+                    .build());
+                breakdowns.accountCreated(event.getCurrency(), event.getAccountStatus(), event.getInitialBalance());
+            }
+            case AccountCreditedEvent event ->
+                operation(account(event.getAccountId(), eventMessage), OperationType.CREDIT, event.getAmount(), eventMessage.getTimestamp());
+            case AccountDebitedEvent event ->
+                operation(account(event.getAccountId(), eventMessage), OperationType.DEBIT, event.getAmount(), eventMessage.getTimestamp());
+            case AccountStatusUpdatedEvent event -> {
+                AccountView account = account(event.getAccountId(), eventMessage);
+                breakdowns.statusChanged(account.getStatus(), event.getToStatus(), account.getBalance());
+                account.setStatus(event.getToStatus());
+            }
+            default -> {
+                // Events sans effet sur la projection
+            }
+        }
+    }
+
+    public int accountCount() {
+        return accounts.size();
+    }
+
+    public long operationCount() {
+        return operations.size();
+    }
+
+    public int rollupCount() {
+        return rollups.size();
+    }
+
+    /**
+     * Vide la projection puis la recharge (a executer dans la transaction de la reconstruction)
+     *
+     * @param progress recoit le nombre de lignes ecrites au fil du chargement
+     */
+    public void write(AnalyticsProjectionJdbcRepository repository, int batchSize, LongConsumer progress) {
+        repository.truncateProjection();
+        long accountRows = repository.bulkInsertAccounts(accounts.values().iterator(), batchSize, progress);
+        repository.insertBreakdowns(breakdowns.rows().values());
+        long rollupRows = accountRows + repository.bulkInsertRollups(rollups.values().iterator(), batchSize,
+            rows -> progress.accept(accountRows + rows));
+        long sketchRows = rollupRows + repository.bulkInsertSketches(sketches.entrySet().stream()
+            .map(sketch -> OperationAmountSketch.builder()
+                .id(sketch.getKey())
+                .histogram(AmountHistograms.encode(sketch.getValue()))
+                .build())
+            .iterator(), batchSize, rows -> progress.accept(rollupRows + rows));
+        repository.bulkInsertOperations(operations.read(), batchSize,
+            rows -> progress.accept(sketchRows + rows));
+    }
+
+    @Override
+    public void close() throws IOException {
+        operations.close();
+    }
+
+    private void operation(AccountView account, OperationType type, double amount, Instant date) {
+        operations.append(account.getId(), type, amount, date);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            OperationRollupId id = new OperationRollupId(granularity, granularity.floor(date), type, account.getCurrency());
+            OperationRollup rollup = rollups.computeIfAbsent(id, key -> OperationRollup.builder()
+                .id(key)
+                .minAmount(amount)
+                .maxAmount(amount)
+                .build());
+            rollup.setOperationCount(rollup.getOperationCount() + 1);
+            rollup.setTotalAmount(rollup.getTotalAmount() + amount);
+            rollup.setMinAmount(Math.min(rollup.getMinAmount(), amount));
+            rollup.setMaxAmount(Math.max(rollup.getMaxAmount(), amount));
+            if (sketchesEnabled) {
+                AmountHistograms.record(
+                    sketches.computeIfAbsent(id, key -> AmountHistograms.create(sketchSignificantDigits)), amount);
+            }
+        }
+        if (type == OperationType.CREDIT) {
+            breakdowns.credited(account.getCurrency(), account.getStatus(), amount);
+        } else {
+            breakdowns.debited(account.getCurrency(), account.getStatus(), amount);
+        }
+        account.setBalance(account.getBalance() + (type == OperationType.CREDIT ? amount : -amount));
+        account.setOperationCount(account.getOperationCount() + 1);
+    }
+
+    private AccountView account(String accountId, EventMessage<?> eventMessage) {
+        AccountView account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        account.setLastEventSequence(sequenceNumber(eventMessage));
+        return account;
+    }
+
+    private static Long sequenceNumber(EventMessage<?> eventMessage) {
+        return eventMessage instanceof DomainEventMessage<?> domainEvent ? domainEvent.getSequenceNumber() : null;
+    }
+}
@@ -0,0 +1,15 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import ma.jaouad.analyticsservice.queries.breakdowns.BreakdownDimension;
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdown;
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdownId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface AccountBreakdownRepository extends JpaRepository<AccountBreakdown, AccountBreakdownId> {
+
+    @Query("SELECT b FROM AccountBreakdown b WHERE b.id.dimension = ?1 ORDER BY b.id.groupKey")
+    List<AccountBreakdown> findByDimension(BreakdownDimension dimension);
+}
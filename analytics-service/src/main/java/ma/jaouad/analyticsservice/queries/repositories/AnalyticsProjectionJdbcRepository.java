@@ -0,0 +1,348 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import ma.jaouad.analyticsservice.queries.entities.AccountBreakdown;
+import ma.jaouad.analyticsservice.queries.entities.AccountView;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketch;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketchDelta;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollup;
+import ma.jaouad.analyticsservice.queries.entities.OperationView;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.jdbc.BulkLoader;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.ObjIntConsumer;
+
+import static ma.jaouad.coreapi.jdbc.BulkLoader.csv;
+
+/**
+ * Chargement en masse de la projection analytics (reconstruction)
+ *
+ * COPY FROM STDIN sur PostgreSQL, batchs JDBC de taille fixe sur les autres bases (H2).
+ * Lecture en flux des operations (store en colonnes) et des comptes (classement des comptes).
+ * Fusion des agregats au fil des events : upsert natif (INSERT ... ON CONFLICT sur PostgreSQL,
+ * MERGE sur H2), une ligne creee en parallele par un autre segment est fusionnee, pas rejetee.
+ * Histogrammes de montants : une ligne ajoutee par transaction, sans conflit possible.
+ */
+@Repository
+public class AnalyticsProjectionJdbcRepository {
+
+    private static final String INSERT_ACCOUNT =
+        "INSERT INTO account_view (id, created_at, balance, status, currency, operation_count, last_event_sequence) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_OPERATION =
+        "INSERT INTO operation_view (account_id, date, amount, type) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ROLLUP =
+        "INSERT INTO operation_rollup (granularity, bucket_start, type, currency, operation_count, total_amount, "
+            + "min_amount, max_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_BREAKDOWN =
+        "INSERT INTO account_breakdown (dimension, group_key, account_count, total_balance, credit_count, credit_amount, "
+            + "debit_count, debit_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SKETCH =
+        "INSERT INTO operation_amount_sketch (granularity, bucket_start, type, currency, histogram) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_ROLLUP_POSTGRES = INSERT_ROLLUP
+        + " ON CONFLICT (granularity, bucket_start, type, currency) DO UPDATE SET "
+        + "operation_count = operation_rollup.operation_count + EXCLUDED.operation_count, "
+        + "total_amount = operation_rollup.total_amount + EXCLUDED.total_amount, "
+        + "min_amount = LEAST(operation_rollup.min_amount, EXCLUDED.min_amount), "
+        + "max_amount = GREATEST(operation_rollup.max_amount, EXCLUDED.max_amount)";
+    private static final String MERGE_ROLLUP =
+        "MERGE INTO operation_rollup r USING (SELECT CAST(? AS VARCHAR) AS granularity, "
+            + "CAST(? AS TIMESTAMP WITH TIME ZONE) AS bucket_start, CAST(? AS VARCHAR) AS type, "
+            + "CAST(? AS VARCHAR) AS currency, CAST(? AS BIGINT) AS operation_count, "
+            + "CAST(? AS DOUBLE PRECISION) AS total_amount, CAST(? AS DOUBLE PRECISION) AS min_amount, "
+            + "CAST(? AS DOUBLE PRECISION) AS max_amount) d "
+            + "ON r.granularity = d.granularity AND r.bucket_start = d.bucket_start "
+            + "AND r.type = d.type AND r.currency = d.currency "
+            + "WHEN MATCHED THEN UPDATE SET operation_count = r.operation_count + d.operation_count, "
+            + "total_amount = r.total_amount + d.total_amount, min_amount = LEAST(r.min_amount, d.min_amount), "
+            + "max_amount = GREATEST(r.max_amount, d.max_amount) "
+            + "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, type, currency, operation_count, total_amount, "
+            + "min_amount, max_amount) VALUES (d.granularity, d.bucket_start, d.type, d.currency, d.operation_count, "
+            + "d.total_amount, d.min_amount, d.max_amount)";
+    private static final String UPSERT_BREAKDOWN_POSTGRES = INSERT_BREAKDOWN
+        + " ON CONFLICT (dimension, group_key) DO UPDATE SET "
+        + "account_count = account_breakdown.account_count + EXCLUDED.account_count, "
+        + "total_balance = account_breakdown.total_balance + EXCLUDED.total_balance, "
+        + "credit_count = account_breakdown.credit_count + EXCLUDED.credit_count, "
+        + "credit_amount = account_breakdown.credit_amount + EXCLUDED.credit_amount, "
+        + "debit_count = account_breakdown.debit_count + EXCLUDED.debit_count, "
+        + "debit_amount = account_breakdown.debit_amount + EXCLUDED.debit_amount";
+    private static final String MERGE_BREAKDOWN =
+        "MERGE INTO account_breakdown b USING (SELECT CAST(? AS VARCHAR) AS dimension, CAST(? AS VARCHAR) AS group_key, "
+            + "CAST(? AS BIGINT) AS account_count, CAST(? AS DOUBLE PRECISION) AS total_balance, "
+            + "CAST(? AS BIGINT) AS credit_count, CAST(? AS DOUBLE PRECISION) AS credit_amount, "
+            + "CAST(? AS BIGINT) AS debit_count, CAST(? AS DOUBLE PRECISION) AS debit_amount) d "
+            + "ON b.dimension = d.dimension AND b.group_key = d.group_key "
+            + "WHEN MATCHED THEN UPDATE SET account_count = b.account_count + d.account_count, "
+            + "total_balance = b.total_balance + d.total_balance, credit_count = b.credit_count + d.credit_count, "
+            + "credit_amount = b.credit_amount + d.credit_amount, debit_count = b.debit_count + d.debit_count, "
+            + "debit_amount = b.debit_amount + d.debit_amount "
+            + "WHEN NOT MATCHED THEN INSERT (dimension, group_key, account_count, total_balance, credit_count, "
+            + "credit_amount, debit_count, debit_amount) VALUES (d.dimension, d.group_key, d.account_count, "
+            + "d.total_balance, d.credit_count, d.credit_amount, d.debit_count, d.debit_amount)";
+    private static final String INSERT_SKETCH_DELTA =
+        "INSERT INTO operation_amount_sketch_delta (granularity, bucket_start, type, currency, histogram) VALUES (?, ?, ?, ?, ?)";
+    private static final String COPY_ACCOUNTS =
+        "COPY account_view (id, created_at, balance, status, currency, operation_count, last_event_sequence) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_OPERATIONS =
+        "COPY operation_view (account_id, date, amount, type) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_ROLLUPS =
+        "COPY operation_rollup (granularity, bucket_start, type, currency, operation_count, total_amount, "
+            + "min_amount, max_amount) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String COPY_SKETCHES =
+        "COPY operation_amount_sketch (granularity, bucket_start, type, currency, histogram) FROM STDIN WITH (FORMAT csv)";
+    private static final String SELECT_OPERATIONS =
+        "SELECT o.id, o.account_id, a.currency, o.date, o.amount, o.type FROM operation_view o "
+            + "JOIN account_view a ON a.id = o.account_id WHERE o.id > ? ORDER BY o.id";
+    private static final String SELECT_ACCOUNTS =
+        "SELECT id, currency, status, balance, operation_count FROM account_view";
+    private static final String COUNT_OPERATIONS_BY_ACCOUNT_SINCE =
+        "SELECT account_id, COUNT(*) AS operation_count FROM operation_view WHERE date >= ? GROUP BY account_id";
+    private static final String COUNT_OPERATIONS_UP_TO =
+        "SELECT COUNT(*) FROM operation_view WHERE id <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkLoader bulkLoader;
+
+    public AnalyticsProjectionJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bulkLoader = new BulkLoader(jdbcTemplate);
+    }
+
+    /**
+     * Vide les tables de la projection
+     *
+     * TRUNCATE sur PostgreSQL (transactionnel, annule avec la reconstruction en cas d'echec),
+     * DELETE ailleurs : le TRUNCATE de H2 valide la transaction en cours.
+     */
+    public void truncateProjection() {
+        if (bulkLoader.isPostgres()) {
+            jdbcTemplate.execute("TRUNCATE TABLE operation_view, operation_rollup, operation_amount_sketch, "
+                + "operation_amount_sketch_delta, account_breakdown, account_view");
+        } else {
+            jdbcTemplate.update("DELETE FROM operation_view");
+            jdbcTemplate.update("DELETE FROM operation_rollup");
+            jdbcTemplate.update("DELETE FROM operation_amount_sketch");
+            jdbcTemplate.update("DELETE FROM operation_amount_sketch_delta");
+            jdbcTemplate.update("DELETE FROM account_breakdown");
+            jdbcTemplate.update("DELETE FROM account_view");
+        }
+    }
+
+    /**
+     * @return le nombre de comptes inseres
+     */
+    public long bulkInsertAccounts(Iterator<AccountView> accounts, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_ACCOUNTS, accounts, batchSize, progress, account -> String.join(",",
+                csv(account.getId()),
+                csv(timestamp(account.getCreatedAt()).toString()),
+                Double.toString(account.getBalance()),
+                csv(account.getStatus().name()),
+                csv(account.getCurrency()),
+                Integer.toString(account.getOperationCount()),
+                account.getLastEventSequence() == null ? "" : account.getLastEventSequence().toString()));
+        }
+        return bulkLoader.batchInsert(INSERT_ACCOUNT, accounts, batchSize, progress, (ps, account) -> {
+            ps.setString(1, account.getId());
+            ps.setObject(2, timestamp(account.getCreatedAt()));
+            ps.setDouble(3, account.getBalance());
+            ps.setString(4, account.getStatus().name());
+            ps.setString(5, account.getCurrency());
+            ps.setInt(6, account.getOperationCount());
+            ps.setObject(7, account.getLastEventSequence(), Types.BIGINT);
+        });
+    }
+
+    /**
+     * Une ligne par devise et par statut : un seul batch JDBC, sans COPY
+     */
+    public void insertBreakdowns(Collection<AccountBreakdown> breakdowns) {
+        jdbcTemplate.batchUpdate(INSERT_BREAKDOWN, breakdowns, breakdowns.size(), AnalyticsProjectionJdbcRepository::setBreakdown);
+    }
+
+    /**
+     * Ajoute des variations aux lignes par devise et par statut, en creant les lignes absentes
+     */
+    public void upsertBreakdowns(List<AccountBreakdown> breakdowns) {
+        jdbcTemplate.batchUpdate(bulkLoader.isPostgres() ? UPSERT_BREAKDOWN_POSTGRES : MERGE_BREAKDOWN, breakdowns,
+            breakdowns.size(), AnalyticsProjectionJdbcRepository::setBreakdown);
+    }
+
+    /**
+     * @return le nombre d'agregats inseres
+     */
+    public long bulkInsertRollups(Iterator<OperationRollup> rollups, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_ROLLUPS, rollups, batchSize, progress, rollup -> String.join(",",
+                csv(rollup.getId().getGranularity().name()),
+                csv(timestamp(rollup.getId().getBucketStart()).toString()),
+                csv(rollup.getId().getType().name()),
+                csv(rollup.getId().getCurrency()),
+                Long.toString(rollup.getOperationCount()),
+                Double.toString(rollup.getTotalAmount()),
+                Double.toString(rollup.getMinAmount()),
+                Double.toString(rollup.getMaxAmount())));
+        }
+        return bulkLoader.batchInsert(INSERT_ROLLUP, rollups, batchSize, progress, AnalyticsProjectionJdbcRepository::setRollup);
+    }
+
+    /**
+     * Fusionne des agregats partiels (count et somme additionnes, min et max combines),
+     * en creant les buckets absents. Les lignes sont ecrites dans l'ordre de la liste.
+     */
+    public void upsertRollups(List<OperationRollup> rollups) {
+        jdbcTemplate.batchUpdate(bulkLoader.isPostgres() ? UPSERT_ROLLUP_POSTGRES : MERGE_ROLLUP, rollups, rollups.size(),
+            AnalyticsProjectionJdbcRepository::setRollup);
+    }
+
+    /**
+     * @return le nombre d'histogrammes de montants inseres
+     */
+    public long bulkInsertSketches(Iterator<OperationAmountSketch> sketches, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_SKETCHES, sketches, batchSize, progress, sketch -> String.join(",",
+                csv(sketch.getId().getGranularity().name()),
+                csv(timestamp(sketch.getId().getBucketStart()).toString()),
+                csv(sketch.getId().getType().name()),
+                csv(sketch.getId().getCurrency()),
+                "\\x" + HexFormat.of().formatHex(sketch.getHistogram())));
+        }
+        return bulkLoader.batchInsert(INSERT_SKETCH, sketches, batchSize, progress, (ps, sketch) -> {
+            ps.setString(1, sketch.getId().getGranularity().name());
+            ps.setObject(2, timestamp(sketch.getId().getBucketStart()));
+            ps.setString(3, sketch.getId().getType().name());
+            ps.setString(4, sketch.getId().getCurrency());
+            ps.setBytes(5, sketch.getHistogram());
+        });
+    }
+
+    /**
+     * Histogrammes de montants ajoutes par une transaction, une ligne par bucket
+     */
+    public void insertSketchDeltas(List<OperationAmountSketchDelta> deltas) {
+        jdbcTemplate.batchUpdate(INSERT_SKETCH_DELTA, deltas, deltas.size(), (ps, delta) -> {
+            ps.setString(1, delta.getBucket().getGranularity().name());
+            ps.setObject(2, timestamp(delta.getBucket().getBucketStart()));
+            ps.setString(3, delta.getBucket().getType().name());
+            ps.setString(4, delta.getBucket().getCurrency());
+            ps.setBytes(5, delta.getHistogram());
+        });
+    }
+
+    /**
+     * @return le nombre d'operations inserees
+     */
+    public long bulkInsertOperations(Iterator<OperationView> operations, int batchSize, LongConsumer progress) {
+        if (bulkLoader.isPostgres()) {
+            return bulkLoader.copyIn(COPY_OPERATIONS, operations, batchSize, progress, operation -> String.join(",",
+                csv(operation.getAccountId()),
+                csv(timestamp(operation.getDate()).toString()),
+                Double.toString(operation.getAmount()),
+                csv(operation.getType().name())));
+        }
+        return bulkLoader.batchInsert(INSERT_OPERATION, operations, batchSize, progress, (ps, operation) -> {
+            ps.setString(1, operation.getAccountId());
+            ps.setObject(2, timestamp(operation.getDate()));
+            ps.setDouble(3, operation.getAmount());
+            ps.setString(4, operation.getType().name());
+        });
+    }
+
+    /**
+     * Parcourt les operations d'identifiant superieur a afterId, dans l'ordre des identifiants
+     *
+     * Lecture par paquets de fetchSize lignes (sur PostgreSQL, uniquement dans une transaction).
+     */
+    public void streamOperations(long afterId, int fetchSize, OperationRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_OPERATIONS);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, afterId);
+            return statement;
+        }, (RowCallbackHandler) rs -> handler.handle(
+            rs.getLong("id"),
+            rs.getString("account_id"),
+            rs.getString("currency"),
+            rs.getObject("date", OffsetDateTime.class).toInstant(),
+            rs.getDouble("amount"),
+            OperationType.valueOf(rs.getString("type"))));
+    }
+
+    public long countOperationsUpTo(long maxId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_OPERATIONS_UP_TO, Long.class, maxId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Parcourt tous les comptes (identifiant, devise, statut, solde, nombre d'operations)
+     */
+    public void streamAccounts(int fetchSize, Consumer<AccountView> handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ACCOUNTS);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> handler.accept(AccountView.builder()
+            .id(rs.getString("id"))
+            .currency(rs.getString("currency"))
+            .status(AccountStatus.valueOf(rs.getString("status")))
+            .balance(rs.getDouble("balance"))
+            .operationCount(rs.getInt("operation_count"))
+            .build()));
+    }
+
+    /**
+     * Nombre d'operations par compte depuis la date donnee (comptes sans operation absents)
+     */
+    public void countOperationsByAccountSince(Instant since, ObjIntConsumer<String> handler) {
+        jdbcTemplate.query(COUNT_OPERATIONS_BY_ACCOUNT_SINCE,
+            (RowCallbackHandler) rs -> handler.accept(rs.getString("account_id"), rs.getInt("operation_count")),
+            timestamp(since));
+    }
+
+    @FunctionalInterface
+    public interface OperationRowHandler {
+        void handle(long id, String accountId, String currency, Instant date, double amount, OperationType type);
+    }
+
+    private static void setBreakdown(PreparedStatement ps, AccountBreakdown breakdown) throws SQLException {
+        ps.setString(1, breakdown.getId().getDimension().name());
+        ps.setString(2, breakdown.getId().getGroupKey());
+        ps.setLong(3, breakdown.getAccountCount());
+        ps.setDouble(4, breakdown.getTotalBalance());
+        ps.setLong(5, breakdown.getCreditCount());
+        ps.setDouble(6, breakdown.getCreditAmount());
+        ps.setLong(7, breakdown.getDebitCount());
+        ps.setDouble(8, breakdown.getDebitAmount());
+    }
+
+    private static void setRollup(PreparedStatement ps, OperationRollup rollup) throws SQLException {
+        ps.setString(1, rollup.getId().getGranularity().name());
+        ps.setObject(2, timestamp(rollup.getId().getBucketStart()));
+        ps.setString(3, rollup.getId().getType().name());
+        ps.setString(4, rollup.getId().getCurrency());
+        ps.setLong(5, rollup.getOperationCount());
+        ps.setDouble(6, rollup.getTotalAmount());
+        ps.setDouble(7, rollup.getMinAmount());
+        ps.setDouble(8, rollup.getMaxAmount());
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
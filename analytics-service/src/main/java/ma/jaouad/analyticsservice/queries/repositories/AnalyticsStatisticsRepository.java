@@ -0,0 +1,27 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import ma.jaouad.analyticsservice.queries.entities.AnalyticsStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * Increments atomiques en SQL : pas de lecture prealable de la ligne de compteurs
+ */
+public interface AnalyticsStatisticsRepository extends JpaRepository<AnalyticsStatistics, String> {
+
+    @Modifying
+    @Query("UPDATE AnalyticsStatistics s SET s.totalAccounts = s.totalAccounts + 1, "
+        + "s.totalBalance = s.totalBalance + ?1 WHERE s.id = 'GLOBAL'")
+    int recordAccountCreated(double initialBalance);
+
+    @Modifying
+    @Query("UPDATE AnalyticsStatistics s SET s.creditCount = s.creditCount + 1, "
+        + "s.creditAmount = s.creditAmount + ?1, s.totalBalance = s.totalBalance + ?1 WHERE s.id = 'GLOBAL'")
+    int recordCredit(double amount);
+
+    @Modifying
+    @Query("UPDATE AnalyticsStatistics s SET s.debitCount = s.debitCount + 1, "
+        + "s.debitAmount = s.debitAmount + ?1, s.totalBalance = s.totalBalance - ?1 WHERE s.id = 'GLOBAL'")
+    int recordDebit(double amount);
+}
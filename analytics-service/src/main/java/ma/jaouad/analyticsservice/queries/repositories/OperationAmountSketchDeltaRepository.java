@@ -0,0 +1,26 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import jakarta.persistence.LockModeType;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketchDelta;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OperationAmountSketchDeltaRepository extends JpaRepository<OperationAmountSketchDelta, Long> {
+
+    /**
+     * Plus anciennes lignes, verrouillees jusqu'au commit de la compaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM OperationAmountSketchDelta d ORDER BY d.id")
+    List<OperationAmountSketchDelta> findOldestForUpdate(Limit limit);
+
+    @Query("SELECT d FROM OperationAmountSketchDelta d WHERE d.bucket.granularity = ?1 "
+        + "AND d.bucket.bucketStart >= ?2 AND d.bucket.bucketStart < ?3")
+    List<OperationAmountSketchDelta> findBuckets(RollupGranularity granularity, Instant from, Instant to);
+}
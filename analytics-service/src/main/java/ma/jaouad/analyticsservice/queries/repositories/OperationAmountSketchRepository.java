@@ -0,0 +1,27 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import jakarta.persistence.LockModeType;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketch;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface OperationAmountSketchRepository extends JpaRepository<OperationAmountSketch, OperationRollupId> {
+
+    /**
+     * Lecture verrouillee jusqu'au commit : l'histogramme est fusionne en Java puis reecrit
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OperationAmountSketch s WHERE s.id = ?1")
+    Optional<OperationAmountSketch> findForUpdate(OperationRollupId id);
+
+    @Query("SELECT s FROM OperationAmountSketch s WHERE s.id.granularity = ?1 "
+        + "AND s.id.bucketStart >= ?2 AND s.id.bucketStart < ?3")
+    List<OperationAmountSketch> findBuckets(RollupGranularity granularity, Instant from, Instant to);
+}
@@ -0,0 +1,17 @@
+package ma.jaouad.analyticsservice.queries.repositories;
+
+import ma.jaouad.analyticsservice.queries.entities.OperationRollup;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.rollups.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OperationRollupRepository extends JpaRepository<OperationRollup, OperationRollupId> {
+
+    @Query("SELECT r FROM OperationRollup r WHERE r.id.granularity = ?1 "
+        + "AND r.id.bucketStart >= ?2 AND r.id.bucketStart < ?3")
+    List<OperationRollup> findBuckets(RollupGranularity granularity, Instant from, Instant to);
+}
@@ -4,12 +4,32 @@ import ma.jaouad.analyticsservice.queries.entities.OperationView;
 import ma.jaouad.coreapi.enums.OperationType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 public interface OperationViewRepository extends JpaRepository<OperationView, Long> {
-    
-    @Query("SELECT COUNT(o) FROM OperationView o WHERE o.type = ?1")
-    Long countByType(OperationType type);
-    
-    @Query("SELECT SUM(o.amount) FROM OperationView o WHERE o.type = ?1")
-    Double sumAmountByType(OperationType type);
+
+    /**
+     * Nombre et somme des operations par type (filtres optionnels : null = pas de filtre)
+     */
+    @Query("SELECT o.type AS type, COUNT(o) AS operationCount, COALESCE(SUM(o.amount), 0) AS totalAmount "
+        + "FROM OperationView o, AccountView a WHERE a.id = o.accountId "
+        + "AND (:from IS NULL OR o.date >= :from) AND (:to IS NULL OR o.date < :to) "
+        + "AND (:currency IS NULL OR a.currency = :currency) "
+        + "AND (:accountId IS NULL OR o.accountId = :accountId) "
+        + "GROUP BY o.type")
+    List<TypeTotals> sumByType(@Param("from") Instant from,
+                               @Param("to") Instant to,
+                               @Param("currency") String currency,
+                               @Param("accountId") String accountId);
+
+    interface TypeTotals {
+        OperationType getType();
+
+        long getOperationCount();
+
+        double getTotalAmount();
+    }
 }
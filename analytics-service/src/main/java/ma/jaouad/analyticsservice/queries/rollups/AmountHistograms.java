@@ -0,0 +1,70 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * Histogrammes HDR des montants d'operations
+ *
+ * Les montants sont enregistres en centimes (valeurs entieres) : l'erreur relative d'un percentile
+ * est bornee par la precision (chiffres significatifs), quel que soit l'ordre de grandeur du montant.
+ * Les valeurs lues (percentiles, min, max) sont la borne haute de leur intervalle d'equivalence.
+ * Enregistrement en O(1), plage de valeurs etendue automatiquement.
+ */
+public final class AmountHistograms {
+
+    private static final double SCALE = 100.0;
+
+    private AmountHistograms() {
+    }
+
+    public static Histogram create(int significantDigits) {
+        Histogram histogram = new Histogram(significantDigits);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    public static void record(Histogram histogram, double amount) {
+        histogram.recordValue(Math.max(0, Math.round(amount * SCALE)));
+    }
+
+    /**
+     * Montant au percentile donne (0 a 100)
+     */
+    public static double percentile(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / SCALE;
+    }
+
+    public static double min(Histogram histogram) {
+        return histogram.getMinValue() / SCALE;
+    }
+
+    public static double max(Histogram histogram) {
+        return histogram.getMaxValue() / SCALE;
+    }
+
+    public static double mean(Histogram histogram) {
+        return histogram.getMean() / SCALE;
+    }
+
+    public static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    public static Histogram decode(byte[] bytes) {
+        try {
+            Histogram histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+            histogram.setAutoResize(true);
+            return histogram;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupted amount histogram", e));
+        }
+    }
+}
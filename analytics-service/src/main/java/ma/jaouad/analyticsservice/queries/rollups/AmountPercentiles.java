@@ -0,0 +1,25 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import lombok.*;
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.util.Map;
+
+/**
+ * Distribution des montants d'operations sur une plage, pour un type et une devise
+ *
+ * percentiles : montant par percentile demande (cle "p50", "p99.9"...)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AmountPercentiles {
+    private OperationType type;
+    private String currency;
+    private long operationCount;
+    private double minAmount;
+    private double maxAmount;
+    private double meanAmount;
+    private Map<String, Double> percentiles;
+}
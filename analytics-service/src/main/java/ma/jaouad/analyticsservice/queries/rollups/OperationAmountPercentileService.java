@@ -0,0 +1,123 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import ma.jaouad.analyticsservice.exceptions.FeatureDisabledException;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketch;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketchDelta;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.repositories.OperationAmountSketchDeltaRepository;
+import ma.jaouad.analyticsservice.queries.repositories.OperationAmountSketchRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Percentiles des montants d'operations sur une plage de temps
+ *
+ * La plage est decoupee comme pour les agregats (OperationRollupQueryService.slices) : minutes et heures
+ * aux bords, jours au milieu. Les histogrammes des buckets lus sont fusionnes par type et devise,
+ * les percentiles sont calcules sur l'histogramme fusionne (exact a la precision des histogrammes pres,
+ * les buckets aux bornes de la plage etant arrondis a la minute). Les lignes pas encore compactees
+ * (OperationAmountSketchDelta) sont fusionnees comme les histogrammes des buckets.
+ *
+ * Histogrammes et lignes non compactees sont lus dans un meme instantane (REPEATABLE READ) : une compaction
+ * validee entre les deux lectures deplacerait sinon des lignes d'une table deja lue vers l'autre, et les
+ * operations correspondantes seraient ignorees.
+ */
+@Service
+public class OperationAmountPercentileService {
+
+    private static final Comparator<AmountPercentiles> RESULT_ORDER = Comparator
+        .comparing(AmountPercentiles::getType)
+        .thenComparing(AmountPercentiles::getCurrency);
+
+    private final OperationAmountSketchRepository sketchRepository;
+    private final OperationAmountSketchDeltaRepository deltaRepository;
+    private final OperationAmountSketchRecorder sketchRecorder;
+
+    public OperationAmountPercentileService(OperationAmountSketchRepository sketchRepository,
+                                            OperationAmountSketchDeltaRepository deltaRepository,
+                                            OperationAmountSketchRecorder sketchRecorder) {
+        this.sketchRepository = sketchRepository;
+        this.deltaRepository = deltaRepository;
+        this.sketchRecorder = sketchRecorder;
+    }
+
+    /**
+     * @param percentiles percentiles demandes (entre 0 et 100)
+     * @param type        filtre optionnel sur le type d'operation
+     * @param currency    filtre optionnel sur la devise
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<AmountPercentiles> findRange(Instant from, Instant to, List<Double> percentiles,
+                                             OperationType type, String currency) {
+        if (!sketchRecorder.isEnabled()) {
+            throw new FeatureDisabledException("Amount sketches are disabled (analytics.sketches.enabled=false)");
+        }
+        Instant start = RollupGranularity.MINUTE.floor(from);
+        Instant end = RollupGranularity.MINUTE.ceil(to);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Invalid range: 'from' must be before 'to'");
+        }
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile " + percentile + ": expected a value between 0 and 100");
+            }
+        }
+
+        Map<OperationRollupId, Histogram> merged = new LinkedHashMap<>();
+        for (OperationRollupQueryService.RollupSlice slice : OperationRollupQueryService.slices(start, end, RollupGranularity.DAY)) {
+            for (OperationAmountSketch sketch : sketchRepository.findBuckets(slice.granularity(), slice.from(), slice.to())) {
+                merge(merged, sketch.getId(), sketch.getHistogram(), type, currency);
+            }
+            for (OperationAmountSketchDelta delta : deltaRepository.findBuckets(slice.granularity(), slice.from(), slice.to())) {
+                merge(merged, delta.getBucket(), delta.getHistogram(), type, currency);
+            }
+        }
+
+        List<AmountPercentiles> result = new ArrayList<>();
+        merged.forEach((key, histogram) -> {
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (double percentile : percentiles) {
+                values.put(label(percentile), AmountHistograms.percentile(histogram, percentile));
+            }
+            result.add(AmountPercentiles.builder()
+                .type(key.getType())
+                .currency(key.getCurrency())
+                .operationCount(histogram.getTotalCount())
+                .minAmount(AmountHistograms.min(histogram))
+                .maxAmount(AmountHistograms.max(histogram))
+                .meanAmount(AmountHistograms.mean(histogram))
+                .percentiles(values)
+                .build());
+        });
+        result.sort(RESULT_ORDER);
+        return result;
+    }
+
+    private static void merge(Map<OperationRollupId, Histogram> merged, OperationRollupId id, byte[] encoded,
+                              OperationType type, String currency) {
+        if ((type != null && type != id.getType()) || (currency != null && !currency.equals(id.getCurrency()))) {
+            return;
+        }
+        OperationRollupId key = new OperationRollupId(null, null, id.getType(), id.getCurrency());
+        Histogram histogram = AmountHistograms.decode(encoded);
+        Histogram current = merged.putIfAbsent(key, histogram);
+        if (current != null) {
+            current.add(histogram);
+        }
+    }
+
+    private static String label(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,115 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketch;
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketchDelta;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.repositories.OperationAmountSketchDeltaRepository;
+import ma.jaouad.analyticsservice.queries.repositories.OperationAmountSketchRepository;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compaction periodique des histogrammes de montants
+ *
+ * Les lignes ajoutees par transaction (OperationAmountSketchDelta) sont fusionnees par bucket,
+ * hors du traitement des events : chaque bucket touche est lu verrouille, fusionne en Java et reecrit
+ * une fois pour tout un paquet de lignes, qui sont supprimees dans la meme transaction. Le resultat
+ * d'une lecture (OperationAmountPercentileService, un seul instantane REPEATABLE READ) ne change pas.
+ *
+ * Deux instances qui creeraient en meme temps l'histogramme d'un nouveau bucket : la contrainte de cle
+ * primaire annule la compaction de l'une, reprise au passage suivant, sans effet sur les events.
+ *
+ * - analytics.sketches.compaction.interval-ms : periode de la compaction
+ * - analytics.sketches.compaction.batch-size : lignes fusionnees par transaction
+ */
+@Component
+@Slf4j
+public class OperationAmountSketchCompactor {
+
+    // Buckets verrouilles dans un ordre stable pour eviter les interblocages
+    private static final Comparator<OperationRollupId> WRITE_ORDER = Comparator
+        .comparing(OperationRollupId::getGranularity)
+        .thenComparing(OperationRollupId::getBucketStart)
+        .thenComparing(OperationRollupId::getType)
+        .thenComparing(OperationRollupId::getCurrency);
+
+    private final OperationAmountSketchRepository sketchRepository;
+    private final OperationAmountSketchDeltaRepository deltaRepository;
+    private final OperationAmountSketchRecorder sketchRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public OperationAmountSketchCompactor(OperationAmountSketchRepository sketchRepository,
+                                          OperationAmountSketchDeltaRepository deltaRepository,
+                                          OperationAmountSketchRecorder sketchRecorder,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${analytics.sketches.compaction.batch-size:10000}") int batchSize) {
+        this.sketchRepository = sketchRepository;
+        this.deltaRepository = deltaRepository;
+        this.sketchRecorder = sketchRecorder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sketches.compaction.interval-ms:10000}",
+               initialDelayString = "${analytics.sketches.compaction.interval-ms:10000}")
+    public void compact() {
+        if (!sketchRecorder.isEnabled()) {
+            return;
+        }
+        try {
+            int compacted;
+            do {
+                compacted = compactBatch();
+            } while (compacted == batchSize);
+        } catch (Exception e) {
+            log.warn("Amount sketch compaction failed, retrying at the next run", e);
+        }
+    }
+
+    /**
+     * @return le nombre de lignes fusionnees
+     */
+    private int compactBatch() {
+        Integer compacted = transactionTemplate.execute(transaction -> {
+            List<OperationAmountSketchDelta> deltas = deltaRepository.findOldestForUpdate(Limit.of(batchSize));
+            Map<OperationRollupId, Histogram> merged = new HashMap<>();
+            for (OperationAmountSketchDelta delta : deltas) {
+                Histogram histogram = AmountHistograms.decode(delta.getHistogram());
+                Histogram current = merged.putIfAbsent(delta.getBucket(), histogram);
+                if (current != null) {
+                    current.add(histogram);
+                }
+            }
+            merged.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(WRITE_ORDER))
+                .forEach(bucket -> sketchRepository.findForUpdate(bucket.getKey()).ifPresentOrElse(
+                    sketch -> {
+                        Histogram histogram = AmountHistograms.decode(sketch.getHistogram());
+                        histogram.add(bucket.getValue());
+                        sketch.setHistogram(AmountHistograms.encode(histogram));
+                    },
+                    () -> sketchRepository.save(OperationAmountSketch.builder()
+                        .id(bucket.getKey())
+                        .histogram(AmountHistograms.encode(bucket.getValue()))
+                        .build())));
+            deltaRepository.deleteAllInBatch(deltas);
+            if (!deltas.isEmpty()) {
+                log.debug("Amount sketches compacted: {} rows into {} buckets", deltas.size(), merged.size());
+            }
+            return deltas.size();
+        });
+        return compacted == null ? 0 : compacted;
+    }
+}
@@ -0,0 +1,86 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import ma.jaouad.analyticsservice.queries.entities.OperationAmountSketchDelta;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.HdrHistogram.Histogram;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Alimente les histogrammes de montants minute / heure / jour au fil des events
+ *
+ * Comme pour les agregats (OperationRollupRecorder), les montants d'une transaction sont d'abord
+ * enregistres dans un histogramme en memoire par bucket (O(1) par operation). Au commit, chaque bucket
+ * touche recoit une ligne de plus (OperationAmountSketchDelta), inseree en un seul batch JDBC :
+ * ni lecture ni verrou sur l'histogramme du bucket, ni conflit entre segments, un cout proportionnel
+ * aux seuls montants de la transaction. Les lignes sont fusionnees a la lecture et compactees
+ * periodiquement dans l'histogramme du bucket (OperationAmountSketchCompactor).
+ *
+ * - analytics.sketches.enabled : active/desactive les histogrammes
+ * - analytics.sketches.significant-digits : precision des percentiles (2 : erreur relative <= 1 %)
+ */
+@Component
+public class OperationAmountSketchRecorder {
+
+    private static final String DELTAS_RESOURCE = OperationAmountSketchRecorder.class.getName() + ".deltas";
+
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+    private final boolean enabled;
+    private final int significantDigits;
+
+    public OperationAmountSketchRecorder(AnalyticsProjectionJdbcRepository projectionJdbcRepository,
+                                         @Value("${analytics.sketches.enabled:true}") boolean enabled,
+                                         @Value("${analytics.sketches.significant-digits:2}") int significantDigits) {
+        this.projectionJdbcRepository = projectionJdbcRepository;
+        this.enabled = enabled;
+        this.significantDigits = significantDigits;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    public void record(OperationType type, String currency, Instant date, double amount) {
+        if (!enabled) {
+            return;
+        }
+        Map<OperationRollupId, Histogram> deltas = currentDeltas();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            OperationRollupId id = new OperationRollupId(granularity, granularity.floor(date), type, currency);
+            AmountHistograms.record(deltas.computeIfAbsent(id, key -> AmountHistograms.create(significantDigits)), amount);
+        }
+    }
+
+    private Map<OperationRollupId, Histogram> currentDeltas() {
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        return unitOfWork.getOrComputeResource(DELTAS_RESOURCE, key -> {
+            Map<OperationRollupId, Histogram> deltas = new HashMap<>();
+            unitOfWork.onPrepareCommit(uow -> flush(deltas));
+            return deltas;
+        });
+    }
+
+    private void flush(Map<OperationRollupId, Histogram> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        projectionJdbcRepository.insertSketchDeltas(deltas.entrySet().stream()
+            .map(delta -> OperationAmountSketchDelta.builder()
+                .bucket(delta.getKey())
+                .histogram(AmountHistograms.encode(delta.getValue()))
+                .build())
+            .toList());
+    }
+}
@@ -0,0 +1,155 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import ma.jaouad.analyticsservice.queries.entities.OperationRollup;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.repositories.OperationRollupRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture des agregats d'operations sur une plage de temps
+ *
+ * La plage est decoupee en tranches alignees lues a la granularite la plus grossiere possible :
+ * minutes jusqu'a la premiere heure pleine, heures jusqu'au premier jour plein, jours,
+ * puis heures et minutes en fin de plage. Une plage de 90 jours lit ainsi quelques centaines
+ * de lignes au plus, quel que soit le nombre d'operations.
+ *
+ * Les buckets lus sont ensuite fusionnes a la resolution demandee (les buckets aux bornes
+ * de la plage peuvent donc etre partiels).
+ */
+@Service
+public class OperationRollupQueryService {
+
+    private static final Comparator<RollupPoint> POINT_ORDER = Comparator
+        .comparing(RollupPoint::getBucketStart)
+        .thenComparing(RollupPoint::getType)
+        .thenComparing(RollupPoint::getCurrency);
+
+    private final OperationRollupRepository rollupRepository;
+    private final int maxPoints;
+
+    public OperationRollupQueryService(OperationRollupRepository rollupRepository,
+                                       @Value("${analytics.rollups.max-points:500}") int maxPoints) {
+        this.rollupRepository = rollupRepository;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * @param resolution taille des points retournes, ou null pour la plus fine donnant au plus max-points buckets
+     *                   (jour au-dela)
+     * @param type       filtre optionnel sur le type d'operation
+     * @param currency   filtre optionnel sur la devise
+     */
+    @Transactional(readOnly = true)
+    public List<RollupPoint> findRange(Instant from, Instant to, RollupGranularity resolution,
+                                       OperationType type, String currency) {
+        Instant start = RollupGranularity.MINUTE.floor(from);
+        Instant end = RollupGranularity.MINUTE.ceil(to);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Invalid range: 'from' must be before 'to'");
+        }
+        RollupGranularity pointGranularity = resolution != null ? resolution : defaultResolution(start, end);
+        if (resolution != null && bucketCount(start, end, resolution) > maxPoints) {
+            throw new IllegalArgumentException("Range too large for granularity " + pointGranularity
+                + " (more than " + maxPoints + " points)");
+        }
+
+        Map<OperationRollupId, RollupPoint> points = new LinkedHashMap<>();
+        for (RollupSlice slice : slices(start, end, pointGranularity)) {
+            for (OperationRollup rollup : rollupRepository.findBuckets(slice.granularity(), slice.from(), slice.to())) {
+                OperationRollupId id = rollup.getId();
+                if ((type != null && type != id.getType()) || (currency != null && !currency.equals(id.getCurrency()))) {
+                    continue;
+                }
+                OperationRollupId pointId = new OperationRollupId(
+                    pointGranularity, pointGranularity.floor(id.getBucketStart()), id.getType(), id.getCurrency());
+                RollupPoint point = points.get(pointId);
+                if (point == null) {
+                    points.put(pointId, RollupPoint.builder()
+                        .bucketStart(pointId.getBucketStart())
+                        .granularity(pointGranularity)
+                        .type(id.getType())
+                        .currency(id.getCurrency())
+                        .operationCount(rollup.getOperationCount())
+                        .totalAmount(rollup.getTotalAmount())
+                        .minAmount(rollup.getMinAmount())
+                        .maxAmount(rollup.getMaxAmount())
+                        .build());
+                } else {
+                    point.setOperationCount(point.getOperationCount() + rollup.getOperationCount());
+                    point.setTotalAmount(point.getTotalAmount() + rollup.getTotalAmount());
+                    point.setMinAmount(Math.min(point.getMinAmount(), rollup.getMinAmount()));
+                    point.setMaxAmount(Math.max(point.getMaxAmount(), rollup.getMaxAmount()));
+                }
+            }
+        }
+        List<RollupPoint> result = new ArrayList<>(points.values());
+        result.sort(POINT_ORDER);
+        return result;
+    }
+
+    /**
+     * Decoupe [from, to) en tranches alignees, de granularite au plus egale a coarsest
+     */
+    static List<RollupSlice> slices(Instant from, Instant to, RollupGranularity coarsest) {
+        RollupGranularity[] levels = RollupGranularity.values();
+        List<RollupSlice> slices = new ArrayList<>();
+        Instant start = from;
+        Instant end = to;
+        // Bord gauche : granularite fine jusqu'au debut du premier bucket plus grossier
+        for (int level = 0; level < coarsest.ordinal(); level++) {
+            Instant aligned = min(levels[level + 1].ceil(start), end);
+            if (start.isBefore(aligned)) {
+                slices.add(new RollupSlice(levels[level], start, aligned));
+                start = aligned;
+            }
+        }
+        // Bord droit : granularite fine depuis la fin du dernier bucket plus grossier
+        for (int level = 0; level < coarsest.ordinal(); level++) {
+            Instant aligned = max(levels[level + 1].floor(end), start);
+            if (aligned.isBefore(end)) {
+                slices.add(new RollupSlice(levels[level], aligned, end));
+                end = aligned;
+            }
+        }
+        if (start.isBefore(end)) {
+            slices.add(new RollupSlice(coarsest, start, end));
+        }
+        return slices;
+    }
+
+    private RollupGranularity defaultResolution(Instant from, Instant to) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            if (bucketCount(from, to, granularity) <= maxPoints) {
+                return granularity;
+            }
+        }
+        return RollupGranularity.DAY;
+    }
+
+    private static long bucketCount(Instant from, Instant to, RollupGranularity granularity) {
+        Duration span = Duration.between(granularity.floor(from), granularity.ceil(to));
+        return span.dividedBy(granularity.duration());
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    record RollupSlice(RollupGranularity granularity, Instant from, Instant to) {
+    }
+}
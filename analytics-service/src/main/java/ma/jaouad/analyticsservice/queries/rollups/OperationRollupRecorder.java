@@ -0,0 +1,72 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import ma.jaouad.analyticsservice.queries.entities.OperationRollup;
+import ma.jaouad.analyticsservice.queries.entities.OperationRollupId;
+import ma.jaouad.analyticsservice.queries.repositories.AnalyticsProjectionJdbcRepository;
+import ma.jaouad.coreapi.enums.OperationType;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Alimente les agregats minute / heure / jour au fil des events
+ *
+ * Les operations d'une transaction (unit of work) sont d'abord cumulees en memoire,
+ * puis les buckets touches sont fusionnes au commit en un seul batch d'upserts natifs
+ * (AnalyticsProjectionJdbcRepository#upsertRollups) : un bucket cree en parallele par un autre segment
+ * est fusionne, sans echec ni rejeu du lot. Les verrous de ligne ne sont pris qu'au commit, dans un
+ * ordre stable pour eviter les interblocages entre segments.
+ */
+@Component
+public class OperationRollupRecorder {
+
+    private static final String DELTAS_RESOURCE = OperationRollupRecorder.class.getName() + ".deltas";
+
+    private static final Comparator<OperationRollup> WRITE_ORDER = Comparator
+        .comparing((OperationRollup rollup) -> rollup.getId().getGranularity())
+        .thenComparing(rollup -> rollup.getId().getBucketStart())
+        .thenComparing(rollup -> rollup.getId().getType())
+        .thenComparing(rollup -> rollup.getId().getCurrency());
+
+    private final AnalyticsProjectionJdbcRepository projectionJdbcRepository;
+
+    public OperationRollupRecorder(AnalyticsProjectionJdbcRepository projectionJdbcRepository) {
+        this.projectionJdbcRepository = projectionJdbcRepository;
+    }
+
+    public void record(OperationType type, String currency, Instant date, double amount) {
+        Map<OperationRollupId, OperationRollup> deltas = currentDeltas();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            OperationRollupId id = new OperationRollupId(granularity, granularity.floor(date), type, currency);
+            OperationRollup delta = deltas.computeIfAbsent(id, key -> OperationRollup.builder()
+                .id(key)
+                .minAmount(amount)
+                .maxAmount(amount)
+                .build());
+            delta.setOperationCount(delta.getOperationCount() + 1);
+            delta.setTotalAmount(delta.getTotalAmount() + amount);
+            delta.setMinAmount(Math.min(delta.getMinAmount(), amount));
+            delta.setMaxAmount(Math.max(delta.getMaxAmount(), amount));
+        }
+    }
+
+    private Map<OperationRollupId, OperationRollup> currentDeltas() {
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        return unitOfWork.getOrComputeResource(DELTAS_RESOURCE, key -> {
+            Map<OperationRollupId, OperationRollup> deltas = new HashMap<>();
+            unitOfWork.onPrepareCommit(uow -> flush(deltas));
+            return deltas;
+        });
+    }
+
+    private void flush(Map<OperationRollupId, OperationRollup> deltas) {
+        if (!deltas.isEmpty()) {
+            projectionJdbcRepository.upsertRollups(deltas.values().stream().sorted(WRITE_ORDER).toList());
+        }
+    }
+}
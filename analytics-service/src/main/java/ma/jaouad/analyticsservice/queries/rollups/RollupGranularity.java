@@ -0,0 +1,39 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Granularites des agregats d'operations, de la plus fine a la plus grossiere (buckets en UTC)
+ */
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Duration duration() {
+        return unit.getDuration();
+    }
+
+    /**
+     * Debut du bucket contenant l'instant
+     */
+    public Instant floor(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    /**
+     * Premier debut de bucket superieur ou egal a l'instant
+     */
+    public Instant ceil(Instant instant) {
+        Instant floor = floor(instant);
+        return floor.equals(instant) ? floor : floor.plus(1, unit);
+    }
+}
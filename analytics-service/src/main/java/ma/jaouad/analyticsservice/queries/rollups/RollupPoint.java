@@ -0,0 +1,24 @@
+package ma.jaouad.analyticsservice.queries.rollups;
+
+import lombok.*;
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.time.Instant;
+
+/**
+ * Point de serie temporelle : operations d'un bucket pour un type et une devise
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupPoint {
+    private Instant bucketStart;
+    private RollupGranularity granularity;
+    private OperationType type;
+    private String currency;
+    private long operationCount;
+    private double totalAmount;
+    private double minAmount;
+    private double maxAmount;
+}
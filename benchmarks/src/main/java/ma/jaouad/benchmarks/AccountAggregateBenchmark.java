@@ -0,0 +1,121 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.accountservice.commands.aggregates.AccountAggregate;
+import ma.jaouad.accountservice.commands.snapshots.AccountSnapshotTriggerDefinition;
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountFixtures.EventStoreHandle;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.eventsourcing.AggregateSnapshotter;
+import org.axonframework.eventsourcing.EventSourcingRepository;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventsourcing.NoSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.modelling.command.AggregateAnnotationCommandHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountAggregate : chargement par rejeu du flux d'events et traitement d'une commande
+ *
+ * - streamLength : nombre d'events du compte dans l'event store
+ * - snapshot : un snapshot de l'agregat est pris apres l'ecriture du flux (seuls les events
+ *   suivants sont alors rejoues), puis tous les SNAPSHOT_THRESHOLD events comme dans le service
+ *
+ * Le flux est ecrit une seule fois par essai (fork) : chaque commande ajoute un event,
+ * le flux grandit donc pendant la mesure (sans snapshot, ecart negligeable face a streamLength).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountAggregateBenchmark {
+
+    private static final String ACCOUNT_ID = "benchmark-account";
+    private static final int SNAPSHOT_THRESHOLD = 500;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int streamLength;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private EventStoreHandle store;
+    private EventSourcingRepository<AccountAggregate> repository;
+    private CommandBus commandBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = AccountFixtures.fileEventStore(AccountFixtures.xStreamSerializer());
+        AccountFixtures.appendStream(store.eventStore(), ACCOUNT_ID, streamLength);
+        SnapshotTriggerDefinition snapshotTriggerDefinition = NoSnapshotTriggerDefinition.INSTANCE;
+        if (snapshot) {
+            AggregateSnapshotter snapshotter = AggregateSnapshotter.builder()
+                    .eventStore(store.eventStore())
+                    .aggregateFactories(List.of(new GenericAggregateFactory<>(AccountAggregate.class)))
+                    .build();
+            snapshotter.scheduleSnapshot(AccountAggregate.class, ACCOUNT_ID);
+            snapshotTriggerDefinition = new AccountSnapshotTriggerDefinition(snapshotter, SNAPSHOT_THRESHOLD, 0);
+        }
+
+        repository = EventSourcingRepository.builder(AccountAggregate.class)
+                .eventStore(store.eventStore())
+                .snapshotTriggerDefinition(snapshotTriggerDefinition)
+                .build();
+        commandBus = SimpleCommandBus.builder().build();
+        AggregateAnnotationCommandHandler.<AccountAggregate>builder()
+                .aggregateType(AccountAggregate.class)
+                .repository(repository)
+                .build()
+                .subscribe(commandBus);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * Chargement seul : lecture du flux (ou du snapshot) et application des events
+     */
+    @Benchmark
+    public double load() {
+        DefaultUnitOfWork<?> unitOfWork = DefaultUnitOfWork.startAndGet(null);
+        try {
+            return repository.load(ACCOUNT_ID).invoke(AccountAggregate::getCurrentBalance);
+        } finally {
+            unitOfWork.rollback();
+        }
+    }
+
+    /**
+     * Commande complete : chargement, validation, application et stockage de l'event
+     */
+    @Benchmark
+    public Object credit() throws Exception {
+        FutureCallback<Object, Object> callback = new FutureCallback<>();
+        commandBus.dispatch(GenericCommandMessage.asCommandMessage(
+                new CreditAccountCommand(ACCOUNT_ID, 10, AccountFixtures.CURRENCY)), callback);
+        return callback.getResult();
+    }
+}
@@ -0,0 +1,121 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountServiceContext;
+import ma.jaouad.accountservice.queries.handlers.AccountEventHandler;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projection des comptes (AccountEventHandler) sur H2 en memoire
+ *
+ * Chaque invocation projette EVENTS credits/debits repartis sur ACCOUNTS comptes :
+ * - batch=false : une transaction par event (account.projection.batch.enabled=false)
+ * - batch=true : une transaction pour tout le lot, comme un processeur configure
+ *   avec account.projection.batch.size=EVENTS
+ *
+ * Le resultat est exprime par event (@OperationsPerInvocation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountProjectionBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int EVENTS = 100;
+
+    @Param({"false", "true"})
+    public boolean batch;
+
+    private ConfigurableApplicationContext context;
+    private AccountEventHandler eventHandler;
+    private TransactionManager transactionManager;
+    private List<EventMessage<?>> events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = AccountServiceContext.start("--account.projection.batch.enabled=" + batch);
+        eventHandler = context.getBean(AccountEventHandler.class);
+        transactionManager = context.getBean(TransactionManager.class);
+
+        List<EventMessage<?>> creations = new ArrayList<>(ACCOUNTS);
+        events = new ArrayList<>(EVENTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            creations.add(AccountFixtures.domainEvent(accountId(i), 0, AccountFixtures.accountEvent(accountId(i), 0)));
+        }
+        for (int i = 0; i < EVENTS; i++) {
+            String accountId = accountId(i % ACCOUNTS);
+            Object payload = i % 2 == 0
+                    ? new AccountCreditedEvent(accountId, 10)
+                    : new AccountDebitedEvent(accountId, 5);
+            events.add(AccountFixtures.domainEvent(accountId, 1 + i / ACCOUNTS, payload));
+        }
+        process(creations, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void project() {
+        process(events, batch);
+    }
+
+    private void process(List<EventMessage<?>> messages, boolean singleTransaction) {
+        if (singleTransaction) {
+            DefaultUnitOfWork<EventMessage<?>> unitOfWork = DefaultUnitOfWork.startAndGet(messages.get(0));
+            unitOfWork.attachTransaction(transactionManager);
+            messages.forEach(this::handle);
+            unitOfWork.commit();
+            return;
+        }
+        for (EventMessage<?> message : messages) {
+            DefaultUnitOfWork<EventMessage<?>> unitOfWork = DefaultUnitOfWork.startAndGet(message);
+            unitOfWork.attachTransaction(transactionManager);
+            handle(message);
+            unitOfWork.commit();
+        }
+    }
+
+    private void handle(EventMessage<?> message) {
+        switch (message.getPayload()) {
+            case AccountCreatedEvent event -> eventHandler.on(event, message);
+            case AccountCreditedEvent event -> eventHandler.on(event, message);
+            case AccountDebitedEvent event -> eventHandler.on(event, message);
+            default -> throw new IllegalArgumentException("Unexpected event: " + message.getPayloadType());
+        }
+    }
+
+    private static String accountId(int index) {
+        return "benchmark-account-" + index;
+    }
+}
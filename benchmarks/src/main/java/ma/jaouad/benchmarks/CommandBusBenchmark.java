@@ -0,0 +1,86 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountServiceContext;
+import ma.jaouad.coreapi.commands.CreateAccountCommand;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import ma.jaouad.coreapi.commands.UpdateAccountStatusCommand;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debit de commandes d'account-service (profil embedded) selon le bus de commandes
+ *
+ * - simple : bus par defaut (chargement de l'agregat depuis l'event store a chaque commande)
+ * - disruptor : bus local (account.command-bus.local.enabled), agregats gardes en cache
+ *
+ * Credits envoyes par plusieurs threads sur ACCOUNTS comptes tires au hasard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class CommandBusBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"simple", "disruptor"})
+    public String bus;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private CommandGateway commandGateway;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("benchmark-eventstore");
+        context = AccountServiceContext.start(
+                "--spring.profiles.active=embedded",
+                "--embedded.eventstore.directory=" + directory,
+                "--account.command-bus.local.enabled=" + "disruptor".equals(bus));
+        commandGateway = context.getBean(CommandGateway.class);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            commandGateway.sendAndWait(new CreateAccountCommand(accountId(i), 1000, AccountFixtures.CURRENCY));
+            commandGateway.sendAndWait(new UpdateAccountStatusCommand(accountId(i), AccountStatus.ACTIVATED));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        AccountFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Object credit() {
+        String accountId = accountId(ThreadLocalRandom.current().nextInt(ACCOUNTS));
+        return commandGateway.sendAndWait(new CreditAccountCommand(accountId, 10, AccountFixtures.CURRENCY));
+    }
+
+    private static String accountId(int index) {
+        return "benchmark-account-" + index;
+    }
+}
@@ -0,0 +1,125 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountFixtures.EventStoreHandle;
+import ma.jaouad.coreapi.eventstore.MappedFileEventSource;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import org.axonframework.common.stream.BlockingStream;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejeu complet du flux d'events par un processeur, sans la projection elle-meme
+ *
+ * ACCOUNTS comptes de STREAM_LENGTH events (creation, activation, credits et debits).
+ * Le processeur simule deserialise les events des types qu'il traite et signale les autres
+ * a la source comme le font les processeurs Axon (skipMessagesWithPayloadTypeOf) :
+ * - source=eventStore : EmbeddedEventStore, le signalement est ignore, tous les events sont lus.
+ *   Cache reduit a un event : sinon les rejeux successifs partagent les events du cache, deja deserialises
+ * - source=filtered : MappedFileEventSource, les types signales sont ecartes a la lecture des segments
+ * - handledTypes : all (4 types), balance (sans AccountStatusUpdatedEvent),
+ *   status (AccountCreatedEvent et AccountStatusUpdatedEvent)
+ *
+ * Le rejeu s'arrete au dernier event traite. Allocation par rejeu : ajouter -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventReplayBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+    private static final int STREAM_LENGTH = 20;
+
+    @Param({"eventStore", "filtered"})
+    public String source;
+
+    @Param({"all", "balance", "status"})
+    public String handledTypes;
+
+    private EventStoreHandle store;
+    private EmbeddedEventStore replayEventStore;
+    private StreamableMessageSource<TrackedEventMessage<?>> messageSource;
+    private Set<Class<?>> handled;
+    private int expectedEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = AccountFixtures.fileEventStore(AccountFixtures.xStreamSerializer());
+        for (int account = 0; account < ACCOUNTS; account++) {
+            AccountFixtures.appendStream(store.eventStore(), "benchmark-account-" + account, STREAM_LENGTH);
+        }
+        messageSource = switch (source) {
+            case "eventStore" -> replayEventStore = EmbeddedEventStore.builder()
+                .storageEngine(store.storageEngine())
+                .cachedEvents(1)
+                .build();
+            case "filtered" -> new MappedFileEventSource(store.storageEngine(), Duration.ofMillis(10));
+            default -> throw new IllegalArgumentException("Unknown source: " + source);
+        };
+        handled = switch (handledTypes) {
+            case "all" -> Set.of(AccountCreatedEvent.class, AccountStatusUpdatedEvent.class,
+                                 AccountCreditedEvent.class, AccountDebitedEvent.class);
+            case "balance" -> Set.of(AccountCreatedEvent.class, AccountCreditedEvent.class, AccountDebitedEvent.class);
+            case "status" -> Set.of(AccountCreatedEvent.class, AccountStatusUpdatedEvent.class);
+            default -> throw new IllegalArgumentException("Unknown handled types: " + handledTypes);
+        };
+        for (int sequence = 0; sequence < STREAM_LENGTH; sequence++) {
+            if (handled.contains(AccountFixtures.accountEvent("benchmark-account", sequence).getClass())) {
+                expectedEvents += ACCOUNTS;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (replayEventStore != null) {
+            replayEventStore.shutDown();
+        }
+        store.close();
+    }
+
+    /**
+     * @return le nombre d'events traites
+     */
+    @Benchmark
+    public int replay(Blackhole blackhole) throws InterruptedException {
+        int processed = 0;
+        try (BlockingStream<TrackedEventMessage<?>> stream = messageSource.openStream(null)) {
+            while (processed < expectedEvents) {
+                TrackedEventMessage<?> message = stream.nextAvailable();
+                if (handled.contains(message.getPayloadType())) {
+                    blackhole.consume(message.getPayload());
+                    processed++;
+                } else {
+                    stream.skipMessagesWithPayloadTypeOf(message);
+                }
+            }
+        }
+        return processed;
+    }
+}
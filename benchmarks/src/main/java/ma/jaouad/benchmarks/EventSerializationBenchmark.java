@@ -0,0 +1,95 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.coreapi.serialization.CoreApiBinarySerializer;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation des events core-api, par type d'event et par serializer
+ *
+ * - xstream : serializer des events des services (configuration par defaut)
+ * - jackson : JacksonSerializer, constructeurs des events via les noms de parametres
+ * - binary : CoreApiBinarySerializer (coreapi.serializer.binary.enabled)
+ *
+ * La taille des donnees produites n'est pas mesuree par JMH : elle est affichee au setup,
+ * pour chacun des serializers, avec le rapport a la taille XStream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventSerializationBenchmark {
+
+    @Param({"AccountCreatedEvent", "AccountCreditedEvent", "AccountDebitedEvent", "AccountStatusUpdatedEvent"})
+    public String eventType;
+
+    private static final List<String> SERIALIZERS = List.of("xstream", "jackson", "binary");
+
+    @Param({"xstream", "jackson", "binary"})
+    public String serializer;
+
+    private Serializer eventSerializer;
+    private Object event;
+    private SerializedObject<byte[]> serializedEvent;
+
+    @Setup
+    public void setUp() {
+        eventSerializer = serializer(serializer);
+        event = switch (eventType) {
+            case "AccountCreatedEvent" -> AccountFixtures.accountEvent("benchmark-account", 0);
+            case "AccountStatusUpdatedEvent" -> AccountFixtures.accountEvent("benchmark-account", 1);
+            case "AccountCreditedEvent" -> AccountFixtures.accountEvent("benchmark-account", 2);
+            case "AccountDebitedEvent" -> AccountFixtures.accountEvent("benchmark-account", 3);
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+        serializedEvent = eventSerializer.serialize(event, byte[].class);
+        printSizes();
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serialize() {
+        return eventSerializer.serialize(event, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return eventSerializer.deserialize(serializedEvent);
+    }
+
+    private void printSizes() {
+        int xStreamSize = serializer("xstream").serialize(event, byte[].class).getData().length;
+        StringBuilder report = new StringBuilder(String.format("%n%s:", eventType));
+        for (String name : SERIALIZERS) {
+            int size = serializer(name).serialize(event, byte[].class).getData().length;
+            report.append(String.format(" %s %d bytes (%.2f)%s", name, size, (double) size / xStreamSize,
+                    name.equals(serializer) ? " *" : ""));
+        }
+        System.out.println(report);
+    }
+
+    private static Serializer serializer(String name) {
+        return switch (name) {
+            case "xstream" -> AccountFixtures.xStreamSerializer();
+            case "jackson" -> AccountFixtures.jacksonEventSerializer();
+            case "binary" -> new CoreApiBinarySerializer(AccountFixtures.xStreamSerializer());
+            default -> throw new IllegalArgumentException("Unknown serializer: " + name);
+        };
+    }
+}
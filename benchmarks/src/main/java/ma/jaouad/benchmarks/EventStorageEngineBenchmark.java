@@ -0,0 +1,142 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountFixtures.EventStoreHandle;
+import ma.jaouad.benchmarks.support.AccountServiceContext;
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.jpa.JpaEventStorageEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Debit d'ecriture et de lecture de l'event store, moteur embarque contre moteur JPA
+ *
+ * - engine=file : MappedFileEventStorageEngine (profil embedded), repertoire temporaire
+ * - engine=jpa : JpaEventStorageEngine auto-configure par Axon dans account-service, sur H2 en memoire
+ *
+ * Les deux moteurs utilisent le serializer XStream des services et sont appeles directement
+ * (EventStorageEngine), sans bus ni agregat. Au setup, ACCOUNTS flux de STREAM_LENGTH events sont ecrits.
+ * - append : EVENTS events d'un nouveau compte, eventsPerTransaction par transaction (seul benchmark concerne)
+ * - readAggregate : flux complet d'un compte (chargement d'un agregat)
+ * - readStream : EVENTS premiers events du flux global (lecture d'un processeur de tracking)
+ *
+ * Le resultat est exprime par event (@OperationsPerInvocation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStorageEngineBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int STREAM_LENGTH = 100;
+    private static final int EVENTS = 1000;
+
+    @Param({"file", "jpa"})
+    public String engine;
+
+    @Param({"1", "100"})
+    public int eventsPerTransaction;
+
+    private EventStoreHandle store;
+    private ConfigurableApplicationContext context;
+    private EventStorageEngine storageEngine;
+    private TransactionManager transactionManager;
+    private int appendedAccounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("file".equals(engine)) {
+            store = AccountFixtures.fileEventStore(AccountFixtures.xStreamSerializer());
+            storageEngine = store.storageEngine();
+            transactionManager = NoTransactionManager.INSTANCE;
+        } else {
+            context = AccountServiceContext.start();
+            storageEngine = context.getBean(EventStorageEngine.class);
+            transactionManager = context.getBean(TransactionManager.class);
+            if (!(storageEngine instanceof JpaEventStorageEngine)) {
+                throw new IllegalStateException("Unexpected storage engine: " + storageEngine.getClass().getName());
+            }
+        }
+        for (int account = 0; account < ACCOUNTS; account++) {
+            append(AccountFixtures.accountStream("benchmark-account-" + account, STREAM_LENGTH), STREAM_LENGTH);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void append() {
+        append(AccountFixtures.accountStream("appended-account-" + appendedAccounts++, EVENTS), eventsPerTransaction);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM_LENGTH)
+    public int readAggregate(Blackhole blackhole) {
+        return transactionManager.fetchInTransaction(
+                () -> consume(storageEngine.readEvents("benchmark-account-0").asStream(), blackhole));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int readStream(Blackhole blackhole) {
+        return transactionManager.fetchInTransaction(
+                () -> consume(storageEngine.readEvents(null, false).limit(EVENTS), blackhole));
+    }
+
+    /**
+     * Deserialise chaque event lu (count() pourrait ne pas parcourir un flux de taille connue)
+     *
+     * @return le nombre d'events lus
+     */
+    private static int consume(Stream<? extends EventMessage<?>> events, Blackhole blackhole) {
+        Iterator<? extends EventMessage<?>> iterator = events.iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next().getPayload());
+            count++;
+        }
+        return count;
+    }
+
+    private void append(List<DomainEventMessage<?>> events, int batchSize) {
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<DomainEventMessage<?>> batch = events.subList(from, Math.min(from + batchSize, events.size()));
+            transactionManager.executeInTransaction(() -> storageEngine.appendEvents(batch));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.benchmarks.support.AccountFixtures;
+import ma.jaouad.benchmarks.support.AccountFixtures.EventStoreHandle;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine.StorageReport;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine.TrackedEventBatch;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecture complete du journal des events selon la compression des payloads
+ *
+ * ACCOUNTS comptes de STREAM_LENGTH events, segments de SEGMENT_SIZE octets :
+ * - compression=none : payloads non compresses
+ * - compression=zstd : payloads compresses a l'ecriture, sans dictionnaire
+ * - compression=dictionary : idem puis recompress() (entrainement du dictionnaire,
+ *   reecriture des segments scelles ; le segment courant reste compresse sans dictionnaire)
+ * - read=bytes : payload serialise seul (decompression comprise), read=payload : payload deserialise
+ *
+ * L'occupation du journal (StorageReport) est affichee au setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStoreCompressionBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+    private static final int STREAM_LENGTH = 20;
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    @Param({"none", "zstd", "dictionary"})
+    public String compression;
+
+    @Param({"bytes", "payload"})
+    public String read;
+
+    private EventStoreHandle store;
+    private MappedFileEventStorageEngine storageEngine;
+    private Serializer serializer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = AccountFixtures.xStreamSerializer();
+        store = AccountFixtures.fileEventStore(serializer, SEGMENT_SIZE, !"none".equals(compression));
+        storageEngine = store.storageEngine();
+        for (int account = 0; account < ACCOUNTS; account++) {
+            AccountFixtures.appendStream(store.eventStore(), "benchmark-account-" + account, STREAM_LENGTH);
+        }
+        if ("dictionary".equals(compression)) {
+            storageEngine.recompress();
+        }
+        StorageReport report = storageEngine.storageReport();
+        System.out.printf("%n%s: %d records (%d compressed), %d bytes stored, %d uncompressed (ratio %.2f), %d file bytes%n",
+                compression, report.records(), report.compressedRecords(), report.storedBytes(),
+                report.uncompressedBytes(), report.compressionRatio(), report.fileBytes());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * @return le nombre d'events lus
+     */
+    @Benchmark
+    public int readAll(Blackhole blackhole) {
+        boolean payload = "payload".equals(read);
+        int count = 0;
+        long next = 0;
+        while (true) {
+            TrackedEventBatch batch = storageEngine.readEvents(next, Set.of());
+            if (batch.events().isEmpty()) {
+                return count;
+            }
+            for (TrackedEventMessage<?> message : batch.events()) {
+                blackhole.consume(payload
+                        ? message.getPayload()
+                        : message.serializePayload(serializer, byte[].class).getData());
+                count++;
+            }
+            next = batch.nextIndex();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ma.jaouad.benchmarks;
+
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import ma.jaouad.accountservice.queries.subscriptions.AccountQueryUpdateEmitter;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.monitoring.NoOpMessageMonitor;
+import org.axonframework.queryhandling.GenericSubscriptionQueryMessage;
+import org.axonframework.queryhandling.QueryUpdateEmitter;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.axonframework.queryhandling.UpdateHandlerRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cout d'une mise a jour de compte emise par la projection, selon le nombre de subscriptions actives
+ *
+ * SUBSCRIBERS_PER_ACCOUNT subscriptions GetAccountByIdQuery par compte, sur subscriptions / SUBSCRIBERS_PER_ACCOUNT
+ * comptes, chacune consommant ses mises a jour :
+ * - emitter=simple : SimpleQueryUpdateEmitter, emit(GetAccountByIdQuery.class, filtre sur le compte, etat)
+ *   comme AccountEventHandler avant l'index (filtre evalue pour chaque subscription)
+ * - emitter=indexed : AccountQueryUpdateEmitter#emitAccount (subscriptions indexees par compte)
+ * - target=subscribed : compte suivi ; target=unsubscribed : compte sans abonne (cas le plus frequent)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryUpdateEmitterBenchmark {
+
+    private static final int SUBSCRIBERS_PER_ACCOUNT = 2;
+
+    @Param({"100", "10000"})
+    public int subscriptions;
+
+    @Param({"simple", "indexed"})
+    public String emitter;
+
+    @Param({"subscribed", "unsubscribed"})
+    public String target;
+
+    private QueryUpdateEmitter updateEmitter;
+    private AccountQueryUpdateEmitter accountUpdateEmitter;
+    private final List<UpdateHandlerRegistration<Object>> registrations = new ArrayList<>();
+    private String accountId;
+    private AccountDTO account;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleQueryUpdateEmitter simpleEmitter = SimpleQueryUpdateEmitter.builder().build();
+        if ("indexed".equals(emitter)) {
+            accountUpdateEmitter = new AccountQueryUpdateEmitter(simpleEmitter, NoOpMessageMonitor.INSTANCE);
+            updateEmitter = accountUpdateEmitter;
+        } else {
+            updateEmitter = simpleEmitter;
+        }
+        for (int i = 0; i < subscriptions; i++) {
+            GenericSubscriptionQueryMessage<GetAccountByIdQuery, AccountDTO, AccountDTO> query =
+                    new GenericSubscriptionQueryMessage<>(new GetAccountByIdQuery(accountId(i / SUBSCRIBERS_PER_ACCOUNT)),
+                            ResponseTypes.instanceOf(AccountDTO.class), ResponseTypes.instanceOf(AccountDTO.class));
+            UpdateHandlerRegistration<Object> registration = updateEmitter.registerUpdateHandler(query, 8);
+            registration.getUpdates().subscribe(update -> {
+            });
+            registrations.add(registration);
+        }
+        accountId = "subscribed".equals(target) ? accountId(0) : "unsubscribed-account";
+        account = AccountDTO.builder().id(accountId).balance(100).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        registrations.forEach(registration -> registration.getRegistration().cancel());
+    }
+
+    @Benchmark
+    public void emit() {
+        if (accountUpdateEmitter != null) {
+            accountUpdateEmitter.emitAccount(accountId, account);
+        } else {
+            updateEmitter.emit(GetAccountByIdQuery.class, query -> accountId.equals(query.getAccountId()), account);
+        }
+    }
+
+    private static String accountId(int index) {
+        return "benchmark-account-" + index;
+    }
+}
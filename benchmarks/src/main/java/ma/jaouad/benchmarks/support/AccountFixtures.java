@@ -0,0 +1,148 @@
+package ma.jaouad.benchmarks.support;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.security.AnyTypePermission;
+import ma.jaouad.accountservice.commands.aggregates.AccountAggregate;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.eventstore.MappedFileEventStorageEngine;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Donnees et infrastructure communes aux benchmarks (hors contexte Spring)
+ */
+public final class AccountFixtures {
+
+    public static final String CURRENCY = "MAD";
+    public static final String AGGREGATE_TYPE = AccountAggregate.class.getSimpleName();
+
+    private AccountFixtures() {
+    }
+
+    /**
+     * Serializer XStream configure comme dans les services (AxonConfig)
+     */
+    public static Serializer xStreamSerializer() {
+        XStream xStream = new XStream();
+        xStream.addPermission(AnyTypePermission.ANY);
+        xStream.autodetectAnnotations(true);
+        return XStreamSerializer.builder().xStream(xStream).build();
+    }
+
+    public static Serializer jacksonSerializer() {
+        return JacksonSerializer.builder().lenientDeserialization().build();
+    }
+
+    /**
+     * Serializer Jackson des events core-api : classes immuables sans constructeur par defaut,
+     * creees via les noms des parametres du constructeur (compilation avec -parameters)
+     */
+    public static Serializer jacksonEventSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new ParameterNamesModule(JsonCreator.Mode.PROPERTIES));
+        return JacksonSerializer.builder().objectMapper(objectMapper).lenientDeserialization().build();
+    }
+
+    /**
+     * Event store embarque dans un repertoire temporaire : events XStream, snapshots Jackson
+     * (configuration par defaut des services)
+     */
+    public static EventStoreHandle fileEventStore(Serializer eventSerializer) {
+        return fileEventStore(eventSerializer, 64 * 1024 * 1024, false);
+    }
+
+    /**
+     * Idem avec une taille de segment et la compression Zstd des payloads au choix
+     */
+    public static EventStoreHandle fileEventStore(Serializer eventSerializer, int segmentSize, boolean compression) {
+        try {
+            Path directory = Files.createTempDirectory("benchmark-eventstore");
+            MappedFileEventStorageEngine storageEngine = MappedFileEventStorageEngine.builder()
+                    .directory(directory)
+                    .eventSerializer(eventSerializer)
+                    .snapshotSerializer(jacksonSerializer())
+                    .segmentSize(segmentSize)
+                    .compression(compression)
+                    .build();
+            EmbeddedEventStore eventStore = EmbeddedEventStore.builder().storageEngine(storageEngine).build();
+            return new EventStoreHandle(eventStore, storageEngine, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flux d'un compte de length events : creation, activation puis credits et debits alternes
+     */
+    public static List<DomainEventMessage<?>> accountStream(String accountId, int length) {
+        List<DomainEventMessage<?>> events = new ArrayList<>(length);
+        for (int sequence = 0; sequence < length; sequence++) {
+            events.add(domainEvent(accountId, sequence, accountEvent(accountId, sequence)));
+        }
+        return events;
+    }
+
+    public static Object accountEvent(String accountId, int sequence) {
+        if (sequence == 0) {
+            return new AccountCreatedEvent(accountId, 1000, CURRENCY, AccountStatus.CREATED);
+        }
+        if (sequence == 1) {
+            return new AccountStatusUpdatedEvent(accountId, AccountStatus.CREATED, AccountStatus.ACTIVATED);
+        }
+        return sequence % 2 == 0
+                ? new AccountCreditedEvent(accountId, 10)
+                : new AccountDebitedEvent(accountId, 5);
+    }
+
+    public static DomainEventMessage<?> domainEvent(String accountId, long sequence, Object payload) {
+        return new GenericDomainEventMessage<>(AGGREGATE_TYPE, accountId, sequence, payload);
+    }
+
+    /**
+     * Ajoute le flux d'un compte par paquets (evite une seule transaction geante)
+     */
+    public static void appendStream(EmbeddedEventStore eventStore, String accountId, int length) {
+        List<DomainEventMessage<?>> events = accountStream(accountId, length);
+        for (int from = 0; from < events.size(); from += 1000) {
+            eventStore.publish(events.subList(from, Math.min(from + 1000, events.size())));
+        }
+    }
+
+    public static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record EventStoreHandle(EmbeddedEventStore eventStore,
+                                   MappedFileEventStorageEngine storageEngine,
+                                   Path directory) implements AutoCloseable {
+        @Override
+        public void close() {
+            eventStore.shutDown();
+            storageEngine.close();
+            deleteRecursively(directory);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ma.jaouad.benchmarks.support;
+
+import ma.jaouad.accountservice.AccountServiceApplication;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Contexte Spring d'account-service pour les benchmarks (sans serveur web ni Axon Server)
+ *
+ * Base H2 en memoire propre a chaque contexte. Les processeurs d'events sont arretes :
+ * les benchmarks appellent eux-memes les handlers mesures.
+ *
+ * L'UpdateChecker d'Axon est desactive : appels reseau pendant la mesure, et son thread
+ * (non daemon) empeche la JVM forkee par JMH de s'arreter.
+ */
+public final class AccountServiceContext {
+
+    private AccountServiceContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        System.setProperty("axoniq.update-checker.disabled", "true");
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--axon.axonserver.enabled=false",
+                "--account.cache.enabled=false",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountServiceApplication.class)
+                .run(args.toArray(String[]::new));
+        context.getBean(EventProcessingConfiguration.class).eventProcessors().values()
+                .forEach(EventProcessor::shutDown);
+        return context;
+    }
+}
@@ -0,0 +1,71 @@
+package ma.jaouad.coreapi.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import ma.jaouad.coreapi.processing.ProjectionProcessorService;
+import ma.jaouad.coreapi.processing.SegmentStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Endpoints d'administration des segments des processeurs d'events, communs aux services
+ *
+ * Chaque service l'etend dans un @RestController (mapping /admin/processors) et y ajoute
+ * la reconstruction de sa projection. Le processeur est designe par son nom dans le chemin.
+ */
+public abstract class AbstractProcessorAdminController {
+
+    private final ProjectionProcessorService projectionProcessorService;
+
+    protected AbstractProcessorAdminController(ProjectionProcessorService projectionProcessorService) {
+        this.projectionProcessorService = projectionProcessorService;
+    }
+
+    @GetMapping
+    @Operation(
+        summary = "Etat des segments",
+        description = "Retourne, pour chaque segment des processeurs en streaming, sa position et son retard sur l'event store"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Etat des segments récupéré avec succès")
+    })
+    public List<SegmentStatus> getStatus() {
+        return projectionProcessorService.getStatus();
+    }
+
+    @PostMapping("/{processorName}/segments/{segmentId}/split")
+    @Operation(
+        summary = "Diviser un segment",
+        description = "Divise un segment réclamé par cette instance en deux segments traités en parallèle"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "true si le segment a été divisé"),
+        @ApiResponse(responseCode = "400", description = "Processeur inconnu")
+    })
+    public CompletableFuture<Boolean> splitSegment(
+            @Parameter(description = "Nom du processeur") @PathVariable String processorName,
+            @Parameter(description = "ID du segment") @PathVariable int segmentId) {
+        return projectionProcessorService.splitSegment(processorName, segmentId);
+    }
+
+    @PostMapping("/{processorName}/segments/{segmentId}/merge")
+    @Operation(
+        summary = "Fusionner un segment",
+        description = "Fusionne un segment avec son segment complémentaire"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "true si les segments ont été fusionnés"),
+        @ApiResponse(responseCode = "400", description = "Processeur inconnu")
+    })
+    public CompletableFuture<Boolean> mergeSegment(
+            @Parameter(description = "Nom du processeur") @PathVariable String processorName,
+            @Parameter(description = "ID du segment") @PathVariable int segmentId) {
+        return projectionProcessorService.mergeSegment(processorName, segmentId);
+    }
+}
@@ -0,0 +1,15 @@
+package ma.jaouad.coreapi.dtos;
+
+import lombok.Data;
+import ma.jaouad.coreapi.enums.OperationType;
+
+/**
+ * Ecriture (credit ou debit) d'un envoi en masse
+ */
+@Data
+public class PostingRequestDTO {
+    private OperationType type;
+    private String accountId;
+    private double amount;
+    private String currency;
+}
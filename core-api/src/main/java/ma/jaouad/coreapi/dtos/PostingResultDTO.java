@@ -0,0 +1,31 @@
+package ma.jaouad.coreapi.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultat d'une ecriture d'un envoi en masse (index = position dans le flux d'entree)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PostingResultDTO {
+    public static final String OK = "OK";
+    public static final String ERROR = "ERROR";
+
+    private long index;
+    private String accountId;
+    private String status;
+    private String error;
+
+    public static PostingResultDTO ok(long index, String accountId) {
+        return new PostingResultDTO(index, accountId, OK, null);
+    }
+
+    public static PostingResultDTO error(long index, String accountId, String error) {
+        return new PostingResultDTO(index, accountId, ERROR, error);
+    }
+}
@@ -0,0 +1,277 @@
+package ma.jaouad.coreapi.eventstore;
+
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Format binaire d'un event (ou snapshot) dans un segment
+ *
+ * [epochSecond long][nanos int][eventId str][aggregateType str][aggregateId str][sequence long]
+ * [payloadType str][payloadRevision str][payload bytes][metaData bytes]
+ *
+ * str = longueur short (-1 si null) + UTF-8, bytes = longueur int + contenu.
+ * Comme dans le storage engine JPA, un event hors agregat a pour identifiant
+ * d'agregat son identifiant d'event, pour type null et pour sequence 0.
+ *
+ * Les nanosecondes (< 2^30) laissent libres les bits de poids fort de leur entier :
+ * le bit 30 (COMPRESSED) indique une charge utile et des metadonnees compressees
+ * (trames Zstd, voir PayloadCompressor). Les enregistrements ecrits avant la compression
+ * ont ce bit a 0 et se lisent sans changement.
+ */
+final class EventRecord {
+
+    private static final int COMPRESSED = 1 << 30;
+    private static final int NANOS_MASK = COMPRESSED - 1;
+
+    private EventRecord() {
+    }
+
+    /**
+     * @param compressor compression de la charge utile et des metadonnees, null pour les ecrire telles quelles
+     */
+    static byte[] encode(EventMessage<?> event, Serializer serializer, PayloadCompressor compressor) {
+        SerializedObject<byte[]> payload = event.serializePayload(serializer, byte[].class);
+        SerializedObject<byte[]> metaData = event.serializeMetaData(serializer, byte[].class);
+        String aggregateType = null;
+        String aggregateIdentifier = event.getIdentifier();
+        long sequenceNumber = 0;
+        if (event instanceof DomainEventMessage<?> domainEvent) {
+            aggregateType = domainEvent.getType();
+            aggregateIdentifier = domainEvent.getAggregateIdentifier();
+            sequenceNumber = domainEvent.getSequenceNumber();
+        }
+        return write(event.getTimestamp(), utf8(event.getIdentifier()), utf8(aggregateType), utf8(aggregateIdentifier),
+                     sequenceNumber, utf8(payload.getType().getName()), utf8(payload.getType().getRevision()),
+                     payload.getData(), metaData.getData(), compressor);
+    }
+
+    /**
+     * Reecrit un enregistrement avec la compression courante (dictionnaire compris), en-tete inchange
+     */
+    static byte[] recompress(ByteBuffer record, PayloadCompressor compressor) {
+        ByteBuffer buffer = record.duplicate();
+        long epochSecond = buffer.getLong();
+        int nanos = buffer.getInt();
+        byte[] eventId = getStringBytes(buffer);
+        byte[] type = getStringBytes(buffer);
+        byte[] aggregateId = getStringBytes(buffer);
+        long sequenceNumber = buffer.getLong();
+        byte[] payloadType = getStringBytes(buffer);
+        byte[] payloadRevision = getStringBytes(buffer);
+        byte[] payload = getBytes(buffer);
+        byte[] metaData = getBytes(buffer);
+        if ((nanos & COMPRESSED) != 0) {
+            payload = compressor.decompress(payload);
+            metaData = compressor.decompress(metaData);
+        }
+        return write(Instant.ofEpochSecond(epochSecond, nanos & NANOS_MASK), eventId, type, aggregateId,
+                     sequenceNumber, payloadType, payloadRevision, payload, metaData, compressor);
+    }
+
+    /**
+     * Vrai si l'enregistrement n'est pas compresse, ou l'est sans le dictionnaire courant
+     */
+    static boolean needsRecompression(ByteBuffer record, PayloadCompressor compressor) {
+        if (!isCompressed(record)) {
+            return true;
+        }
+        long dictionaryId = compressor.currentDictionaryId();
+        return dictionaryId != 0 && compressor.dictionaryId(payloadFrame(record)) != dictionaryId;
+    }
+
+    static boolean isCompressed(ByteBuffer record) {
+        return (record.getInt(Long.BYTES) & COMPRESSED) != 0;
+    }
+
+    /**
+     * Taille qu'aurait l'enregistrement sans compression (tailles d'origine lues dans les en-tetes de trame)
+     */
+    static long uncompressedSize(ByteBuffer record, PayloadCompressor compressor) {
+        if (!isCompressed(record)) {
+            return record.remaining();
+        }
+        ByteBuffer buffer = payloadStart(record);
+        ByteBuffer payload = sliceBytes(buffer);
+        ByteBuffer metaData = sliceBytes(buffer);
+        return record.remaining() - payload.remaining() - metaData.remaining()
+            + compressor.contentSize(payload) + compressor.contentSize(metaData);
+    }
+
+    /**
+     * Charge utile et metadonnees decompressees, pour l'entrainement du dictionnaire
+     */
+    static List<byte[]> samples(ByteBuffer record, PayloadCompressor compressor) {
+        ByteBuffer buffer = payloadStart(record);
+        byte[] payload = getBytes(buffer);
+        byte[] metaData = getBytes(buffer);
+        return isCompressed(record)
+            ? List.of(compressor.decompress(payload), compressor.decompress(metaData))
+            : List.of(payload, metaData);
+    }
+
+    private static byte[] write(Instant timestamp, byte[] eventId, byte[] type, byte[] aggregateId,
+                                long sequenceNumber, byte[] payloadType, byte[] payloadRevision,
+                                byte[] payload, byte[] metaData, PayloadCompressor compressor) {
+        int nanos = timestamp.getNano();
+        if (compressor != null) {
+            payload = compressor.compress(payload);
+            metaData = compressor.compress(metaData);
+            nanos |= COMPRESSED;
+        }
+        int size = Long.BYTES + Integer.BYTES
+            + stringSize(eventId) + stringSize(type) + stringSize(aggregateId)
+            + Long.BYTES
+            + stringSize(payloadType) + stringSize(payloadRevision)
+            + Integer.BYTES + payload.length
+            + Integer.BYTES + metaData.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(timestamp.getEpochSecond());
+        buffer.putInt(nanos);
+        putString(buffer, eventId);
+        putString(buffer, type);
+        putString(buffer, aggregateId);
+        buffer.putLong(sequenceNumber);
+        putString(buffer, payloadType);
+        putString(buffer, payloadRevision);
+        buffer.putInt(payload.length).put(payload);
+        buffer.putInt(metaData.length).put(metaData);
+        return buffer.array();
+    }
+
+    /**
+     * Decode l'en-tete ; la charge utile et les metadonnees restent des vues sur l'enregistrement
+     * (MappedEventData), copiees et decompressees au premier acces
+     */
+    static MappedEventData decode(ByteBuffer record, PayloadCompressor compressor) {
+        ByteBuffer buffer = record.duplicate();
+        long epochSecond = buffer.getLong();
+        int nanos = buffer.getInt();
+        String eventIdentifier = getString(buffer);
+        String aggregateType = getString(buffer);
+        String aggregateIdentifier = getString(buffer);
+        long sequenceNumber = buffer.getLong();
+        String payloadType = getString(buffer);
+        String payloadRevision = getString(buffer);
+        ByteBuffer payload = sliceBytes(buffer);
+        ByteBuffer metaData = sliceBytes(buffer);
+        return new MappedEventData(Instant.ofEpochSecond(epochSecond, nanos & NANOS_MASK), eventIdentifier,
+                                   aggregateType, aggregateIdentifier, sequenceNumber,
+                                   new SimpleSerializedType(payloadType, payloadRevision), payload, metaData,
+                                   (nanos & COMPRESSED) != 0 ? compressor : null);
+    }
+
+    /**
+     * Lecture partielle pour le filtrage par type : nom du type de la charge utile
+     */
+    static String payloadType(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.position(Long.BYTES + Integer.BYTES);
+        skipString(buffer);
+        skipString(buffer);
+        skipString(buffer);
+        buffer.position(buffer.position() + Long.BYTES);
+        return getString(buffer);
+    }
+
+    /**
+     * Lecture partielle pour l'indexation : identifiant d'agregat et numero de sequence
+     * (null si l'event n'appartient pas a un agregat)
+     */
+    static AggregateKey aggregateKey(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.position(Long.BYTES + Integer.BYTES);
+        skipString(buffer);
+        String aggregateType = getString(buffer);
+        String aggregateIdentifier = getString(buffer);
+        long sequenceNumber = buffer.getLong();
+        return aggregateType == null ? null : new AggregateKey(aggregateIdentifier, sequenceNumber);
+    }
+
+    static Instant timestamp(ByteBuffer record) {
+        return Instant.ofEpochSecond(record.getLong(0), record.getInt(Long.BYTES) & NANOS_MASK);
+    }
+
+    /**
+     * Position du champ payload, apres l'en-tete
+     */
+    private static ByteBuffer payloadStart(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.position(Long.BYTES + Integer.BYTES);
+        skipString(buffer);
+        skipString(buffer);
+        skipString(buffer);
+        buffer.position(buffer.position() + Long.BYTES);
+        skipString(buffer);
+        skipString(buffer);
+        return buffer;
+    }
+
+    private static ByteBuffer payloadFrame(ByteBuffer record) {
+        return sliceBytes(payloadStart(record));
+    }
+
+    record AggregateKey(String aggregateIdentifier, long sequenceNumber) {
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return Short.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        if (value.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String field too long for the event store: " + value.length + " bytes");
+        }
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = getStringBytes(buffer);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getStringBytes(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return value;
+    }
+
+    private static ByteBuffer sliceBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer value = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,121 @@
+package ma.jaouad.coreapi.eventstore;
+
+import org.axonframework.eventhandling.DomainEventData;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.SimpleSerializedType;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Event lu dans un segment, sans copie de la charge utile
+ *
+ * L'en-tete (identifiants, sequence, type) est decode a la lecture ; la charge utile et les
+ * metadonnees restent des vues sur le segment et ne sont copiees (et decompressees) qu'au
+ * premier getData(), c'est-a-dire quand un handler deserialise l'event. Les events qu'aucun
+ * handler ne lit ne coutent que leur en-tete.
+ */
+final class MappedEventData implements DomainEventData<byte[]> {
+
+    private static final SerializedType METADATA_TYPE = new SimpleSerializedType(MetaData.class.getName(), null);
+
+    private final Instant timestamp;
+    private final String eventIdentifier;
+    private final String type;
+    private final String aggregateIdentifier;
+    private final long sequenceNumber;
+    private final LazyBytes payload;
+    private final LazyBytes metaData;
+
+    MappedEventData(Instant timestamp, String eventIdentifier, String type, String aggregateIdentifier,
+                    long sequenceNumber, SerializedType payloadType, ByteBuffer payload, ByteBuffer metaData,
+                    PayloadCompressor compressor) {
+        this.timestamp = timestamp;
+        this.eventIdentifier = eventIdentifier;
+        this.type = type;
+        this.aggregateIdentifier = aggregateIdentifier;
+        this.sequenceNumber = sequenceNumber;
+        this.payload = new LazyBytes(payloadType, payload, compressor);
+        this.metaData = new LazyBytes(METADATA_TYPE, metaData, compressor);
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getAggregateIdentifier() {
+        return aggregateIdentifier;
+    }
+
+    @Override
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public String getEventIdentifier() {
+        return eventIdentifier;
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public SerializedObject<byte[]> getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public SerializedObject<byte[]> getPayload() {
+        return payload;
+    }
+
+    /**
+     * Contenu serialise copie du segment au premier acces
+     *
+     * compressor : null si le contenu est stocke non compresse
+     */
+    private static final class LazyBytes implements SerializedObject<byte[]> {
+
+        private final SerializedType type;
+        private final ByteBuffer source;
+        private final PayloadCompressor compressor;
+        private volatile byte[] data;
+
+        private LazyBytes(SerializedType type, ByteBuffer source, PayloadCompressor compressor) {
+            this.type = type;
+            this.source = source;
+            this.compressor = compressor;
+        }
+
+        @Override
+        public Class<byte[]> getContentType() {
+            return byte[].class;
+        }
+
+        @Override
+        public SerializedType getType() {
+            return type;
+        }
+
+        @Override
+        public byte[] getData() {
+            byte[] bytes = data;
+            if (bytes == null) {
+                bytes = new byte[source.remaining()];
+                source.duplicate().get(bytes);
+                if (compressor != null) {
+                    bytes = compressor.decompress(bytes);
+                }
+                data = bytes;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ma.jaouad.coreapi.eventstore;
+
+import org.axonframework.common.stream.BlockingStream;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.axonframework.serialization.UnknownSerializedType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source d'events des processeurs (tracking et pooled streaming) lue directement dans le MappedFileEventStorageEngine
+ *
+ * Chaque flux ouvert suit les types d'events que son processeur ne sait pas traiter : Axon les signale
+ * via skipMessagesWithPayloadTypeOf au premier event de chaque type sans handler. Les enregistrements
+ * de ces types sont ensuite ecartes a la lecture du segment, sur leur seul type (voir
+ * MappedFileEventStorageEngine#readEvents(long, Set)). Les events retenus restent deserialises a la demande.
+ *
+ * Les nouveaux events sont recherches toutes les pollInterval quand le flux est a jour : aucun ajout n'est
+ * signale, la source est prevue pour un processus lecteur (analytics-service). Dans le processus ecrivain,
+ * l'event store (EmbeddedEventStore) reveille les processeurs des l'ajout et reste preferable.
+ */
+public class MappedFileEventSource implements StreamableMessageSource<TrackedEventMessage<?>> {
+
+    private final MappedFileEventStorageEngine storageEngine;
+    private final long pollIntervalMillis;
+
+    public MappedFileEventSource(MappedFileEventStorageEngine storageEngine, Duration pollInterval) {
+        this.storageEngine = storageEngine;
+        this.pollIntervalMillis = Math.max(1, pollInterval.toMillis());
+    }
+
+    @Override
+    public BlockingStream<TrackedEventMessage<?>> openStream(TrackingToken trackingToken) {
+        if (trackingToken != null && !(trackingToken instanceof GlobalSequenceTrackingToken)) {
+            throw new IllegalArgumentException("Unsupported tracking token: " + trackingToken.getClass().getName());
+        }
+        return new FilteringEventStream(
+            trackingToken == null ? 0 : ((GlobalSequenceTrackingToken) trackingToken).getGlobalIndex() + 1);
+    }
+
+    @Override
+    public TrackingToken createTailToken() {
+        return storageEngine.createTailToken();
+    }
+
+    @Override
+    public TrackingToken createHeadToken() {
+        return storageEngine.createHeadToken();
+    }
+
+    @Override
+    public TrackingToken createTokenAt(Instant dateTime) {
+        return storageEngine.createTokenAt(dateTime);
+    }
+
+    /**
+     * Flux d'un processeur, lu et consomme par un seul thread (celui du processeur)
+     */
+    private final class FilteringEventStream implements BlockingStream<TrackedEventMessage<?>> {
+
+        private final Set<String> skippedPayloadTypes = ConcurrentHashMap.newKeySet();
+        private final Deque<TrackedEventMessage<?>> buffer = new ArrayDeque<>();
+        private long nextIndex;
+        private volatile boolean closed;
+
+        private FilteringEventStream(long firstIndex) {
+            this.nextIndex = firstIndex;
+        }
+
+        @Override
+        public Optional<TrackedEventMessage<?>> peek() {
+            if (buffer.isEmpty()) {
+                fetch();
+            }
+            return Optional.ofNullable(buffer.peek());
+        }
+
+        @Override
+        public boolean hasNextAvailable(int timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!closed) {
+                if (!buffer.isEmpty() || fetch()) {
+                    return true;
+                }
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                Thread.sleep(Math.min(pollIntervalMillis, remainingMillis));
+            }
+            return false;
+        }
+
+        @Override
+        public TrackedEventMessage<?> nextAvailable() throws InterruptedException {
+            while (!hasNextAvailable((int) pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    throw new IllegalStateException("The event stream has been closed");
+                }
+            }
+            return buffer.poll();
+        }
+
+        @Override
+        public void skipMessagesWithPayloadTypeOf(TrackedEventMessage<?> message) {
+            Class<?> payloadType = message.getPayloadType();
+            if (payloadType == UnknownSerializedType.class) {
+                return;
+            }
+            skippedPayloadTypes.add(storageEngine.getEventSerializer().typeForClass(payloadType).getName());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            buffer.clear();
+        }
+
+        /**
+         * Lit les enregistrements suivants jusqu'a trouver des events retenus ou atteindre la fin du journal
+         */
+        private boolean fetch() {
+            while (buffer.isEmpty()) {
+                MappedFileEventStorageEngine.TrackedEventBatch batch = storageEngine.readEvents(nextIndex, skippedPayloadTypes);
+                boolean advanced = batch.nextIndex() > nextIndex;
+                nextIndex = batch.nextIndex();
+                buffer.addAll(batch.events());
+                if (!advanced) {
+                    break;
+                }
+            }
+            return !buffer.isEmpty();
+        }
+    }
+}
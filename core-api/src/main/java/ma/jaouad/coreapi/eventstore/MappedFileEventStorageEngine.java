@@ -0,0 +1,588 @@
+package ma.jaouad.coreapi.eventstore;
+
+import ma.jaouad.coreapi.eventstore.EventRecord.AggregateKey;
+import org.axonframework.common.AxonConfigurationException;
+import org.axonframework.eventhandling.DomainEventData;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.EventUtils;
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.TrackedDomainEventData;
+import org.axonframework.eventhandling.TrackedEventData;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventsourcing.eventstore.AbstractEventStorageEngine;
+import org.axonframework.eventsourcing.snapshotting.SnapshotFilter;
+import org.axonframework.modelling.command.ConcurrencyException;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.upcasting.event.EventUpcaster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static org.axonframework.common.BuilderUtils.assertNonNull;
+import static org.axonframework.common.BuilderUtils.assertStrictPositive;
+
+/**
+ * EventStorageEngine embarque, sans Axon Server, pour les deploiements mono-noeud
+ *
+ * - Events et snapshots sont ecrits dans des segments append-only en memoire mappee (SegmentLog)
+ * - Un index par agregat (en memoire, reconstruit a l'ouverture) sert readEvents(aggregateId)
+ * - La position dans le journal sert de sequence globale (GlobalSequenceTrackingToken)
+ *   pour les event processors de type tracking
+ *
+ * Un seul processus ecrit (account-service). D'autres processus (analytics-service)
+ * peuvent ouvrir le meme repertoire en lecture seule : les nouveaux events sont
+ * decouverts a chaque lecture du flux.
+ *
+ * Avec compression(true), la charge utile et les metadonnees des nouveaux enregistrements sont
+ * compressees (Zstd, voir PayloadCompressor). Un indicateur dans l'en-tete de chaque enregistrement
+ * permet de lire indifferemment les enregistrements compresses ou non, quel que soit le reglage.
+ * recompress() reecrit les segments scelles existants avec la compression courante.
+ */
+public class MappedFileEventStorageEngine extends AbstractEventStorageEngine implements AutoCloseable {
+
+    private static final int DICTIONARY_SAMPLES = 10_000;
+    private static final int MIN_DICTIONARY_SAMPLES = 1_000;
+
+    private final SegmentLog events;
+    private final SegmentLog snapshots;
+    private final boolean readOnly;
+    private final boolean forceOnAppend;
+    private final int batchSize;
+    private final boolean compression;
+    private final PayloadCompressor compressor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, AggregateIndex> aggregateIndex = new HashMap<>();
+    private final Map<String, Long> latestSnapshots = new HashMap<>();
+
+    protected MappedFileEventStorageEngine(Builder builder) {
+        super(builder);
+        this.readOnly = builder.readOnly;
+        this.forceOnAppend = builder.forceOnAppend;
+        this.batchSize = builder.batchSize;
+        this.compression = builder.compression;
+        this.compressor = new PayloadCompressor(builder.directory, builder.compressionLevel);
+        this.events = new SegmentLog(builder.directory, "events", builder.segmentSize, readOnly);
+        this.snapshots = new SegmentLog(builder.directory, "snapshots", builder.segmentSize, readOnly);
+        refresh();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    protected void appendEvents(List<? extends EventMessage<?>> eventMessages, Serializer serializer) {
+        if (eventMessages.isEmpty()) {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>(eventMessages.size());
+        for (EventMessage<?> event : eventMessages) {
+            records.add(EventRecord.encode(event, serializer, compression ? compressor : null));
+        }
+        lock.writeLock().lock();
+        try {
+            checkSequenceNumbers(eventMessages);
+            for (byte[] record : records) {
+                long index = events.append(record);
+                indexEvent(index, ByteBuffer.wrap(record));
+            }
+            if (forceOnAppend) {
+                events.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void storeSnapshot(DomainEventMessage<?> snapshot, Serializer serializer) {
+        byte[] record = EventRecord.encode(snapshot, serializer, compression ? compressor : null);
+        lock.writeLock().lock();
+        try {
+            latestSnapshots.put(snapshot.getAggregateIdentifier(), snapshots.append(record));
+            if (forceOnAppend) {
+                snapshots.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected Stream<? extends DomainEventData<?>> readEventData(String aggregateIdentifier,
+                                                                 long firstSequenceNumber) {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            AggregateIndex index = aggregateIndex.get(aggregateIdentifier);
+            if (index == null) {
+                return Stream.empty();
+            }
+            List<DomainEventData<?>> result = new ArrayList<>();
+            for (int i = index.firstPositionFrom(firstSequenceNumber); i < index.size; i++) {
+                result.add(EventRecord.decode(events.read(index.globalIndexes[i]), compressor));
+            }
+            return result.stream();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected Stream<? extends TrackedEventData<?>> readEventData(TrackingToken trackingToken, boolean mayBlock) {
+        if (trackingToken != null && !(trackingToken instanceof GlobalSequenceTrackingToken)) {
+            throw new IllegalArgumentException("Unsupported tracking token: " + trackingToken.getClass().getName());
+        }
+        refreshIfReadOnly();
+        long first = trackingToken == null ? 0 : ((GlobalSequenceTrackingToken) trackingToken).getGlobalIndex() + 1;
+        lock.readLock().lock();
+        try {
+            long end = Math.min(events.size(), first + batchSize);
+            List<TrackedEventData<?>> result = new ArrayList<>((int) Math.max(0, end - first));
+            for (long globalIndex = first; globalIndex < end; globalIndex++) {
+                result.add(new TrackedDomainEventData<>(new GlobalSequenceTrackingToken(globalIndex),
+                                                        EventRecord.decode(events.read(globalIndex), compressor)));
+            }
+            return result.stream();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lecture du flux global pour un processeur (MappedFileEventSource)
+     *
+     * Les enregistrements dont le type de charge utile figure dans skippedPayloadTypes sont ecartes
+     * apres lecture de ce seul type : ni copie, ni upcasting, ni deserialisation. Au plus batchSize
+     * enregistrements sont parcourus par appel, retenus ou non.
+     *
+     * @param firstIndex position du premier enregistrement a lire
+     */
+    public TrackedEventBatch readEvents(long firstIndex, Set<String> skippedPayloadTypes) {
+        refreshIfReadOnly();
+        List<TrackedEventData<?>> result = new ArrayList<>();
+        long end;
+        lock.readLock().lock();
+        try {
+            end = Math.min(events.size(), firstIndex + batchSize);
+            for (long globalIndex = firstIndex; globalIndex < end; globalIndex++) {
+                ByteBuffer record = events.read(globalIndex);
+                if (skippedPayloadTypes.isEmpty() || !skippedPayloadTypes.contains(EventRecord.payloadType(record))) {
+                    result.add(new TrackedDomainEventData<>(new GlobalSequenceTrackingToken(globalIndex),
+                                                            EventRecord.decode(record, compressor)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<TrackedEventMessage<?>> messages = result.isEmpty()
+            ? List.of()
+            : EventUtils.upcastAndDeserializeTrackedEvents(result.stream(), getEventSerializer(), upcasterChain).toList();
+        return new TrackedEventBatch(messages, Math.max(firstIndex, end));
+    }
+
+    /**
+     * Events retenus par readEvents(long, Set) et position du prochain enregistrement a lire
+     */
+    public record TrackedEventBatch(List<TrackedEventMessage<?>> events, long nextIndex) {
+    }
+
+    @Override
+    protected Stream<? extends DomainEventData<?>> readSnapshotData(String aggregateIdentifier) {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            Long index = latestSnapshots.get(aggregateIdentifier);
+            return index == null ? Stream.empty() : Stream.of(EventRecord.decode(snapshots.read(index), compressor));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Long> lastSequenceNumberFor(String aggregateIdentifier) {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            AggregateIndex index = aggregateIndex.get(aggregateIdentifier);
+            return index == null ? Optional.empty() : Optional.of(index.lastSequenceNumber());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TrackingToken createTailToken() {
+        return null;
+    }
+
+    @Override
+    public TrackingToken createHeadToken() {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            return events.size() == 0 ? null : new GlobalSequenceTrackingToken(events.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TrackingToken createTokenAt(Instant dateTime) {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            for (long globalIndex = 0; globalIndex < events.size(); globalIndex++) {
+                if (!EventRecord.timestamp(events.read(globalIndex)).isBefore(dateTime)) {
+                    return globalIndex == 0 ? null : new GlobalSequenceTrackingToken(globalIndex - 1);
+                }
+            }
+            return events.size() == 0 ? null : new GlobalSequenceTrackingToken(events.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reecrit les segments scelles (events et snapshots) dont des enregistrements ne sont pas compresses,
+     * ou pas avec le dictionnaire courant
+     *
+     * Sans dictionnaire, en entraine d'abord un sur un echantillon du journal des events (au moins
+     * MIN_DICTIONARY_SAMPLES enregistrements). Chaque segment est reecrit hors verrou puis installe
+     * sous le verrou d'ecriture : les appends ne sont bloques que le temps du renommage.
+     * Le segment en cours d'ecriture est traite une fois scelle, au passage suivant.
+     */
+    public synchronized RecompressionResult recompress() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Event store opened in read-only mode");
+        }
+        if (compressor.currentDictionaryId() == 0) {
+            trainDictionary();
+        }
+        RecompressionResult result = new RecompressionResult(compressor.currentDictionaryId(), 0, 0, 0, 0, 0, 0);
+        for (SegmentLog log : List.of(events, snapshots)) {
+            for (int position = 0; ; position++) {
+                SegmentLog.SealedSegment segment;
+                lock.readLock().lock();
+                try {
+                    segment = log.sealedSegment(position);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (segment == null) {
+                    break;
+                }
+                if (segment.records().stream().noneMatch(record -> EventRecord.needsRecompression(record, compressor))) {
+                    continue;
+                }
+                List<byte[]> records = new ArrayList<>(segment.records().size());
+                long recordBytesBefore = 0;
+                long recordBytesAfter = 0;
+                for (ByteBuffer record : segment.records()) {
+                    byte[] recompressed = EventRecord.recompress(record, compressor);
+                    records.add(recompressed);
+                    recordBytesBefore += record.remaining();
+                    recordBytesAfter += recompressed.length;
+                }
+                Path replacement = log.writeReplacement(segment, records);
+                long fileBytesAfter = replacement.toFile().length();
+                lock.writeLock().lock();
+                try {
+                    log.replaceSegment(segment, replacement);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                result = result.add(records.size(), recordBytesBefore, recordBytesAfter,
+                                    segment.fileBytes(), fileBytesAfter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Etat du journal des events : enregistrements compresses, octets stockes et octets sans compression
+     */
+    public StorageReport storageReport() {
+        refreshIfReadOnly();
+        lock.readLock().lock();
+        try {
+            long compressedRecords = 0;
+            long storedBytes = 0;
+            long uncompressedBytes = 0;
+            for (long globalIndex = 0; globalIndex < events.size(); globalIndex++) {
+                ByteBuffer record = events.read(globalIndex);
+                if (EventRecord.isCompressed(record)) {
+                    compressedRecords++;
+                }
+                storedBytes += record.remaining();
+                uncompressedBytes += EventRecord.uncompressedSize(record, compressor);
+            }
+            return new StorageReport(events.size(), compressedRecords, storedBytes, uncompressedBytes,
+                                     storedBytes == 0 ? 1 : (double) uncompressedBytes / storedBytes,
+                                     events.fileBytes(), compressor.currentDictionaryId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bilan d'une recompression : enregistrements et segments reecrits, octets avant / apres
+     * (enregistrements seuls, puis fichiers de segments)
+     */
+    public record RecompressionResult(long dictionaryId, int segments, long records,
+                                      long recordBytesBefore, long recordBytesAfter,
+                                      long fileBytesBefore, long fileBytesAfter) {
+
+        private RecompressionResult add(long records, long recordBytesBefore, long recordBytesAfter,
+                                        long fileBytesBefore, long fileBytesAfter) {
+            return new RecompressionResult(dictionaryId, segments + 1, this.records + records,
+                this.recordBytesBefore + recordBytesBefore, this.recordBytesAfter + recordBytesAfter,
+                this.fileBytesBefore + fileBytesBefore, this.fileBytesAfter + fileBytesAfter);
+        }
+    }
+
+    /**
+     * Etat du journal des events : storedBytes / uncompressedBytes (et leur rapport compressionRatio)
+     * sur les enregistrements, fileBytes sur les fichiers de segments (espace libre du segment courant compris)
+     */
+    public record StorageReport(long records, long compressedRecords, long storedBytes, long uncompressedBytes,
+                                double compressionRatio, long fileBytes, long dictionaryId) {
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            events.close();
+            snapshots.close();
+            compressor.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close event store segments", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Echantillon regulierement espace du journal des events, decompresse
+     */
+    private void trainDictionary() {
+        List<byte[]> samples = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long size = events.size();
+            if (size < MIN_DICTIONARY_SAMPLES) {
+                return;
+            }
+            long step = Math.max(1, size / DICTIONARY_SAMPLES);
+            for (long globalIndex = 0; globalIndex < size; globalIndex += step) {
+                samples.addAll(EventRecord.samples(events.read(globalIndex), compressor));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        compressor.train(samples);
+    }
+
+    private void refreshIfReadOnly() {
+        if (readOnly) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        lock.writeLock().lock();
+        try {
+            events.refresh(this::indexEvent);
+            snapshots.refresh((index, record) -> {
+                AggregateKey key = EventRecord.aggregateKey(record);
+                if (key != null) {
+                    latestSnapshots.put(key.aggregateIdentifier(), index);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexEvent(long globalIndex, ByteBuffer record) {
+        AggregateKey key = EventRecord.aggregateKey(record);
+        if (key != null) {
+            aggregateIndex.computeIfAbsent(key.aggregateIdentifier(), id -> new AggregateIndex())
+                          .add(globalIndex, key.sequenceNumber());
+        }
+    }
+
+    /**
+     * Controle de concurrence optimiste : un numero de sequence deja utilise est refuse
+     */
+    private void checkSequenceNumbers(List<? extends EventMessage<?>> eventMessages) {
+        Map<String, Long> lastSequenceNumbers = new HashMap<>();
+        for (EventMessage<?> event : eventMessages) {
+            if (event instanceof DomainEventMessage<?> domainEvent && domainEvent.getType() != null) {
+                String aggregateIdentifier = domainEvent.getAggregateIdentifier();
+                Long last = lastSequenceNumbers.computeIfAbsent(aggregateIdentifier, id -> {
+                    AggregateIndex index = aggregateIndex.get(id);
+                    return index == null ? null : index.lastSequenceNumber();
+                });
+                if (last != null && domainEvent.getSequenceNumber() <= last) {
+                    throw new ConcurrencyException(String.format(
+                        "An event for aggregate [%s] at sequence [%d] was already inserted",
+                        aggregateIdentifier, domainEvent.getSequenceNumber()));
+                }
+                lastSequenceNumbers.put(aggregateIdentifier, domainEvent.getSequenceNumber());
+            }
+        }
+    }
+
+    /**
+     * Positions globales et numeros de sequence des events d'un agregat, dans l'ordre
+     */
+    private static final class AggregateIndex {
+        private long[] globalIndexes = new long[8];
+        private long[] sequenceNumbers = new long[8];
+        private int size;
+
+        private void add(long globalIndex, long sequenceNumber) {
+            if (size == globalIndexes.length) {
+                globalIndexes = Arrays.copyOf(globalIndexes, size * 2);
+                sequenceNumbers = Arrays.copyOf(sequenceNumbers, size * 2);
+            }
+            globalIndexes[size] = globalIndex;
+            sequenceNumbers[size] = sequenceNumber;
+            size++;
+        }
+
+        private long lastSequenceNumber() {
+            return sequenceNumbers[size - 1];
+        }
+
+        private int firstPositionFrom(long sequenceNumber) {
+            int position = Arrays.binarySearch(sequenceNumbers, 0, size, sequenceNumber);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+
+    /**
+     * Builder du MappedFileEventStorageEngine
+     *
+     * Le repertoire et les serializers sont obligatoires.
+     */
+    public static class Builder extends AbstractEventStorageEngine.Builder {
+
+        private Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private int batchSize = 1000;
+        private boolean readOnly;
+        private boolean forceOnAppend;
+        private boolean compression;
+        private int compressionLevel = 3;
+
+        @Override
+        public Builder snapshotSerializer(Serializer snapshotSerializer) {
+            super.snapshotSerializer(snapshotSerializer);
+            return this;
+        }
+
+        @Override
+        public Builder upcasterChain(EventUpcaster upcasterChain) {
+            super.upcasterChain(upcasterChain);
+            return this;
+        }
+
+        @Override
+        public Builder eventSerializer(Serializer eventSerializer) {
+            super.eventSerializer(eventSerializer);
+            return this;
+        }
+
+        @Override
+        public Builder snapshotFilter(SnapshotFilter snapshotFilter) {
+            super.snapshotFilter(snapshotFilter);
+            return this;
+        }
+
+        public Builder directory(Path directory) {
+            assertNonNull(directory, "The event store directory may not be null");
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Taille d'un segment en octets (64 Mo par defaut)
+         */
+        public Builder segmentSize(int segmentSize) {
+            assertStrictPositive(segmentSize, "The segment size must be a positive number");
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Nombre maximal d'events retournes par lecture du flux global (1000 par defaut)
+         */
+        public Builder batchSize(int batchSize) {
+            assertStrictPositive(batchSize, "The batch size must be a positive number");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Ouvre le repertoire en lecture seule (processus lecteur d'un store ecrit par un autre service)
+         */
+        public Builder readOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+            return this;
+        }
+
+        /**
+         * Force l'ecriture sur disque apres chaque append (sinon laissee au systeme)
+         */
+        public Builder forceOnAppend(boolean forceOnAppend) {
+            this.forceOnAppend = forceOnAppend;
+            return this;
+        }
+
+        /**
+         * Compresse la charge utile et les metadonnees des nouveaux enregistrements (desactive par defaut)
+         */
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Niveau de compression Zstd (3 par defaut)
+         */
+        public Builder compressionLevel(int compressionLevel) {
+            assertStrictPositive(compressionLevel, "The compression level must be a positive number");
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public MappedFileEventStorageEngine build() {
+            return new MappedFileEventStorageEngine(this);
+        }
+
+        @Override
+        protected void validate() throws AxonConfigurationException {
+            super.validate();
+            assertNonNull(directory, "The event store directory is a hard requirement and should be provided");
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package ma.jaouad.coreapi.eventstore;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Compression Zstd de la charge utile et des metadonnees des events
+ *
+ * Chaque champ compresse est une trame Zstd autonome, dont l'en-tete porte la taille d'origine
+ * et l'identifiant du dictionnaire utilise (0 si aucun). Un event XStream fait quelques centaines
+ * d'octets, surtout des noms de balises : compresse seul il gagne peu, avec un dictionnaire entraine
+ * sur les events du store l'enregistrement complet (en-tete compris) est divise par 1,5 a 2,3. Le dictionnaire est entraine par
+ * MappedFileEventStorageEngine#recompress et enregistre dans le repertoire du store (payloads.zdict) ;
+ * un lecteur (autre processus) le charge au premier event qui l'utilise.
+ *
+ * Les contextes Zstd (memoire native) sont reutilises : en creer un par appel (Zstd.compress / decompress)
+ * coute plus que la (de)compression d'un event. Ils sont empruntes a un pool borne (un contexte par
+ * processeur au plus en attente), les contextes en trop sont fermes au retour, et close() libere les pools.
+ * Un event lu apres close() reste decompressable (contexte cree puis ferme). Les dictionnaires, references
+ * par les contextes encore empruntes, sont liberes par le ramasse-miettes (finaliseur de zstd-jni).
+ *
+ * Thread-safe.
+ */
+final class PayloadCompressor implements Closeable {
+
+    static final String DICTIONARY_FILE = "payloads.zdict";
+
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+    private static final int FRAME_HEADER_MAX_SIZE = 18;
+
+    private final Path dictionaryFile;
+    private final int level;
+    private final ContextPool<ZstdCompressCtx> compressContexts;
+    private final ContextPool<ZstdDecompressCtx> decompressContexts = new ContextPool<>(ZstdDecompressCtx::new);
+    private volatile Dictionary dictionary;
+
+    PayloadCompressor(Path directory, int level) {
+        this.dictionaryFile = directory.resolve(DICTIONARY_FILE);
+        this.level = level;
+        this.compressContexts = new ContextPool<>(() -> new ZstdCompressCtx().setLevel(level));
+        this.dictionary = loadDictionary();
+    }
+
+    byte[] compress(byte[] data) {
+        Dictionary current = dictionary;
+        ContextPool<ZstdCompressCtx> pool = current == null ? compressContexts : current.compressContexts();
+        ZstdCompressCtx context = pool.borrow();
+        try {
+            return context.compress(data);
+        } finally {
+            pool.release(context);
+        }
+    }
+
+    byte[] decompress(byte[] frame) {
+        long size = Zstd.getFrameContentSize(frame);
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Corrupted compressed event data (frame content size " + size + ")");
+        }
+        long dictionaryId = Zstd.getDictIdFromFrame(frame);
+        ContextPool<ZstdDecompressCtx> pool = dictionaryId == 0
+            ? decompressContexts
+            : dictionary(dictionaryId).decompressContexts();
+        ZstdDecompressCtx context = pool.borrow();
+        try {
+            return context.decompress(frame, (int) size);
+        } finally {
+            pool.release(context);
+        }
+    }
+
+    /**
+     * Taille d'origine d'une trame, lue dans son en-tete
+     */
+    long contentSize(ByteBuffer frame) {
+        return Zstd.getFrameContentSize(frameHeader(frame));
+    }
+
+    /**
+     * Dictionnaire d'une trame, lu dans son en-tete (0 si aucun)
+     */
+    long dictionaryId(ByteBuffer frame) {
+        return Zstd.getDictIdFromFrame(frameHeader(frame));
+    }
+
+    /**
+     * @return l'identifiant du dictionnaire utilise pour compresser, 0 si aucun
+     */
+    long currentDictionaryId() {
+        Dictionary current = dictionary;
+        return current == null ? 0 : current.id();
+    }
+
+    /**
+     * Entraine un dictionnaire sur les echantillons, l'enregistre puis l'utilise pour les compressions suivantes
+     *
+     * @return l'identifiant du dictionnaire
+     */
+    synchronized long train(List<byte[]> samples) {
+        int sampleSize = samples.stream().mapToInt(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer(sampleSize, DICTIONARY_SIZE);
+        samples.forEach(trainer::addSample);
+        byte[] trained = trainer.trainSamples();
+        Path temporary = dictionaryFile.resolveSibling(DICTIONARY_FILE + ".tmp");
+        try {
+            Files.write(temporary, trained);
+            Files.move(temporary, dictionaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write compression dictionary " + dictionaryFile, e);
+        }
+        replaceDictionary(new Dictionary(trained, level));
+        return dictionary.id();
+    }
+
+    private Dictionary dictionary(long id) {
+        Dictionary current = dictionary;
+        if (current != null && current.id() == id) {
+            return current;
+        }
+        synchronized (this) {
+            // Dictionnaire entraine par le processus ecrivain depuis l'ouverture
+            current = loadDictionary();
+            if (current == null || current.id() != id) {
+                throw new IllegalStateException("Compression dictionary " + id + " not found in " + dictionaryFile);
+            }
+            replaceDictionary(current);
+            return current;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        compressContexts.close();
+        decompressContexts.close();
+        if (dictionary != null) {
+            dictionary.close();
+        }
+    }
+
+    private void replaceDictionary(Dictionary replacement) {
+        Dictionary previous = dictionary;
+        dictionary = replacement;
+        if (previous != null) {
+            // Les contextes encore empruntes seront fermes a leur retour
+            previous.close();
+        }
+    }
+
+    private Dictionary loadDictionary() {
+        if (!Files.exists(dictionaryFile)) {
+            return null;
+        }
+        try {
+            return new Dictionary(Files.readAllBytes(dictionaryFile), level);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read compression dictionary " + dictionaryFile, e);
+        }
+    }
+
+    private static byte[] frameHeader(ByteBuffer frame) {
+        byte[] header = new byte[Math.min(frame.remaining(), FRAME_HEADER_MAX_SIZE)];
+        frame.duplicate().get(header);
+        return header;
+    }
+
+    private record Dictionary(long id, ZstdDictCompress compress, ZstdDictDecompress decompress,
+                              ContextPool<ZstdCompressCtx> compressContexts,
+                              ContextPool<ZstdDecompressCtx> decompressContexts) {
+
+        private Dictionary(byte[] content, int level) {
+            this(Zstd.getDictIdFromDict(content), new ZstdDictCompress(content, level), new ZstdDictDecompress(content));
+        }
+
+        private Dictionary(long id, ZstdDictCompress compress, ZstdDictDecompress decompress) {
+            this(id, compress, decompress,
+                 new ContextPool<>(() -> new ZstdCompressCtx().loadDict(compress)),
+                 new ContextPool<>(() -> new ZstdDecompressCtx().loadDict(decompress)));
+        }
+
+        private void close() {
+            compressContexts.close();
+            decompressContexts.close();
+        }
+    }
+
+    /**
+     * Pool borne de contextes natifs : emprunt sans attente (creation si le pool est vide),
+     * fermeture au retour si le pool est plein ou ferme
+     */
+    private static final class ContextPool<T extends Closeable> {
+
+        private final Supplier<T> factory;
+        private final BlockingQueue<T> idle = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+        private volatile boolean closed;
+
+        private ContextPool(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        private T borrow() {
+            T context = idle.poll();
+            return context != null ? context : factory.get();
+        }
+
+        private void release(T context) {
+            if (closed || !idle.offer(context)) {
+                closeQuietly(context);
+            } else if (closed) {
+                // close() a pu vider le pool entre le test et offer()
+                drain();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            drain();
+        }
+
+        private void drain() {
+            T context;
+            while ((context = idle.poll()) != null) {
+                closeQuietly(context);
+            }
+        }
+
+        private static void closeQuietly(Closeable context) {
+            try {
+                context.close();
+            } catch (IOException ignored) {
+                // Liberation de memoire native, sans effet de bord
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package ma.jaouad.coreapi.eventstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Journal append-only reparti en segments de taille fixe, ecrits en memoire mappee
+ *
+ * Chaque enregistrement est precede de sa longueur, ecrite en dernier :
+ * - longueur > 0 : enregistrement valide (commit)
+ * - longueur = 0 : fin des donnees ecrites (un ecrivain interrompu laisse 0)
+ * - longueur = -1 : fin de segment, la suite est dans le segment suivant
+ *
+ * Les enregistrements sont numerotes de 0 a size() - 1 dans l'ordre d'ecriture.
+ * Un seul processus ecrit, d'autres peuvent lire le meme repertoire en lecture seule
+ * et decouvrir les nouveaux enregistrements avec refresh().
+ *
+ * Un segment scelle (tous sauf le dernier) peut etre remplace par une version reecrite des memes
+ * enregistrements (recompression) : le fichier, a sa taille exacte, remplace l'ancien par un
+ * renommage atomique. Les vues deja lues et les lecteurs ayant mappe l'ancien fichier gardent
+ * l'ancien contenu, equivalent.
+ *
+ * Non thread-safe : la synchronisation est a la charge de l'appelant.
+ */
+final class SegmentLog implements Closeable {
+
+    private static final int END_OF_SEGMENT = -1;
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    @FunctionalInterface
+    interface RecordListener {
+        void onRecord(long index, ByteBuffer record);
+    }
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final boolean readOnly;
+    private final List<Segment> segments = new ArrayList<>();
+    private long size;
+
+    SegmentLog(Path directory, String prefix, int segmentSize, boolean readOnly) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.readOnly = readOnly;
+        try {
+            if (!readOnly) {
+                Files.createDirectories(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create event store directory " + directory, e);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Taille des fichiers de segments en octets
+     */
+    long fileBytes() {
+        return segments.stream().mapToLong(segment -> segment.capacity).sum();
+    }
+
+    /**
+     * Enregistrements d'un segment scelle, qui ne changent plus : ils peuvent etre lus sans synchronisation
+     *
+     * @return null si position designe le dernier segment (en cours d'ecriture) ou au-dela
+     */
+    SealedSegment sealedSegment(int position) {
+        if (position >= segments.size() - 1) {
+            return null;
+        }
+        Segment segment = segments.get(position);
+        List<ByteBuffer> records = new ArrayList<>(segment.count);
+        for (int i = 0; i < segment.count; i++) {
+            int offset = segment.offsets[i];
+            records.add(segment.buffer.slice(offset + HEADER_SIZE, segment.buffer.getInt(offset)).asReadOnlyBuffer());
+        }
+        return new SealedSegment(position, segment.firstIndex, segment.capacity, records);
+    }
+
+    /**
+     * Ecrit la nouvelle version d'un segment scelle dans un fichier temporaire, a installer avec replaceSegment
+     *
+     * @param records memes enregistrements, dans le meme ordre, reecrits
+     */
+    Path writeReplacement(SealedSegment segment, List<byte[]> records) {
+        if (records.size() != segment.records().size()) {
+            throw new IllegalArgumentException(String.format("Segment %d holds %d records, got %d",
+                segment.firstIndex(), segment.records().size(), records.size()));
+        }
+        int length = HEADER_SIZE;
+        for (byte[] record : records) {
+            length += HEADER_SIZE + record.length;
+        }
+        ByteBuffer content = ByteBuffer.allocate(length);
+        for (byte[] record : records) {
+            content.putInt(record.length).put(record);
+        }
+        content.putInt(END_OF_SEGMENT).flip();
+        Path replacement = temporaryFile(segment.firstIndex());
+        try (FileChannel channel = FileChannel.open(replacement, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+            return replacement;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write event store segment " + replacement, e);
+        }
+    }
+
+    /**
+     * Remplace un segment scelle par le fichier ecrit par writeReplacement
+     */
+    void replaceSegment(SealedSegment sealed, Path replacement) {
+        Segment segment = segments.get(sealed.position());
+        Path file = segmentFile(segment.firstIndex);
+        try {
+            Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(replacement);
+            throw new UncheckedIOException("Unable to replace event store segment " + file, e);
+        }
+        try {
+            // Le mapping de l'ancien fichier reste valide pour les vues deja lues
+            segment.channel.close();
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment replaced = new Segment(segment.firstIndex, channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            int position = 0;
+            int length;
+            while ((length = replaced.buffer.getInt(position)) != END_OF_SEGMENT) {
+                replaced.addOffset(position);
+                position += HEADER_SIZE + length;
+            }
+            replaced.writePosition = position;
+            if (replaced.count != segment.count) {
+                throw new IllegalStateException(String.format("Replaced segment %d holds %d records instead of %d",
+                    segment.firstIndex, replaced.count, segment.count));
+            }
+            segments.set(sealed.position(), replaced);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open event store segment " + file, e);
+        }
+    }
+
+    /**
+     * Lit les enregistrements ecrits depuis le dernier appel (ou depuis l'ouverture)
+     */
+    void refresh(RecordListener listener) {
+        if (segments.isEmpty() && !openSegment(0)) {
+            return;
+        }
+        Segment segment = segments.get(segments.size() - 1);
+        while (true) {
+            int position = segment.writePosition;
+            if (position + HEADER_SIZE > segment.capacity) {
+                return;
+            }
+            int length = segment.buffer.getInt(position);
+            if (length == 0) {
+                return;
+            }
+            if (length == END_OF_SEGMENT) {
+                if (!openSegment(size)) {
+                    return;
+                }
+                segment = segments.get(segments.size() - 1);
+                continue;
+            }
+            segment.addOffset(position);
+            segment.writePosition = position + HEADER_SIZE + length;
+            listener.onRecord(size, segment.buffer.slice(position + HEADER_SIZE, length).asReadOnlyBuffer());
+            size++;
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement et retourne son index
+     */
+    long append(byte[] record) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Event store opened in read-only mode");
+        }
+        if (record.length + 2 * HEADER_SIZE > segmentSize) {
+            throw new IllegalArgumentException(String.format(
+                "Record of %d bytes does not fit in a segment of %d bytes", record.length, segmentSize));
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+        Segment segment = segments.get(segments.size() - 1);
+        int position = segment.writePosition;
+        if (position + HEADER_SIZE + record.length + HEADER_SIZE > segment.capacity) {
+            segment.buffer.putInt(position, END_OF_SEGMENT);
+            openSegment(size);
+            segment = segments.get(segments.size() - 1);
+            position = segment.writePosition;
+        }
+        // Donnees d'abord, longueur ensuite : un lecteur ne voit jamais un enregistrement partiel
+        segment.buffer.put(position + HEADER_SIZE, record);
+        segment.buffer.putInt(position, record.length);
+        segment.addOffset(position);
+        segment.writePosition = position + HEADER_SIZE + record.length;
+        return size++;
+    }
+
+    ByteBuffer read(long index) {
+        int segmentIndex = segmentFor(index);
+        Segment segment = segments.get(segmentIndex);
+        int position = segment.offsets[(int) (index - segment.firstIndex)];
+        int length = segment.buffer.getInt(position);
+        return segment.buffer.slice(position + HEADER_SIZE, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Force l'ecriture sur disque du segment courant
+     */
+    void force() {
+        if (!readOnly && !segments.isEmpty()) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    private int segmentFor(long index) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segments.get(mid).firstIndex <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private Path segmentFile(long firstIndex) {
+        return directory.resolve(String.format("%s-%020d.seg", prefix, firstIndex));
+    }
+
+    private Path temporaryFile(long firstIndex) {
+        return directory.resolve(String.format("%s-%020d.seg.tmp", prefix, firstIndex));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Fichier temporaire, ignore a l'ouverture
+        }
+    }
+
+    private boolean openSegment(long firstIndex) {
+        Path file = segmentFile(firstIndex);
+        try {
+            if (readOnly) {
+                if (!Files.exists(file)) {
+                    return false;
+                }
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                if (channel.size() < HEADER_SIZE) {
+                    // Segment en cours de creation par l'ecrivain
+                    channel.close();
+                    return false;
+                }
+                segments.add(new Segment(firstIndex, channel,
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+            } else {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                // Un segment recompresse garde sa taille exacte, un nouveau segment est cree a segmentSize
+                long capacity = channel.size() > 0 ? channel.size() : segmentSize;
+                segments.add(new Segment(firstIndex, channel,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity)));
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open event store segment " + file, e);
+        }
+    }
+
+    /**
+     * Segment scelle : position dans le journal, index du premier enregistrement, taille du fichier
+     */
+    record SealedSegment(int position, long firstIndex, long fileBytes, List<ByteBuffer> records) {
+    }
+
+    private static final class Segment {
+        private final long firstIndex;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int[] offsets = new int[1024];
+        private int count;
+        private int writePosition;
+
+        private Segment(long firstIndex, FileChannel channel, MappedByteBuffer buffer) {
+            this.firstIndex = firstIndex;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        private void addOffset(int offset) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ma.jaouad.coreapi.exceptions;
+
+public class InvalidContinuationTokenException extends IllegalArgumentException {
+    public InvalidContinuationTokenException(String token) {
+        super(String.format("Invalid continuation token: %s", token));
+    }
+}
@@ -0,0 +1,93 @@
+package ma.jaouad.coreapi.jdbc;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Chargement en masse des projections (reconstruction)
+ *
+ * COPY FROM STDIN sur PostgreSQL, batchs JDBC de taille fixe sur les autres bases (H2).
+ * Les lignes sont lues en flux : au plus batchSize lignes en memoire, progress appele apres chaque bloc.
+ */
+public class BulkLoader {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkLoader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute(
+            (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+    }
+
+    /**
+     * @return le nombre de lignes inserees
+     */
+    public <T> long batchInsert(String sql, Iterator<T> rows, int batchSize, LongConsumer progress,
+                                ParameterizedPreparedStatementSetter<T> setter) {
+        long count = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            batch.add(rows.next());
+            if (batch.size() == batchSize || !rows.hasNext()) {
+                jdbcTemplate.batchUpdate(sql, batch, batch.size(), setter);
+                count += batch.size();
+                progress.accept(count);
+                batch.clear();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Envoie les lignes au format CSV par COPY, par blocs de batchSize lignes
+     *
+     * @return le nombre de lignes copiees
+     */
+    public <T> long copyIn(String sql, Iterator<T> rows, int batchSize, LongConsumer progress,
+                           Function<T, String> csvLine) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                long count = 0;
+                StringBuilder block = new StringBuilder();
+                while (rows.hasNext()) {
+                    block.append(csvLine.apply(rows.next())).append('\n');
+                    count++;
+                    if (count % batchSize == 0 || !rows.hasNext()) {
+                        byte[] bytes = block.toString().getBytes(StandardCharsets.UTF_8);
+                        copyIn.writeToCopy(bytes, 0, bytes.length);
+                        block.setLength(0);
+                        progress.accept(count);
+                    }
+                }
+                copyIn.endCopy();
+                return count;
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    /**
+     * Champ texte CSV entre guillemets (guillemets internes doubles)
+     */
+    public static String csv(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
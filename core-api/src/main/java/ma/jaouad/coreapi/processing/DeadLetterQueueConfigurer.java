@@ -0,0 +1,53 @@
+package ma.jaouad.coreapi.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.common.jpa.EntityManagerProvider;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.deadletter.jpa.JpaSequencedDeadLetterQueue;
+
+/**
+ * Enregistrement de la file des lettres mortes (dead-letter queue) d'un processeur d'events
+ *
+ * Un event dont le traitement echoue est stocke en base (table dead_letter_entry) au lieu de bloquer
+ * le processeur en rejeux infinis. Les events suivants de la meme sequence (meme compte) sont mis en file
+ * derriere lui pour conserver l'ordre ; les autres sequences continuent d'etre traitees.
+ * Les sequences sont rejouees automatiquement (DeadLetterRetryPolicy, DeadLetterService) ou via /admin/dead-letters.
+ */
+@Slf4j
+public final class DeadLetterQueueConfigurer {
+
+    private DeadLetterQueueConfigurer() {
+    }
+
+    /**
+     * Sans effet si la file est desactivee (properties.enabled() faux)
+     */
+    public static void configure(EventProcessingConfigurer configurer, String processorName,
+                                 DeadLetterQueueProperties properties) {
+        if (!properties.enabled()) {
+            return;
+        }
+        log.info("Dead-letter queue enabled for processor {} (max retries: {}, retry interval: {} ms)",
+                processorName, properties.maxRetries(), properties.retryInterval().toMillis());
+        configurer.registerDeadLetterQueue(
+                processorName,
+                configuration -> JpaSequencedDeadLetterQueue.builder()
+                    .processingGroup(processorName)
+                    .maxSequences(properties.maxSequences())
+                    .maxSequenceSize(properties.maxSequenceSize())
+                    .entityManagerProvider(configuration.getComponent(EntityManagerProvider.class))
+                    .transactionManager(configuration.getComponent(TransactionManager.class))
+                    .eventSerializer(configuration.eventSerializer())
+                    .genericSerializer(configuration.serializer())
+                    .build())
+            .registerDeadLetterPolicy(
+                processorName,
+                configuration -> new DeadLetterRetryPolicy(properties.maxRetries(), properties.retryInterval()))
+            // Cache des sequences en file : evite une requete sur la file par event traite.
+            // allowReset : un reset des tokens (reconstruction de la projection) vide la file
+            .registerDeadLetteringEventHandlerInvokerConfiguration(
+                processorName,
+                (configuration, builder) -> builder.enableSequenceIdentifierCache().allowReset(true));
+    }
+}
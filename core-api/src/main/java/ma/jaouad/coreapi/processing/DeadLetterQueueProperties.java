@@ -0,0 +1,28 @@
+package ma.jaouad.coreapi.processing;
+
+import org.springframework.core.env.PropertyResolver;
+
+import java.time.Duration;
+
+/**
+ * Reglages de la file des lettres mortes d'un processeur, lus sous un prefixe propre au service
+ * (account.projection.dlq, analytics.projection.dlq)
+ *
+ * - {prefixe}.enabled : active/desactive la file
+ * - {prefixe}.max-sequences : nombre maximal de sequences (comptes) en file
+ * - {prefixe}.max-sequence-size : nombre maximal d'events en file par sequence
+ * - {prefixe}.max-retries : echecs avant arret du rejeu automatique
+ * - {prefixe}.retry-interval-ms : periode du rejeu automatique, delai avant le premier rejeu
+ */
+public record DeadLetterQueueProperties(boolean enabled, int maxSequences, int maxSequenceSize, int maxRetries,
+                                        Duration retryInterval) {
+
+    public static DeadLetterQueueProperties from(PropertyResolver properties, String prefix) {
+        return new DeadLetterQueueProperties(
+                properties.getProperty(prefix + ".enabled", Boolean.class, true),
+                properties.getProperty(prefix + ".max-sequences", Integer.class, 1024),
+                properties.getProperty(prefix + ".max-sequence-size", Integer.class, 1024),
+                properties.getProperty(prefix + ".max-retries", Integer.class, 5),
+                Duration.ofMillis(properties.getProperty(prefix + ".retry-interval-ms", Long.class, 30_000L)));
+    }
+}
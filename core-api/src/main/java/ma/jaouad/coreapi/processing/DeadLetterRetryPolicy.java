@@ -0,0 +1,57 @@
+package ma.jaouad.coreapi.processing;
+
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.deadletter.DeadLetter;
+import org.axonframework.messaging.deadletter.Decisions;
+import org.axonframework.messaging.deadletter.EnqueueDecision;
+import org.axonframework.messaging.deadletter.EnqueuePolicy;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Politique de mise en file et de rejeu des events en echec d'un processeur
+ *
+ * Un event en echec est toujours mis en file (les events suivants de la meme sequence attendent derriere lui).
+ * Chaque nouvel echec incremente le compteur "retries" des diagnostics ; le rejeu automatique
+ * espace les tentatives (delai double a chaque echec) et s'arrete apres maxRetries echecs :
+ * la lettre reste alors en file jusqu'a un rejeu ou une eviction manuelle (/admin/dead-letters).
+ */
+public class DeadLetterRetryPolicy implements EnqueuePolicy<EventMessage<?>> {
+
+    public static final String RETRIES = "retries";
+
+    private final int maxRetries;
+    private final Duration retryInterval;
+
+    public DeadLetterRetryPolicy(int maxRetries, Duration retryInterval) {
+        this.maxRetries = maxRetries;
+        this.retryInterval = retryInterval;
+    }
+
+    @Override
+    public EnqueueDecision<EventMessage<?>> decide(DeadLetter<? extends EventMessage<?>> letter, Throwable cause) {
+        if (!letter.diagnostics().containsKey(RETRIES)) {
+            return Decisions.enqueue(cause, deadLetter -> deadLetter.diagnostics().and(RETRIES, 0));
+        }
+        int retries = retries(letter) + 1;
+        return Decisions.requeue(cause, deadLetter -> deadLetter.diagnostics().and(RETRIES, retries));
+    }
+
+    /**
+     * La sequence peut-elle etre rejouee automatiquement (nombre d'echecs et delai depuis le dernier essai)
+     */
+    public boolean isDue(DeadLetter<? extends EventMessage<?>> letter, Instant now) {
+        int retries = retries(letter);
+        if (retries >= maxRetries) {
+            return false;
+        }
+        Duration delay = retryInterval.multipliedBy(1L << Math.min(retries, 20));
+        return !letter.lastTouched().plus(delay).isAfter(now);
+    }
+
+    public static int retries(DeadLetter<? extends EventMessage<?>> letter) {
+        Object retries = letter.diagnostics().get(RETRIES);
+        return retries instanceof Number number ? number.intValue() : 0;
+    }
+}
@@ -0,0 +1,195 @@
+package ma.jaouad.coreapi.processing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.deadletter.Cause;
+import org.axonframework.messaging.deadletter.DeadLetter;
+import org.axonframework.messaging.deadletter.EnqueuePolicy;
+import org.axonframework.messaging.deadletter.SequencedDeadLetterProcessor;
+import org.axonframework.messaging.deadletter.SequencedDeadLetterQueue;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Administration de la file des lettres mortes d'un processeur d'events (projection d'un service)
+ *
+ * - consultation des sequences en attente (une sequence par agregat, donc par compte)
+ * - rejeu automatique toutes les retryInterval selon DeadLetterRetryPolicy, rejeu et eviction manuels
+ * - gauge Micrometer projection.dead-letters{processor}
+ *
+ * Chaque service en declare un bean pour son processeur, la file etant enregistree par DeadLetterQueueConfigurer.
+ * Le rejeu periodique est planifie par le bean lui-meme (SchedulingConfigurer, avec @EnableScheduling).
+ * Sans file configuree (propriete {prefixe}.enabled=false), la liste est vide et aucun rejeu n'a lieu.
+ */
+@Slf4j
+public class DeadLetterService implements SchedulingConfigurer {
+
+    private final EventProcessingConfiguration processingConfiguration;
+    private final String processorName;
+    private final Duration retryInterval;
+
+    public DeadLetterService(EventProcessingConfiguration processingConfiguration, MeterRegistry meterRegistry,
+                             String processorName, Duration retryInterval) {
+        this.processingConfiguration = processingConfiguration;
+        this.processorName = processorName;
+        this.retryInterval = retryInterval;
+        Gauge.builder("projection.dead-letters", this, DeadLetterService::size)
+            .description("Events waiting in the dead-letter queue of the projection (failed and parked behind them)")
+            .baseUnit("events")
+            .tag("processor", processorName)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::retryDue, retryInterval);
+    }
+
+    public List<DeadLetterView> list() {
+        List<DeadLetterView> views = new ArrayList<>();
+        queue().ifPresent(queue -> {
+            for (Iterable<DeadLetter<? extends EventMessage<?>>> sequence : queue.deadLetters()) {
+                int position = 0;
+                for (DeadLetter<? extends EventMessage<?>> letter : sequence) {
+                    views.add(view(letter, position++));
+                }
+            }
+        });
+        return views;
+    }
+
+    /**
+     * Rejoue une sequence (celle d'un compte), quel que soit son nombre d'echecs
+     *
+     * @return true si toute la sequence a ete traitee
+     */
+    public boolean retry(String sequenceId) {
+        log.info("Retrying dead-letter sequence {} of processor {}", sequenceId, processorName);
+        return processor()
+            .map(processor -> processor.process(letter -> sequenceId.equals(sequenceId(letter))))
+            .orElse(false);
+    }
+
+    /**
+     * Rejoue toutes les sequences une fois
+     *
+     * @return le nombre de sequences entierement traitees
+     */
+    public int retryAll() {
+        log.info("Retrying all dead-letter sequences of processor {}", processorName);
+        return (int) sequenceHeads().stream().map(DeadLetterService::sequenceId).filter(this::retry).count();
+    }
+
+    /**
+     * Supprime definitivement une sequence (ses events ne seront jamais appliques a la projection)
+     *
+     * @return le nombre de lettres supprimees
+     */
+    public int evict(String sequenceId) {
+        return queue().map(queue -> {
+            List<DeadLetter<? extends EventMessage<?>>> letters = new ArrayList<>();
+            queue.deadLetterSequence(sequenceId).forEach(letters::add);
+            letters.forEach(queue::evict);
+            log.warn("Evicted {} dead letters of sequence {} from processor {}", letters.size(), sequenceId, processorName);
+            return letters.size();
+        }).orElse(0);
+    }
+
+    /**
+     * Rejeu automatique des sequences dues (delai ecoule, nombre d'echecs sous le maximum)
+     *
+     * Une sequence rejouee sans succes est remise en file avec un compteur d'echecs incremente.
+     */
+    public void retryDue() {
+        Optional<DeadLetterRetryPolicy> policy = policy();
+        if (policy.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<String> due = sequenceHeads().stream()
+            .filter(letter -> policy.get().isDue(letter, now))
+            .map(DeadLetterService::sequenceId)
+            .toList();
+        if (due.isEmpty()) {
+            return;
+        }
+        long processed = due.stream().filter(this::retry).count();
+        log.info("Dead-letter retry of processor {}: {} of {} sequences processed", processorName, processed, due.size());
+    }
+
+    /**
+     * Premiere lettre de chaque sequence (l'event en echec)
+     */
+    private List<DeadLetter<? extends EventMessage<?>>> sequenceHeads() {
+        List<DeadLetter<? extends EventMessage<?>>> heads = new ArrayList<>();
+        queue().ifPresent(queue -> {
+            for (Iterable<DeadLetter<? extends EventMessage<?>>> sequence : queue.deadLetters()) {
+                Iterator<DeadLetter<? extends EventMessage<?>>> letters = sequence.iterator();
+                if (letters.hasNext()) {
+                    heads.add(letters.next());
+                }
+            }
+        });
+        return heads;
+    }
+
+    private long size() {
+        try {
+            return queue().map(SequencedDeadLetterQueue::size).orElse(0L);
+        } catch (Exception e) {
+            log.debug("Unable to read the size of the dead-letter queue", e);
+            return 0;
+        }
+    }
+
+    private Optional<SequencedDeadLetterQueue<EventMessage<?>>> queue() {
+        return processingConfiguration.deadLetterQueue(processorName);
+    }
+
+    private Optional<SequencedDeadLetterProcessor<EventMessage<?>>> processor() {
+        return processingConfiguration.sequencedDeadLetterProcessor(processorName);
+    }
+
+    private Optional<DeadLetterRetryPolicy> policy() {
+        Optional<EnqueuePolicy<EventMessage<?>>> policy = processingConfiguration.deadLetterPolicy(processorName);
+        return policy.filter(DeadLetterRetryPolicy.class::isInstance).map(DeadLetterRetryPolicy.class::cast);
+    }
+
+    /**
+     * Identifiant de sequence : celui de la politique de sequencement du processeur (identifiant d'agregat = compte)
+     */
+    private static String sequenceId(DeadLetter<? extends EventMessage<?>> letter) {
+        return letter.message() instanceof DomainEventMessage<?> domainEvent
+            ? domainEvent.getAggregateIdentifier()
+            : letter.message().getIdentifier();
+    }
+
+    private static DeadLetterView view(DeadLetter<? extends EventMessage<?>> letter, int position) {
+        EventMessage<?> message = letter.message();
+        return DeadLetterView.builder()
+            .sequenceId(sequenceId(letter))
+            .position(position)
+            .eventId(message.getIdentifier())
+            .payloadType(message.getPayloadType().getSimpleName())
+            .aggregateSequenceNumber(message instanceof DomainEventMessage<?> domainEvent
+                ? domainEvent.getSequenceNumber() : null)
+            .timestamp(message.getTimestamp())
+            .enqueuedAt(letter.enqueuedAt())
+            .lastTouched(letter.lastTouched())
+            .retries(DeadLetterRetryPolicy.retries(letter))
+            .causeType(letter.cause().map(Cause::type).orElse(null))
+            .causeMessage(letter.cause().map(Cause::message).orElse(null))
+            .build();
+    }
+}
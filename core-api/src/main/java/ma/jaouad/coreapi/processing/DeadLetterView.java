@@ -0,0 +1,33 @@
+package ma.jaouad.coreapi.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Event en echec d'un processeur, en attente dans la file des lettres mortes
+ *
+ * sequenceId : identifiant de la sequence (le compte pour les projections) ; les lettres d'une sequence
+ * sont rejouees dans l'ordre
+ * position : rang de la lettre dans sa sequence (0 = l'event en echec, les suivantes attendent derriere)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterView {
+    private String sequenceId;
+    private int position;
+    private String eventId;
+    private String payloadType;
+    private Long aggregateSequenceNumber;
+    private Instant timestamp;
+    private Instant enqueuedAt;
+    private Instant lastTouched;
+    private int retries;
+    private String causeType;
+    private String causeMessage;
+}
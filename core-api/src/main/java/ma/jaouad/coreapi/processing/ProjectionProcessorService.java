@@ -0,0 +1,147 @@
+package ma.jaouad.coreapi.processing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.StreamingEventProcessor;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Supervision des processeurs d'events en streaming (tracking et pooled)
+ *
+ * - etat et retard (lag) de chaque segment
+ * - division / fusion de segments a chaud
+ * - rejeu complet d'un processeur depuis le debut de l'event store
+ * - gauge Micrometer projection.segment.lag{processor, segment}, rafraichie periodiquement
+ *
+ * Commun aux services : chacun en declare un bean (ProjectionConfig), les processeurs sont designes par leur nom.
+ * Le rafraichissement de la gauge est planifie par le bean lui-meme (SchedulingConfigurer, avec @EnableScheduling).
+ */
+@Slf4j
+public class ProjectionProcessorService implements SchedulingConfigurer {
+
+    private final EventProcessingConfiguration processingConfiguration;
+    private final EventStore eventStore;
+    private final MultiGauge segmentLag;
+    private final Duration lagRefreshInterval;
+
+    public ProjectionProcessorService(EventProcessingConfiguration processingConfiguration,
+                                      EventStore eventStore,
+                                      MeterRegistry meterRegistry,
+                                      Duration lagRefreshInterval) {
+        this.processingConfiguration = processingConfiguration;
+        this.eventStore = eventStore;
+        this.lagRefreshInterval = lagRefreshInterval;
+        this.segmentLag = MultiGauge.builder("projection.segment.lag")
+            .description("Events between the segment position and the head of the event store")
+            .baseUnit("events")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::refreshLagMetrics, lagRefreshInterval);
+    }
+
+    public List<SegmentStatus> getStatus() {
+        OptionalLong head = headPosition();
+        List<SegmentStatus> statuses = new ArrayList<>();
+        processingConfiguration.eventProcessors().forEach((name, processor) -> {
+            if (processor instanceof StreamingEventProcessor streamingProcessor) {
+                statuses.addAll(segmentStatuses(name, streamingProcessor.processingStatus(), head));
+            }
+        });
+        statuses.sort(Comparator.comparing(SegmentStatus::getProcessor).thenComparing(SegmentStatus::getSegmentId));
+        return statuses;
+    }
+
+    public CompletableFuture<Boolean> splitSegment(String processorName, int segmentId) {
+        log.info("Splitting segment {} of processor {}", segmentId, processorName);
+        return streamingProcessor(processorName).splitSegment(segmentId);
+    }
+
+    public CompletableFuture<Boolean> mergeSegment(String processorName, int segmentId) {
+        log.info("Merging segment {} of processor {}", segmentId, processorName);
+        return streamingProcessor(processorName).mergeSegment(segmentId);
+    }
+
+    /**
+     * Rejoue tout le flux d'events : le processeur est arrete, ses tokens remis au debut
+     * (les @ResetHandler vident la projection) puis il est redemarre
+     */
+    public void replay(String processorName) {
+        StreamingEventProcessor processor = streamingProcessor(processorName);
+        if (!processor.supportsReset()) {
+            throw new IllegalArgumentException("Event processor does not support replay: " + processorName);
+        }
+        log.info("Replaying processor {} from the start of the event store", processorName);
+        processor.shutDown();
+        processor.resetTokens();
+        processor.start();
+    }
+
+    public void refreshLagMetrics() {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (SegmentStatus status : getStatus()) {
+            if (status.getLag() != null) {
+                rows.add(MultiGauge.Row.of(
+                    Tags.of("processor", status.getProcessor(), "segment", String.valueOf(status.getSegmentId())),
+                    status.getLag()));
+            }
+        }
+        segmentLag.register(rows, true);
+    }
+
+    private StreamingEventProcessor streamingProcessor(String processorName) {
+        return processingConfiguration.eventProcessor(processorName, StreamingEventProcessor.class)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown streaming event processor: " + processorName));
+    }
+
+    private static List<SegmentStatus> segmentStatuses(String processorName,
+                                                       Map<Integer, EventTrackerStatus> processingStatus,
+                                                       OptionalLong head) {
+        List<SegmentStatus> statuses = new ArrayList<>();
+        processingStatus.forEach((segmentId, status) -> {
+            OptionalLong position = status.getCurrentPosition();
+            Long lag = head.isPresent() && position.isPresent()
+                ? Math.max(0, head.getAsLong() - position.getAsLong())
+                : null;
+            statuses.add(SegmentStatus.builder()
+                .processor(processorName)
+                .segmentId(segmentId)
+                .mask(status.getSegment().getMask())
+                .position(position.isPresent() ? position.getAsLong() : null)
+                .lag(lag)
+                .caughtUp(status.isCaughtUp())
+                .replaying(status.isReplaying())
+                .merging(status.isMerging())
+                .error(status.isErrorState() ? String.valueOf(status.getError()) : null)
+                .build());
+        });
+        return statuses;
+    }
+
+    private OptionalLong headPosition() {
+        try {
+            TrackingToken head = eventStore.createHeadToken();
+            return head == null ? OptionalLong.empty() : head.position();
+        } catch (Exception e) {
+            log.debug("Unable to read the head of the event store", e);
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ma.jaouad.coreapi.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Etat d'un segment d'un processeur d'events
+ *
+ * lag : nombre d'events entre la position du segment et la tete de l'event store
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentStatus {
+    private String processor;
+    private int segmentId;
+    private int mask;
+    private Long position;
+    private Long lag;
+    private boolean caughtUp;
+    private boolean replaying;
+    private boolean merging;
+    private String error;
+}
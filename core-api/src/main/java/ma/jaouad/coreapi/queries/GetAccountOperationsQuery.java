@@ -6,9 +6,14 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 /**
- * Query pour récupérer l'historique des opérations d'un compte
+ * Query pour récupérer l'historique des opérations d'un compte, page par page
+ * 
+ * - limit : taille de page (0 = taille par defaut du service)
+ * - continuationToken : jeton opaque retourne avec la page precedente (null = premiere page)
+ * - from / to : bornes optionnelles sur la date de l'operation (from incluse, to exclue)
  * 
  * Les annotations Jackson (@JsonCreator, @JsonProperty) permettent
  * la désérialisation correcte lors du passage via Axon Server
@@ -18,9 +23,33 @@ import java.io.Serializable;
 public class GetAccountOperationsQuery implements Serializable {
     @JsonProperty("accountId")
     private String accountId;
-    
+
+    @JsonProperty("limit")
+    private int limit;
+
+    @JsonProperty("continuationToken")
+    private String continuationToken;
+
+    @JsonProperty("from")
+    private Instant from;
+
+    @JsonProperty("to")
+    private Instant to;
+
+    public GetAccountOperationsQuery(String accountId) {
+        this(accountId, 0, null, null, null);
+    }
+
     @JsonCreator
-    public GetAccountOperationsQuery(@JsonProperty("accountId") String accountId) {
+    public GetAccountOperationsQuery(@JsonProperty("accountId") String accountId,
+                                     @JsonProperty("limit") int limit,
+                                     @JsonProperty("continuationToken") String continuationToken,
+                                     @JsonProperty("from") Instant from,
+                                     @JsonProperty("to") Instant to) {
         this.accountId = accountId;
+        this.limit = limit;
+        this.continuationToken = continuationToken;
+        this.from = from;
+        this.to = to;
     }
 }
@@ -1,16 +1,31 @@
 package ma.jaouad.coreapi.queries;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 
 /**
- * Query pour récupérer tous les comptes
+ * Query pour récupérer les comptes, page par page (pagination par curseur)
  * 
- * Query sans paramètres - le constructeur par défaut est suffisant
- * pour la désérialisation Jackson
+ * - limit : taille de page (0 = taille par defaut du service)
+ * - continuationToken : jeton opaque retourne avec la page precedente (null = premiere page)
  */
+@Getter
 @NoArgsConstructor
 public class GetAllAccountsQuery implements Serializable {
-    // Query sans paramètres - juste l'implémentation de Serializable pour Axon Server
+    @JsonProperty("limit")
+    private int limit;
+
+    @JsonProperty("continuationToken")
+    private String continuationToken;
+
+    @JsonCreator
+    public GetAllAccountsQuery(@JsonProperty("limit") int limit,
+                               @JsonProperty("continuationToken") String continuationToken) {
+        this.limit = limit;
+        this.continuationToken = continuationToken;
+    }
 }
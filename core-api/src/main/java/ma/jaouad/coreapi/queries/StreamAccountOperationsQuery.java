@@ -0,0 +1,37 @@
+package ma.jaouad.coreapi.queries;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Streaming query pour exporter tout l'historique des opérations d'un compte
+ * 
+ * Les opérations sont émises une à une, par ordre chronologique, au rythme du consommateur.
+ * - from / to : bornes optionnelles sur la date de l'operation (from incluse, to exclue)
+ */
+@Getter
+@NoArgsConstructor
+public class StreamAccountOperationsQuery implements Serializable {
+    @JsonProperty("accountId")
+    private String accountId;
+
+    @JsonProperty("from")
+    private Instant from;
+
+    @JsonProperty("to")
+    private Instant to;
+
+    @JsonCreator
+    public StreamAccountOperationsQuery(@JsonProperty("accountId") String accountId,
+                                        @JsonProperty("from") Instant from,
+                                        @JsonProperty("to") Instant to) {
+        this.accountId = accountId;
+        this.from = from;
+        this.to = to;
+    }
+}
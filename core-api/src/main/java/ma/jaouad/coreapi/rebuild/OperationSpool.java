@@ -0,0 +1,123 @@
+package ma.jaouad.coreapi.rebuild;
+
+import ma.jaouad.coreapi.enums.OperationType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fichier temporaire des operations lues pendant une reconstruction
+ *
+ * Les operations sont ecrites sur disque au fil de la lecture du flux (memoire bornee),
+ * puis relues une seule fois pour le chargement en masse. Chaque service fournit la fabrique
+ * de ses lignes d'operation et le prefixe du fichier.
+ *
+ * @param <T> type des operations relues
+ */
+public class OperationSpool<T> implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final DataOutputStream output;
+    private final OperationFactory<T> factory;
+    private long size;
+
+    public OperationSpool(Path directory, String filePrefix, OperationFactory<T> factory) throws IOException {
+        Files.createDirectories(directory);
+        this.file = Files.createTempFile(directory, filePrefix, ".spool");
+        this.factory = factory;
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    public void append(String accountId, OperationType type, double amount, Instant date) {
+        try {
+            output.writeUTF(accountId);
+            output.writeByte(type.ordinal());
+            output.writeDouble(amount);
+            output.writeLong(date.getEpochSecond());
+            output.writeInt(date.getNano());
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the operation spool " + file, e);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Relit les operations dans l'ordre d'ecriture (une seule lecture a la fois)
+     */
+    public Iterator<T> read() {
+        try {
+            output.flush();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            return new Iterator<>() {
+                private long remaining = size;
+
+                @Override
+                public boolean hasNext() {
+                    if (remaining == 0) {
+                        closeQuietly(input);
+                    }
+                    return remaining > 0;
+                }
+
+                @Override
+                public T next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        String accountId = input.readUTF();
+                        OperationType type = OperationType.values()[input.readByte()];
+                        double amount = input.readDouble();
+                        Instant date = Instant.ofEpochSecond(input.readLong(), input.readInt());
+                        remaining--;
+                        return factory.create(accountId, type, amount, date);
+                    } catch (EOFException e) {
+                        throw new IllegalStateException("Truncated operation spool " + file, e);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to read the operation spool " + file, e);
+                    }
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the operation spool " + file, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Construit une operation relue du fichier
+     */
+    @FunctionalInterface
+    public interface OperationFactory<T> {
+        T create(String accountId, OperationType type, double amount, Instant date);
+    }
+
+    private static void closeQuietly(DataInputStream input) {
+        try {
+            input.close();
+        } catch (IOException e) {
+            // Lecture terminee, fichier supprime a la fermeture du spool
+        }
+    }
+}
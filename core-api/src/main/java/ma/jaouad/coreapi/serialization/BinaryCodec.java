@@ -0,0 +1,94 @@
+package ma.jaouad.coreapi.serialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Codec binaire pour un type de message core-api
+ *
+ * Chaque codec decrit explicitement le schema (ordre et type des champs) d'un message.
+ * La version de schema est exposee comme revision Axon : toute modification du format
+ * doit incrementer cette version et s'accompagner d'un upcaster (voir BinaryPayloadUpcaster).
+ */
+public interface BinaryCodec<T> {
+
+    Class<T> type();
+
+    int schemaVersion();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(T value, DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    static <T> BinaryCodec<T> of(Class<T> type, int schemaVersion, Writer<T> writer, Reader<T> reader) {
+        return new BinaryCodec<>() {
+            @Override
+            public Class<T> type() {
+                return type;
+            }
+
+            @Override
+            public int schemaVersion() {
+                return schemaVersion;
+            }
+
+            @Override
+            public void write(T value, DataOutput out) throws IOException {
+                writer.write(value, out);
+            }
+
+            @Override
+            public T read(DataInput in) throws IOException {
+                return reader.read(in);
+            }
+        };
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getEpochSecond());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    static Instant readInstant(DataInput in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    /**
+     * Les enums sont encodes par ordinal (1 octet) : les nouvelles constantes
+     * doivent toujours etre ajoutees en fin d'enum
+     */
+    static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    static <E extends Enum<E>> E readEnum(DataInput in, Class<E> enumType) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : enumType.getEnumConstants()[ordinal];
+    }
+}
@@ -0,0 +1,71 @@
+package ma.jaouad.coreapi.serialization;
+
+import org.axonframework.serialization.SerializationException;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.upcasting.event.IntermediateEventRepresentation;
+import org.axonframework.serialization.upcasting.event.SingleEventUpcaster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Base des upcasters pour les events encodes par CoreApiBinarySerializer
+ *
+ * Fait passer un event d'une version de schema N a N+1 :
+ * la sous-classe relit les champs de la version N et ecrit ceux de la version N+1,
+ * l'en-tete (MAGIC + version) et la revision Axon sont mis a jour ici.
+ *
+ * Declarer la sous-classe comme bean Spring suffit a l'enregistrer dans la chaine d'upcasters Axon.
+ */
+public abstract class BinaryPayloadUpcaster extends SingleEventUpcaster {
+
+    private final String typeName;
+    private final int fromVersion;
+
+    protected BinaryPayloadUpcaster(Class<?> type, int fromVersion) {
+        this.typeName = type.getName();
+        this.fromVersion = fromVersion;
+    }
+
+    @Override
+    protected boolean canUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return typeName.equals(intermediateRepresentation.getType().getName())
+            && String.valueOf(fromVersion).equals(intermediateRepresentation.getType().getRevision());
+    }
+
+    @Override
+    protected IntermediateEventRepresentation doUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        int toVersion = fromVersion + 1;
+        return intermediateRepresentation.upcastPayload(
+            new SimpleSerializedType(typeName, String.valueOf(toVersion)),
+            byte[].class,
+            bytes -> rewrite(bytes, toVersion)
+        );
+    }
+
+    /**
+     * Relit les champs de la version de schema source et ecrit ceux de la version suivante
+     */
+    protected abstract void upcast(DataInput in, DataOutput out) throws IOException;
+
+    private byte[] rewrite(byte[] bytes, int toVersion) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length + 16);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+             DataOutputStream out = new DataOutputStream(result)) {
+            // En-tete : MAGIC + version de schema
+            in.readByte();
+            in.readByte();
+            out.writeByte(CoreApiBinarySerializer.MAGIC);
+            out.writeByte(toVersion);
+            upcast(in, out);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to upcast " + typeName + " from schema version " + fromVersion, e);
+        }
+        return result.toByteArray();
+    }
+}
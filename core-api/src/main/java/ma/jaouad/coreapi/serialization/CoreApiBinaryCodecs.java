@@ -0,0 +1,128 @@
+package ma.jaouad.coreapi.serialization;
+
+import ma.jaouad.coreapi.commands.CreateAccountCommand;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import ma.jaouad.coreapi.commands.DebitAccountCommand;
+import ma.jaouad.coreapi.commands.UpdateAccountStatusCommand;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.events.AccountCreatedEvent;
+import ma.jaouad.coreapi.events.AccountCreditedEvent;
+import ma.jaouad.coreapi.events.AccountDebitedEvent;
+import ma.jaouad.coreapi.events.AccountStatusUpdatedEvent;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import ma.jaouad.coreapi.queries.GetAccountOperationsQuery;
+import ma.jaouad.coreapi.queries.GetAllAccountsQuery;
+import ma.jaouad.coreapi.queries.StreamAccountOperationsQuery;
+
+import java.util.List;
+
+import static ma.jaouad.coreapi.serialization.BinaryCodec.readEnum;
+import static ma.jaouad.coreapi.serialization.BinaryCodec.readInstant;
+import static ma.jaouad.coreapi.serialization.BinaryCodec.readString;
+import static ma.jaouad.coreapi.serialization.BinaryCodec.writeEnum;
+import static ma.jaouad.coreapi.serialization.BinaryCodec.writeInstant;
+import static ma.jaouad.coreapi.serialization.BinaryCodec.writeString;
+
+/**
+ * Schemas binaires des events, commands et queries du module core-api
+ *
+ * Ajouter un message core-api = ajouter son codec ici.
+ * Les types absents de cette liste sont serialises par le serializer de repli (serializer general Axon).
+ */
+public final class CoreApiBinaryCodecs {
+
+    private CoreApiBinaryCodecs() {
+    }
+
+    public static List<BinaryCodec<?>> all() {
+        return List.of(
+            // Events
+            BinaryCodec.of(AccountCreatedEvent.class, 1,
+                (event, out) -> {
+                    writeString(out, event.getAccountId());
+                    out.writeDouble(event.getInitialBalance());
+                    writeString(out, event.getCurrency());
+                    writeEnum(out, event.getAccountStatus());
+                },
+                in -> new AccountCreatedEvent(readString(in), in.readDouble(), readString(in),
+                    readEnum(in, AccountStatus.class))),
+            BinaryCodec.of(AccountCreditedEvent.class, 1,
+                (event, out) -> {
+                    writeString(out, event.getAccountId());
+                    out.writeDouble(event.getAmount());
+                },
+                in -> new AccountCreditedEvent(readString(in), in.readDouble())),
+            BinaryCodec.of(AccountDebitedEvent.class, 1,
+                (event, out) -> {
+                    writeString(out, event.getAccountId());
+                    out.writeDouble(event.getAmount());
+                },
+                in -> new AccountDebitedEvent(readString(in), in.readDouble())),
+            BinaryCodec.of(AccountStatusUpdatedEvent.class, 1,
+                (event, out) -> {
+                    writeString(out, event.getAccountId());
+                    writeEnum(out, event.getFromStatus());
+                    writeEnum(out, event.getToStatus());
+                },
+                in -> new AccountStatusUpdatedEvent(readString(in), readEnum(in, AccountStatus.class),
+                    readEnum(in, AccountStatus.class))),
+
+            // Commands
+            BinaryCodec.of(CreateAccountCommand.class, 1,
+                (command, out) -> {
+                    writeString(out, command.getId());
+                    out.writeDouble(command.getInitialBalance());
+                    writeString(out, command.getCurrency());
+                },
+                in -> new CreateAccountCommand(readString(in), in.readDouble(), readString(in))),
+            BinaryCodec.of(CreditAccountCommand.class, 1,
+                (command, out) -> {
+                    writeString(out, command.getId());
+                    out.writeDouble(command.getAmount());
+                    writeString(out, command.getCurrency());
+                },
+                in -> new CreditAccountCommand(readString(in), in.readDouble(), readString(in))),
+            BinaryCodec.of(DebitAccountCommand.class, 1,
+                (command, out) -> {
+                    writeString(out, command.getId());
+                    out.writeDouble(command.getAmount());
+                    writeString(out, command.getCurrency());
+                },
+                in -> new DebitAccountCommand(readString(in), in.readDouble(), readString(in))),
+            BinaryCodec.of(UpdateAccountStatusCommand.class, 1,
+                (command, out) -> {
+                    writeString(out, command.getId());
+                    writeEnum(out, command.getAccountStatus());
+                },
+                in -> new UpdateAccountStatusCommand(readString(in), readEnum(in, AccountStatus.class))),
+
+            // Queries
+            BinaryCodec.of(GetAccountByIdQuery.class, 1,
+                (query, out) -> writeString(out, query.getAccountId()),
+                in -> new GetAccountByIdQuery(readString(in))),
+            BinaryCodec.of(GetAccountOperationsQuery.class, 2,
+                (query, out) -> {
+                    writeString(out, query.getAccountId());
+                    out.writeInt(query.getLimit());
+                    writeString(out, query.getContinuationToken());
+                    writeInstant(out, query.getFrom());
+                    writeInstant(out, query.getTo());
+                },
+                in -> new GetAccountOperationsQuery(readString(in), in.readInt(), readString(in),
+                                                    readInstant(in), readInstant(in))),
+            BinaryCodec.of(GetAllAccountsQuery.class, 2,
+                (query, out) -> {
+                    out.writeInt(query.getLimit());
+                    writeString(out, query.getContinuationToken());
+                },
+                in -> new GetAllAccountsQuery(in.readInt(), readString(in))),
+            BinaryCodec.of(StreamAccountOperationsQuery.class, 1,
+                (query, out) -> {
+                    writeString(out, query.getAccountId());
+                    writeInstant(out, query.getFrom());
+                    writeInstant(out, query.getTo());
+                },
+                in -> new StreamAccountOperationsQuery(readString(in), readInstant(in), readInstant(in)))
+        );
+    }
+}
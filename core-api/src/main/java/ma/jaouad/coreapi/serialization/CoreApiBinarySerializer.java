@@ -0,0 +1,131 @@
+package ma.jaouad.coreapi.serialization;
+
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializationException;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.SimpleSerializedObject;
+import org.axonframework.serialization.SimpleSerializedType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializer binaire compact pour les messages core-api
+ *
+ * Format : [MAGIC][schemaVersion][champs du codec]
+ * - Les types connus (CoreApiBinaryCodecs) sont encodes champ par champ, sans nom de balise
+ * - La version de schema est publiee comme revision Axon, ce qui permet l'upcasting
+ * - Les autres types (MetaData, DTOs de reponse, tokens...) passent par le serializer de repli (serializer general)
+ *
+ * Les payloads deja stockes avec le serializer de repli (XML XStream, JSON Jackson) restent lisibles :
+ * sans l'octet MAGIC en tete, la deserialisation est deleguee au serializer de repli.
+ */
+public class CoreApiBinarySerializer implements Serializer {
+
+    static final byte MAGIC = (byte) 0xB1;
+
+    private final Serializer fallback;
+    private final Map<Class<?>, BinaryCodec<?>> codecsByType = new HashMap<>();
+    private final Map<String, BinaryCodec<?>> codecsByName = new HashMap<>();
+
+    public CoreApiBinarySerializer(Serializer fallback) {
+        this(fallback, CoreApiBinaryCodecs.all());
+    }
+
+    public CoreApiBinarySerializer(Serializer fallback, List<BinaryCodec<?>> codecs) {
+        this.fallback = fallback;
+        for (BinaryCodec<?> codec : codecs) {
+            codecsByType.put(codec.type(), codec);
+            codecsByName.put(codec.type().getName(), codec);
+        }
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        BinaryCodec<?> codec = object == null ? null : codecsByType.get(object.getClass());
+        if (codec == null) {
+            return fallback.serialize(object, expectedRepresentation);
+        }
+        byte[] bytes = encode(codec, object);
+        return new SimpleSerializedObject<>(getConverter().convert(bytes, expectedRepresentation),
+                                            expectedRepresentation, typeOf(codec));
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return getConverter().canConvert(byte[].class, expectedRepresentation)
+            && fallback.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        BinaryCodec<?> codec = codecsByName.get(serializedObject.getType().getName());
+        if (codec == null) {
+            return fallback.deserialize(serializedObject);
+        }
+        byte[] bytes = getConverter().convert(serializedObject, byte[].class).getData();
+        if (bytes.length == 0 || bytes[0] != MAGIC) {
+            // Payload ecrit avant l'activation du format binaire
+            return fallback.deserialize(serializedObject);
+        }
+        return (T) decode(codec, bytes);
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        BinaryCodec<?> codec = codecsByName.get(type.getName());
+        return codec != null ? codec.type() : fallback.classForType(type);
+    }
+
+    @Override
+    public SerializedType typeForClass(Class type) {
+        BinaryCodec<?> codec = type == null ? null : codecsByType.get(type);
+        return codec != null ? typeOf(codec) : fallback.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return fallback.getConverter();
+    }
+
+    private SerializedType typeOf(BinaryCodec<?> codec) {
+        return new SimpleSerializedType(codec.type().getName(), String.valueOf(codec.schemaVersion()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> byte[] encode(BinaryCodec<T> codec, Object object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(codec.schemaVersion());
+            codec.write((T) object, out);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to serialize " + codec.type().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object decode(BinaryCodec<?> codec, byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            in.readByte();
+            int version = in.readUnsignedByte();
+            if (version != codec.schemaVersion()) {
+                throw new SerializationException(String.format(
+                    "No upcaster brought %s from schema version %d to %d",
+                    codec.type().getName(), version, codec.schemaVersion()));
+            }
+            return codec.read(in);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize " + codec.type().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ma.jaouad.loadtests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Comptes actives sur lesquels portent les operations (credits, debits, changements de statut, requetes)
+ */
+public class AccountPool {
+
+    private final List<String> accountIds = new ArrayList<>();
+
+    public synchronized void add(String accountId) {
+        accountIds.add(accountId);
+    }
+
+    public synchronized String random() {
+        return accountIds.get(ThreadLocalRandom.current().nextInt(accountIds.size()));
+    }
+
+    public synchronized int size() {
+        return accountIds.size();
+    }
+}
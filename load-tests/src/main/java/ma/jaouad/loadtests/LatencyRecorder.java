@@ -0,0 +1,106 @@
+package ma.jaouad.loadtests;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latences et erreurs par serie (operation ou sonde de visibilite), en nanosecondes
+ *
+ * Une serie est un Recorder HdrHistogram (enregistrement sans verrou depuis tous les threads)
+ * et des compteurs d'erreurs par type d'exception.
+ */
+public class LatencyRecorder {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final LongAdder completed = new LongAdder();
+
+    public void record(String name, long latencyNanos) {
+        series(name).recorder.recordValue(Math.max(latencyNanos, 1));
+        completed.increment();
+    }
+
+    public void recordError(String name, Throwable error) {
+        Series target = series(name);
+        target.errors.increment();
+        target.errorTypes.computeIfAbsent(rootCause(error).getClass().getSimpleName(), type -> new LongAdder())
+                .increment();
+        completed.increment();
+    }
+
+    /**
+     * Nombre d'operations terminees (reussies ou non) depuis le demarrage, pour la progression
+     */
+    public long completed() {
+        return completed.sum();
+    }
+
+    /**
+     * Oublie les mesures precedentes (fin de la chauffe)
+     */
+    public void reset() {
+        series.values().forEach(target -> {
+            target.recorder.reset();
+            target.errors.reset();
+            target.errorTypes.clear();
+        });
+    }
+
+    /**
+     * Resultat de chaque serie depuis le dernier reset, trie par nom
+     */
+    public List<LoadTestReport.SeriesResult> results(Duration elapsed) {
+        double seconds = Math.max(elapsed.toNanos(), 1) / 1e9;
+        return series.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .map(entry -> result(entry.getKey(), entry.getValue(), seconds))
+                .toList();
+    }
+
+    private static LoadTestReport.SeriesResult result(String name, Series target, double seconds) {
+        Histogram histogram = target.recorder.getIntervalHistogram();
+        Map<String, Long> errorTypes = new TreeMap<>();
+        target.errorTypes.forEach((type, count) -> errorTypes.put(type, count.sum()));
+        return new LoadTestReport.SeriesResult(
+                name,
+                histogram.getTotalCount(),
+                target.errors.sum(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                errorTypes);
+    }
+
+    private Series series(String name) {
+        return series.computeIfAbsent(name, key -> new Series());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static final class Series {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder errors = new LongAdder();
+        private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,122 @@
+package ma.jaouad.loadtests;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options du test de charge, lues sur la ligne de commande (--nom=valeur)
+ *
+ * - accounts : comptes crees et actives avant la mesure
+ * - warmup / duration : durees de chauffe (resultats ignores) et de mesure (ISO-8601 ou secondes : 30s, PT1M)
+ * - concurrency : nombre de threads virtuels qui envoient les operations
+ * - rate : debit cible total en operations/s (0 = boucle fermee, chaque thread enchaine les operations).
+ *   Avec un debit cible, la latence est mesuree depuis l'instant prevu de l'operation : un service
+ *   sature allonge la latence au lieu de ralentir l'envoi
+ * - mix : poids des operations, ex. create:5,credit:40,debit:30,status:5,query:15,analytics:5
+ * - probe-interval : intervalle entre deux sondes de visibilite (ecriture puis lecture du solde)
+ * - report : fichier JSON du resultat (optionnel)
+ *
+ * Les options --account.* et --analytics.* sont transmises telles quelles au service correspondant
+ * (ex. --account.command-bus.local.enabled=true, --account.projection.batch.enabled=true).
+ */
+public record LoadTestOptions(int accounts,
+                              Duration warmup,
+                              Duration duration,
+                              int concurrency,
+                              int rate,
+                              Map<Operation, Integer> mix,
+                              Duration probeInterval,
+                              Path report,
+                              List<String> accountServiceProperties,
+                              List<String> analyticsServiceProperties) {
+
+    private static final String DEFAULT_MIX = "create:5,credit:40,debit:30,status:5,query:15,analytics:5";
+
+    public static LoadTestOptions parse(String[] args) {
+        int accounts = 1000;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(60);
+        int concurrency = 64;
+        int rate = 0;
+        Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+        Duration probeInterval = Duration.ofMillis(100);
+        Path report = null;
+        List<String> accountServiceProperties = new ArrayList<>();
+        List<String> analyticsServiceProperties = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--account.")) {
+                accountServiceProperties.add(arg);
+                continue;
+            }
+            if (arg.startsWith("--analytics.")) {
+                analyticsServiceProperties.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "accounts" -> accounts = Integer.parseInt(value);
+                case "warmup" -> warmup = parseDuration(value);
+                case "duration" -> duration = parseDuration(value);
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "rate" -> rate = Integer.parseInt(value);
+                case "mix" -> mix = parseMix(value);
+                case "probe-interval" -> probeInterval = parseDuration(value);
+                case "report" -> report = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (accounts <= 0 || concurrency <= 0 || rate < 0) {
+            throw new IllegalArgumentException("accounts and concurrency must be positive, rate must not be negative");
+        }
+        return new LoadTestOptions(accounts, warmup, duration, concurrency, rate, mix, probeInterval, report,
+                List.copyOf(accountServiceProperties), List.copyOf(analyticsServiceProperties));
+    }
+
+    /**
+     * Duree ISO-8601 (PT30S) ou nombre suivi d'une unite : ms, s, m
+     */
+    static Duration parseDuration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in mix, got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + entry);
+            }
+            mix.put(Operation.fromName(parts[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The operation mix must contain a positive weight");
+        }
+        return mix;
+    }
+}
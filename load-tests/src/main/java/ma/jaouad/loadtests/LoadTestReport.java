@@ -0,0 +1,68 @@
+package ma.jaouad.loadtests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultat d'un test de charge : options utilisees et une ligne par serie (latences en ms)
+ *
+ * Le JSON (--report) se compare entre deux executions ou deux commits.
+ */
+public record LoadTestReport(Instant startedAt,
+                             Duration duration,
+                             int concurrency,
+                             int rate,
+                             Map<Operation, Integer> mix,
+                             List<String> accountServiceProperties,
+                             List<String> analyticsServiceProperties,
+                             List<SeriesResult> results) {
+
+    public record SeriesResult(String name,
+                               long count,
+                               long errors,
+                               double throughput,
+                               double p50,
+                               double p99,
+                               double p999,
+                               double max,
+                               Map<String, Long> errorTypes) {
+    }
+
+    public static LoadTestReport of(LoadTestOptions options, Instant startedAt, Duration duration,
+                                    List<SeriesResult> results) {
+        return new LoadTestReport(startedAt, duration, options.concurrency(), options.rate(), options.mix(),
+                options.accountServiceProperties(), options.analyticsServiceProperties(), results);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nLoad test: %s, concurrency %d, %s%n", duration, concurrency,
+                rate > 0 ? "target rate " + rate + " ops/s" : "closed loop");
+        out.printf("%-22s %10s %8s %12s %10s %10s %10s %10s%n",
+                "series", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (SeriesResult result : results) {
+            out.printf("%-22s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    result.name(), result.count(), result.errors(), result.throughput(),
+                    result.p50(), result.p99(), result.p999(), result.max());
+        }
+        results.stream()
+                .filter(result -> !result.errorTypes().isEmpty())
+                .forEach(result -> out.printf("errors %s: %s%n", result.name(), result.errorTypes()));
+    }
+
+    public void write(Path file) throws IOException {
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(file.toFile(), this);
+    }
+}
@@ -0,0 +1,50 @@
+package ma.jaouad.loadtests;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Test de charge de bout en bout : java -jar load-tests/target/load-tests.jar [--nom=valeur ...]
+ *
+ * Demarre les deux services en processus, cree les comptes initiaux, chauffe, puis mesure
+ * le melange d'operations et la visibilite des ecritures (voir LoadTestOptions).
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LoadTestReport report;
+        try (ServiceContexts services = new ServiceContexts(options)) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            AccountPool accountPool = new AccountPool();
+            Workload workload = new Workload(services, options, accountPool, recorder);
+            workload.seed(options.accounts());
+
+            VisibilityProbe probe = new VisibilityProbe(services, recorder, options.probeInterval());
+            probe.start();
+            if (!options.warmup().isZero()) {
+                log.info("Warming up for {}", options.warmup());
+                workload.run("warmup", options.warmup());
+            }
+            recorder.reset();
+
+            log.info("Measuring for {} ({} virtual threads)", options.duration(), options.concurrency());
+            Instant startedAt = Instant.now();
+            long start = System.nanoTime();
+            workload.run("measure", options.duration());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            probe.stop();
+            report = LoadTestReport.of(options, startedAt, elapsed, recorder.results(elapsed));
+        }
+        report.print(System.out);
+        if (options.report() != null) {
+            report.write(options.report());
+            log.info("Report written to {}", options.report());
+        }
+        // Le planificateur partage d'Axon (axon-janitor) survit a la fermeture des contextes
+        System.exit(0);
+    }
+}
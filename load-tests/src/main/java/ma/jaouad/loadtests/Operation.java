@@ -0,0 +1,32 @@
+package ma.jaouad.loadtests;
+
+/**
+ * Operations envoyees par les threads de charge
+ *
+ * - CREATE : creation et activation d'un compte (ajoute au pool de comptes)
+ * - CREDIT / DEBIT : commande sur un compte du pool (les debits peuvent etre refuses, solde insuffisant)
+ * - STATUS : suspension puis reactivation d'un compte
+ * - QUERY : GetAccountByIdQuery sur account-service
+ * - ANALYTICS : statistiques des operations d'analytics-service
+ */
+public enum Operation {
+    CREATE,
+    CREDIT,
+    DEBIT,
+    STATUS,
+    QUERY,
+    ANALYTICS;
+
+    public String label() {
+        return name().toLowerCase();
+    }
+
+    public static Operation fromName(String name) {
+        for (Operation operation : values()) {
+            if (operation.label().equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+}
@@ -0,0 +1,81 @@
+package ma.jaouad.loadtests;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.AccountServiceApplication;
+import ma.jaouad.analyticsservice.AnalyticsServiceApplication;
+import ma.jaouad.analyticsservice.controllers.AnalyticsQueryController;
+import ma.jaouad.analyticsservice.queries.repositories.AccountViewRepository;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.queryhandling.QueryGateway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * account-service et analytics-service demarres dans le processus du test de charge
+ *
+ * Profil embedded : l'event store est un repertoire temporaire (MappedFileEventStorageEngine)
+ * ecrit par account-service et lu en lecture seule par analytics-service, comme deux
+ * processus sur la meme machine. Les bus de commandes et de requetes sont locaux, sans Axon Server.
+ *
+ * Chaque service a son propre fichier de configuration (loadtest-account.properties,
+ * loadtest-analytics.properties) : les application.properties des deux jars portent le meme nom.
+ */
+@Slf4j
+@Getter
+public class ServiceContexts implements AutoCloseable {
+
+    private final Path eventStoreDirectory;
+    private final ConfigurableApplicationContext accountService;
+    private final ConfigurableApplicationContext analyticsService;
+    private final CommandGateway commandGateway;
+    private final QueryGateway queryGateway;
+    private final AccountViewRepository accountViewRepository;
+    private final AnalyticsQueryController analyticsQueryController;
+
+    public ServiceContexts(LoadTestOptions options) {
+        // Pas d'appel reseau pendant la mesure (et pas de thread non daemon en fin de test)
+        System.setProperty("axoniq.update-checker.disabled", "true");
+        try {
+            eventStoreDirectory = Files.createTempDirectory("loadtest-eventstore");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Starting account-service and analytics-service (event store: {})", eventStoreDirectory);
+        accountService = start(AccountServiceApplication.class, "loadtest-account", options.accountServiceProperties());
+        analyticsService = start(AnalyticsServiceApplication.class, "loadtest-analytics", options.analyticsServiceProperties());
+        commandGateway = accountService.getBean(CommandGateway.class);
+        queryGateway = accountService.getBean(QueryGateway.class);
+        accountViewRepository = analyticsService.getBean(AccountViewRepository.class);
+        analyticsQueryController = analyticsService.getBean(AnalyticsQueryController.class);
+    }
+
+    private ConfigurableApplicationContext start(Class<?> application, String configName, List<String> properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.name=" + configName,
+                "--spring.profiles.active=embedded",
+                "--embedded.eventstore.directory=" + eventStoreDirectory));
+        args.addAll(properties);
+        return new SpringApplicationBuilder(application).run(args.toArray(String[]::new));
+    }
+
+    @Override
+    public void close() {
+        analyticsService.close();
+        accountService.close();
+        try (Stream<Path> paths = Files.walk(eventStoreDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Unable to delete event store directory {}", eventStoreDirectory, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ma.jaouad.loadtests;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import ma.jaouad.analyticsservice.queries.entities.AccountView;
+import ma.jaouad.coreapi.commands.CreateAccountCommand;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import ma.jaouad.coreapi.commands.UpdateAccountStatusCommand;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Sonde de visibilite des ecritures dans les modeles de lecture
+ *
+ * Sur un compte reserve a la sonde (aucune autre operation ne le modifie), credite 1 puis mesure
+ * le temps entre l'envoi de la commande et le moment ou le nouveau solde est lu :
+ * - visibility.account : par GetAccountByIdQuery (projection d'account-service)
+ * - visibility.analytics : dans AccountView (projection d'analytics-service)
+ */
+@Slf4j
+public class VisibilityProbe {
+
+    static final String ACCOUNT_SERIES = "visibility.account";
+    static final String ANALYTICS_SERIES = "visibility.analytics";
+
+    private static final long POLL_INTERVAL_MILLIS = 1;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ServiceContexts services;
+    private final LatencyRecorder recorder;
+    private final Duration interval;
+    private final String accountId = "visibility-probe-" + UUID.randomUUID();
+    private volatile boolean running;
+    private Thread thread;
+    private double expectedBalance;
+
+    public VisibilityProbe(ServiceContexts services, LatencyRecorder recorder, Duration interval) {
+        this.services = services;
+        this.recorder = recorder;
+        this.interval = interval;
+    }
+
+    public void start() {
+        services.getCommandGateway().sendAndWait(new CreateAccountCommand(accountId, 0, Workload.CURRENCY));
+        services.getCommandGateway().sendAndWait(new UpdateAccountStatusCommand(accountId, AccountStatus.ACTIVATED));
+        running = true;
+        thread = Thread.ofVirtual().name("visibility-probe").start(this::probeLoop);
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join();
+    }
+
+    private void probeLoop() {
+        while (running) {
+            try {
+                probe();
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("Visibility probe failed: {}", e.toString());
+            }
+        }
+    }
+
+    private void probe() throws InterruptedException {
+        long start = System.nanoTime();
+        services.getCommandGateway().sendAndWait(new CreditAccountCommand(accountId, 1, Workload.CURRENCY));
+        expectedBalance += 1;
+        awaitBalance(ACCOUNT_SERIES, start, this::accountServiceBalance);
+        awaitBalance(ANALYTICS_SERIES, start, this::analyticsServiceBalance);
+    }
+
+    private void awaitBalance(String series, long start, DoubleSupplier balance) throws InterruptedException {
+        while (balance.getAsDouble() < expectedBalance) {
+            if (System.nanoTime() - start > TIMEOUT_NANOS) {
+                recorder.recordError(series, new TimeoutException("Balance not visible after 30 s"));
+                return;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        recorder.record(series, System.nanoTime() - start);
+    }
+
+    private double accountServiceBalance() {
+        return services.getQueryGateway()
+                .query(new GetAccountByIdQuery(accountId), ResponseTypes.instanceOf(AccountDTO.class))
+                .thenApply(AccountDTO::getBalance)
+                .exceptionally(error -> -1.0)
+                .join();
+    }
+
+    private double analyticsServiceBalance() {
+        return services.getAccountViewRepository().findById(accountId)
+                .map(AccountView::getBalance)
+                .orElse(-1.0);
+    }
+}
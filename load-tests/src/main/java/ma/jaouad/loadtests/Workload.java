@@ -0,0 +1,200 @@
+package ma.jaouad.loadtests;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.jaouad.accountservice.queries.dto.AccountDTO;
+import ma.jaouad.coreapi.commands.CreateAccountCommand;
+import ma.jaouad.coreapi.commands.CreditAccountCommand;
+import ma.jaouad.coreapi.commands.DebitAccountCommand;
+import ma.jaouad.coreapi.commands.UpdateAccountStatusCommand;
+import ma.jaouad.coreapi.enums.AccountStatus;
+import ma.jaouad.coreapi.queries.GetAccountByIdQuery;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envoi du melange d'operations depuis des threads virtuels
+ *
+ * Boucle fermee (rate=0) : chaque thread envoie l'operation suivante des que la precedente est terminee.
+ * Debit cible : chaque thread espace ses operations de concurrency/rate secondes et la latence part
+ * de l'instant prevu, retard d'envoi compris (pas d'omission coordonnee).
+ */
+@Slf4j
+public class Workload {
+
+    static final String CURRENCY = "MAD";
+    private static final double INITIAL_BALANCE = 1000;
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    private final CommandGateway commandGateway;
+    private final QueryGateway queryGateway;
+    private final ServiceContexts services;
+    private final LoadTestOptions options;
+    private final AccountPool accountPool;
+    private final LatencyRecorder recorder;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public Workload(ServiceContexts services, LoadTestOptions options, AccountPool accountPool, LatencyRecorder recorder) {
+        this.services = services;
+        this.commandGateway = services.getCommandGateway();
+        this.queryGateway = services.getQueryGateway();
+        this.options = options;
+        this.accountPool = accountPool;
+        this.recorder = recorder;
+        List<Map.Entry<Operation, Integer>> weighted = options.mix().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .toList();
+        this.operations = new Operation[weighted.size()];
+        this.cumulativeWeights = new int[weighted.size()];
+        int total = 0;
+        for (int i = 0; i < weighted.size(); i++) {
+            total += weighted.get(i).getValue();
+            operations[i] = weighted.get(i).getKey();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Cree et active les comptes initiaux (en parallele, au plus concurrency a la fois)
+     */
+    public void seed(int accounts) throws InterruptedException {
+        log.info("Creating {} accounts", accounts);
+        Semaphore permits = new Semaphore(options.concurrency());
+        List<CompletableFuture<?>> pending = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            permits.acquire();
+            String accountId = UUID.randomUUID().toString();
+            pending.add(commandGateway.send(new CreateAccountCommand(accountId, INITIAL_BALANCE, CURRENCY))
+                    .thenCompose(created -> commandGateway.send(
+                            new UpdateAccountStatusCommand(accountId, AccountStatus.ACTIVATED)))
+                    .thenRun(() -> accountPool.add(accountId))
+                    .whenComplete((result, error) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Envoie le melange d'operations pendant duration, puis attend la fin des operations en cours
+     */
+    public void run(String phase, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        long intervalNanos = options.rate() > 0
+                ? TimeUnit.SECONDS.toNanos(1) * options.concurrency() / options.rate()
+                : 0;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>(options.concurrency());
+            for (int i = 0; i < options.concurrency(); i++) {
+                // Debuts decales : les threads n'envoient pas tous au meme instant
+                long firstStart = System.nanoTime() + (intervalNanos * i) / options.concurrency();
+                running.add(workers.submit(() -> work(deadline, firstStart, intervalNanos)));
+            }
+            reportProgress(phase, deadline);
+            for (Future<?> worker : running) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    log.error("Load worker failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private void work(long deadline, long firstStart, long intervalNanos) {
+        long scheduled = firstStart;
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                return;
+            }
+            if (intervalNanos > 0 && scheduled > now) {
+                if (!sleepNanos(scheduled - now)) {
+                    return;
+                }
+            }
+            Operation operation = nextOperation();
+            long start = intervalNanos > 0 ? scheduled : System.nanoTime();
+            try {
+                execute(operation);
+                recorder.record(operation.label(), System.nanoTime() - start);
+            } catch (Exception e) {
+                recorder.recordError(operation.label(), e);
+            }
+            scheduled += intervalNanos;
+        }
+    }
+
+    private void execute(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case CREATE -> {
+                String accountId = UUID.randomUUID().toString();
+                commandGateway.send(new CreateAccountCommand(accountId, INITIAL_BALANCE, CURRENCY)).get();
+                commandGateway.send(new UpdateAccountStatusCommand(accountId, AccountStatus.ACTIVATED)).get();
+                accountPool.add(accountId);
+            }
+            case CREDIT -> commandGateway.send(
+                    new CreditAccountCommand(accountPool.random(), random.nextInt(10, 100), CURRENCY)).get();
+            case DEBIT -> commandGateway.send(
+                    new DebitAccountCommand(accountPool.random(), random.nextInt(1, 50), CURRENCY)).get();
+            case STATUS -> {
+                String accountId = accountPool.random();
+                commandGateway.send(new UpdateAccountStatusCommand(accountId, AccountStatus.SUSPENDED)).get();
+                commandGateway.send(new UpdateAccountStatusCommand(accountId, AccountStatus.ACTIVATED)).get();
+            }
+            case QUERY -> queryGateway.query(new GetAccountByIdQuery(accountPool.random()),
+                    ResponseTypes.instanceOf(AccountDTO.class)).get();
+            case ANALYTICS -> services.getAnalyticsQueryController().getOperationStatistics(null, null, null, null);
+        }
+    }
+
+    private Operation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void reportProgress(String phase, long deadline) throws InterruptedException {
+        long previous = recorder.completed();
+        while (System.nanoTime() < deadline) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            long waitMillis = Math.min(PROGRESS_INTERVAL_MILLIS, remainingMillis);
+            if (waitMillis <= 0) {
+                return;
+            }
+            Thread.sleep(waitMillis);
+            long completed = recorder.completed();
+            log.info("[{}] {} ops/s, {} accounts", phase,
+                    (completed - previous) * 1000 / Math.max(waitMillis, 1), accountPool.size());
+            previous = completed;
+        }
+    }
+
+    private static boolean sleepNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}